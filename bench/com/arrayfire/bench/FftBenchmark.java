@@ -0,0 +1,78 @@
+package com.arrayfire.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.arrayfire.Array;
+
+// 1D, 2D and 3D transforms over roughly the same number of elements,
+// and the real to complex and in place forms of the 1D one
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class FftBenchmark {
+
+    // log2 of the total element count
+    @Param({"12", "18", "21"})
+    public int log2n;
+
+    Array a1;
+    Array a2;
+    Array a3;
+    Array c1;
+
+    @Setup
+    public void setup() throws Exception {
+        int n = 1 << log2n;
+        int side2 = 1 << (log2n / 2);
+        int side3 = 1 << (log2n / 3);
+        a1 = Array.randu(new int[] { n }, Array.FloatType);
+        a2 = Array.randu(new int[] { side2, n / side2 }, Array.FloatType);
+        a3 = Array.randu(new int[] { side3, side3, n / (side3 * side3) }, Array.FloatType);
+        c1 = Array.randu(new int[] { n }, Array.FloatComplexType);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        a1.close();
+        a2.close();
+        a3.close();
+        c1.close();
+    }
+
+    @Benchmark
+    public void fft() throws Exception {
+        try (Array r = Array.fft(a1)) {
+            Array.sync();
+        }
+    }
+
+    @Benchmark
+    public void fft2() throws Exception {
+        try (Array r = Array.fft2(a2)) {
+            Array.sync();
+        }
+    }
+
+    @Benchmark
+    public void fft3() throws Exception {
+        try (Array r = Array.fft3(a3)) {
+            Array.sync();
+        }
+    }
+
+    @Benchmark
+    public void fftR2C() throws Exception {
+        try (Array r = Array.fftR2C(a1, 1)) {
+            Array.sync();
+        }
+    }
+
+    // Forward and back keeps c1 bounded across invocations
+    @Benchmark
+    public void fftInPlace() throws Exception {
+        c1.fftInPlace(1).ifftInPlace(1);
+        Array.sync();
+    }
+}
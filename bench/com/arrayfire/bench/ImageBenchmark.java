@@ -0,0 +1,68 @@
+package com.arrayfire.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.arrayfire.Array;
+import com.arrayfire.Image;
+
+// Filtering and resampling of a square single channel image
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ImageBenchmark {
+
+    @Param({"256", "1024"})
+    public int side;
+
+    Image img;
+    Image kernel;
+
+    @Setup
+    public void setup() throws Exception {
+        float[] pixels = new float[side * side];
+        Random rand = new Random(42);
+        for (int i = 0; i < pixels.length; i++) pixels[i] = rand.nextFloat() * 255;
+        img = new Image(new int[] { side, side }, pixels);
+
+        float[] box = new float[5 * 5];
+        for (int i = 0; i < box.length; i++) box[i] = 1.0f / box.length;
+        kernel = new Image(new int[] { 5, 5 }, box);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        img.close();
+        kernel.close();
+    }
+
+    @Benchmark
+    public void convolve() throws Exception {
+        try (Image r = Image.convolve(img, kernel)) {
+            Array.sync();
+        }
+    }
+
+    @Benchmark
+    public void medianfilter() throws Exception {
+        try (Image r = Image.medianfilter(img, 3, 3)) {
+            Array.sync();
+        }
+    }
+
+    @Benchmark
+    public void bilateral() throws Exception {
+        try (Image r = Image.bilateral(img, 5.0f, 25.0f)) {
+            Array.sync();
+        }
+    }
+
+    @Benchmark
+    public void resize() throws Exception {
+        try (Image r = Image.resize(img, 0.5f, 'N')) {
+            Array.sync();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.arrayfire.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.arrayfire.Array;
+
+// Square matrix products through ArrayFire against a plain Java loop.
+// The device cases include the upload of both operands and the download
+// of the result, so they compare like for like with the JVM.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class MatmulBenchmark {
+
+    @Param({"64", "256", "1024"})
+    public int n;
+
+    int[] dims;
+    float[] a;
+    float[] b;
+    float[] c;
+
+    Array A;
+    Array B;
+
+    @Setup
+    public void setup() throws Exception {
+        dims = new int[] { n, n };
+        a = new float[n * n];
+        b = new float[n * n];
+        c = new float[n * n];
+        Random rand = new Random(42);
+        for (int i = 0; i < a.length; i++) {
+            a[i] = rand.nextFloat();
+            b[i] = rand.nextFloat();
+        }
+        A = new Array(dims, a);
+        B = new Array(dims, b);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        A.close();
+        B.close();
+    }
+
+    // Operands already on the device
+    @Benchmark
+    public void matmulResident() throws Exception {
+        try (Array r = Array.matmul(A, B)) {
+            Array.sync();
+        }
+    }
+
+    @Benchmark
+    public float[] matmulRoundTrip() throws Exception {
+        try (Array x = new Array(dims, a);
+             Array y = new Array(dims, b);
+             Array r = Array.matmul(x, y)) {
+            return r.getFloatArray(c);
+        }
+    }
+
+    // Column major like ArrayFire, loops ordered for sequential access
+    @Benchmark
+    public float[] javaLoop() {
+        Arrays.fill(c, 0);
+        for (int j = 0; j < n; j++) {
+            for (int k = 0; k < n; k++) {
+                float bkj = b[k + j * n];
+                int ac = k * n;
+                int cc = j * n;
+                for (int i = 0; i < n; i++) {
+                    c[cc + i] += a[ac + i] * bkj;
+                }
+            }
+        }
+        return c;
+    }
+}
@@ -0,0 +1,68 @@
+package com.arrayfire.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.arrayfire.Array;
+
+// Full and per dimension reductions over a square matrix
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ReductionBenchmark {
+
+    @Param({"32", "512", "2048"})
+    public int side;
+
+    @Param({"0", "1"})
+    public int dim;
+
+    Array a;
+
+    @Setup
+    public void setup() throws Exception {
+        a = Array.randu(new int[] { side, side }, Array.FloatType);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        a.close();
+    }
+
+    @Benchmark
+    public double sumAll() throws Exception {
+        return Array.sumAll(a);
+    }
+
+    @Benchmark
+    public double maxAll() throws Exception {
+        return Array.maxAll(a);
+    }
+
+    @Benchmark
+    public double minAll() throws Exception {
+        return Array.minAll(a);
+    }
+
+    @Benchmark
+    public void sum() throws Exception {
+        try (Array r = Array.sum(a, dim)) {
+            Array.sync();
+        }
+    }
+
+    @Benchmark
+    public void max() throws Exception {
+        try (Array r = Array.max(a, dim)) {
+            Array.sync();
+        }
+    }
+
+    @Benchmark
+    public void min() throws Exception {
+        try (Array r = Array.min(a, dim)) {
+            Array.sync();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.arrayfire.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.arrayfire.Array;
+
+// Per call overhead of the scalar operators. The small sizes are
+// dominated by the JNI crossing and handle bookkeeping.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ScalarOpBenchmark {
+
+    @Param({"1", "1024", "1048576"})
+    public int size;
+
+    Array a;
+
+    @Setup
+    public void setup() throws Exception {
+        a = Array.randu(new int[] { size, 1 }, Array.FloatType);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        a.close();
+    }
+
+    @Benchmark
+    public void add() throws Exception {
+        try (Array r = Array.add(a, 1.5f)) {
+            Array.sync();
+        }
+    }
+
+    // Double scalar, which takes the type of a
+    @Benchmark
+    public void addDouble() throws Exception {
+        try (Array r = Array.add(a, 1.5)) {
+            Array.sync();
+        }
+    }
+
+    // Same as add, reusing the handle of a instead of allocating one
+    @Benchmark
+    public void addInPlace() throws Exception {
+        a.addInPlace(0.0f);
+        Array.sync();
+    }
+
+    @Benchmark
+    public void mul() throws Exception {
+        try (Array r = Array.mul(a, 1.5f)) {
+            Array.sync();
+        }
+    }
+
+    @Benchmark
+    public void lt() throws Exception {
+        try (Array r = Array.lt(a, 0.5f)) {
+            Array.sync();
+        }
+    }
+
+    @Benchmark
+    public void pow() throws Exception {
+        try (Array r = Array.pow(a, 2.0f)) {
+            Array.sync();
+        }
+    }
+
+    // Five chained calls, each crossing JNI on its own
+    @Benchmark
+    public void chain() throws Exception {
+        try (Array r1 = Array.mul(a, 2.0f);
+             Array r2 = Array.add(r1, 1.0f);
+             Array r3 = Array.sub(r2, 0.5f);
+             Array r4 = Array.div(r3, 3.0f);
+             Array r5 = Array.mul(r4, r4)) {
+            Array.sync();
+        }
+    }
+}
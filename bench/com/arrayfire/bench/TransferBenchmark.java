@@ -0,0 +1,114 @@
+package com.arrayfire.bench;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.arrayfire.Array;
+
+// Host to device and device to host copies, per element type and size
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class TransferBenchmark {
+
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    int[] dims;
+    float[] floats;
+    double[] doubles;
+    int[] ints;
+    FloatBuffer direct;
+
+    Array floatArray;
+    Array doubleArray;
+    Array intArray;
+
+    @Setup
+    public void setup() throws Exception {
+        dims = new int[] { size, 1 };
+        floats = new float[size];
+        doubles = new double[size];
+        ints = new int[size];
+        Random rand = new Random(42);
+        for (int i = 0; i < size; i++) {
+            floats[i] = rand.nextFloat();
+            doubles[i] = rand.nextDouble();
+            ints[i] = rand.nextInt();
+        }
+        direct = ByteBuffer.allocateDirect(size * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        direct.put(floats).flip();
+
+        floatArray = new Array(dims, floats);
+        doubleArray = new Array(dims, doubles);
+        intArray = new Array(dims, ints);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        floatArray.close();
+        doubleArray.close();
+        intArray.close();
+    }
+
+    @Benchmark
+    public void uploadFloat() throws Exception {
+        try (Array a = new Array(dims, floats)) {
+            Array.sync();
+        }
+    }
+
+    @Benchmark
+    public void uploadDouble() throws Exception {
+        try (Array a = new Array(dims, doubles)) {
+            Array.sync();
+        }
+    }
+
+    @Benchmark
+    public void uploadInt() throws Exception {
+        try (Array a = new Array(dims, ints)) {
+            Array.sync();
+        }
+    }
+
+    @Benchmark
+    public void uploadFloatBuffer() throws Exception {
+        try (Array a = new Array(dims, direct)) {
+            Array.sync();
+        }
+    }
+
+    @Benchmark
+    public float[] downloadFloat() throws Exception {
+        return floatArray.getFloatArray(floats);
+    }
+
+    @Benchmark
+    public double[] downloadDouble() throws Exception {
+        return doubleArray.getDoubleArray(doubles);
+    }
+
+    @Benchmark
+    public int[] downloadInt() throws Exception {
+        return intArray.getIntArray(ints);
+    }
+
+    @Benchmark
+    public FloatBuffer downloadFloatBuffer() throws Exception {
+        direct.clear();
+        floatArray.copyTo(direct);
+        return direct;
+    }
+
+    // Allocating download, for comparison with the reusing ones above
+    @Benchmark
+    public float[] downloadFloatAllocating() throws Exception {
+        return floatArray.getFloatArray();
+    }
+}
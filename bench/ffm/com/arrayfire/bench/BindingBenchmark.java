@@ -0,0 +1,103 @@
+package com.arrayfire.bench;
+
+import java.lang.foreign.Arena;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.arrayfire.Array;
+import com.arrayfire.ffm.FfmArray;
+
+// Per call overhead of the JNI wrapper against the java.lang.foreign
+// binding for the same ArrayFire calls. At the small sizes both are
+// dominated by the crossing into native code and handle bookkeeping.
+// Built by make ffm, which needs a JDK with java.lang.foreign.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class BindingBenchmark {
+
+    @Param({"1", "1024", "1048576"})
+    public int size;
+
+    Array a;
+    Array b;
+    Array out;
+
+    Arena arena;
+    FfmArray fa;
+    FfmArray fb;
+
+    // Results are closed right away but stay registered with their arena
+    // until it closes, so they get one that lasts a single iteration
+    Arena results;
+
+    @Setup
+    public void setup() throws Exception {
+        int[] dims = new int[] { size };
+        a = Array.randu(dims, Array.FloatType);
+        b = Array.randu(dims, Array.FloatType);
+        out = new Array();
+
+        arena = Arena.ofConfined();
+        fa = FfmArray.randu(arena, dims, FfmArray.FloatType);
+        fb = FfmArray.randu(arena, dims, FfmArray.FloatType);
+    }
+
+    @Setup(Level.Iteration)
+    public void openResults() {
+        results = Arena.ofConfined();
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeResults() {
+        results.close();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        a.close();
+        b.close();
+        out.close();
+        arena.close();
+    }
+
+    // out reuses its handle, the closest JNI equivalent of the one
+    // af_add call made by the foreign binding
+    @Benchmark
+    public void addJni() throws Exception {
+        Array.add(a, b, out);
+        Array.sync();
+    }
+
+    @Benchmark
+    public void addFfm() throws Exception {
+        try (FfmArray r = fa.add(fb, results)) {
+            FfmArray.sync();
+        }
+    }
+
+    @Benchmark
+    public double sumAllJni() throws Exception {
+        return Array.sumAll(a);
+    }
+
+    @Benchmark
+    public double sumAllFfm() throws Exception {
+        return fa.sumAll();
+    }
+
+    @Benchmark
+    public void randuJni() throws Exception {
+        try (Array r = Array.randu(new int[] { size }, Array.FloatType)) {
+            Array.sync();
+        }
+    }
+
+    @Benchmark
+    public void randuFfm() throws Exception {
+        try (FfmArray r = FfmArray.randu(results, new int[] { size }, FfmArray.FloatType)) {
+            FfmArray.sync();
+        }
+    }
+}
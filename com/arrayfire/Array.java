@@ -1,5 +1,32 @@
 package com.arrayfire;
 
+import java.lang.ref.Cleaner;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Concurrency
+//
+// An Array may be shared between threads once it has been safely
+// published. Any number of threads may read it concurrently: use it as
+// an operand, download it, reduce it or evaluate it if it is lazy, in
+// which case exactly one thread runs the evaluation. Methods that
+// change an Array in place, such as copyFrom() and close(), need
+// exclusive access and must not overlap with readers.
+//
+// ArrayFire keeps the active device per thread. setDevice() binds the
+// calling thread only, so a pool of worker threads can each drive their
+// own device without a global lock. The backend is bound the same way,
+// see Backend. ArrayScope is confined to the thread that opened it.
 public class Array implements AutoCloseable {
 
     public static final int FloatType = 0;
@@ -9,19 +36,100 @@ public class Array implements AutoCloseable {
     public static final int BooleanType = 4;
     public static final int IntType = 5;
 
+    // Java has no unsigned or half precision primitives. Those types move
+    // between host and device as the signed primitive of the same width,
+    // holding the same bits: UIntType as int, ByteType (unsigned 8 bit)
+    // as byte, ULongType as long, UShortType as short and HalfType as the
+    // IEEE 754 binary16 bits in a short.
+    public static final int UIntType = 6;
+    public static final int ByteType = 7;
+    public static final int LongType = 8;
+    public static final int ULongType = 9;
+    public static final int ShortType = 10;
+    public static final int UShortType = 11;
+    public static final int HalfType = 12;
+
+    // Operand options of matmul
+    public static final int MatNone = 0;
+    public static final int MatTrans = 1;
+    public static final int MatCTrans = 2;
+
+    // Operators of scan
+    public static final int ScanAdd = 0;
+    public static final int ScanMul = 1;
+    public static final int ScanMin = 2;
+    public static final int ScanMax = 3;
+
+    // Statistics of statsAll
+    public static final int StatSum = 0;
+    public static final int StatMax = 1;
+    public static final int StatMin = 2;
+    public static final int StatMean = 3;
+    public static final int StatVar = 4;
+    public static final int StatStdev = 5;
+    public static final int StatMedian = 6;
+    public static final int StatCount = 7;
+    public static final int StatAnyTrue = 8;
+    public static final int StatAllTrue = 9;
+
     static {
-        System.loadLibrary("af_java");
+        Backend.load();
+    }
+
+    // When set, elementwise operators record an expression instead of
+    // calling into native code. See setLazy().
+    private static volatile boolean lazy = Boolean.getBoolean("arrayfire.lazy");
+
+    // Releases native arrays whose Array became unreachable without
+    // being closed. Explicit close() remains the preferred way.
+    // Native calls are followed by a reachabilityFence on every Array
+    // whose handle they use, so the Cleaner cannot release a handle
+    // while a call is still working on it.
+    private static final Cleaner cleaner = Cleaner.create();
+
+    private native static boolean printInfo();
+    private native static boolean selectDevice(int device);
+    private native static boolean syncDevice();
+
+    // Prints the backend, version and devices of ArrayFire
+    public static void info() throws Exception {
+        if (!printInfo()) throw ArrayFireException.last("Failed to print info");
+    }
+
+    // Device selection, per calling thread
+    public static void setDevice(int device) throws Exception {
+        if (!selectDevice(device)) throw ArrayFireException.last("Failed to select device " + device);
     }
 
-    public native static void info();
+    public native static int  getDevice();
+    public native static int  getDeviceCount();
+
+    // Waits for all queued work on the current device to finish, and
+    // throws the first error it raised
+    public static void sync() throws Exception {
+        if (!syncDevice()) throw ArrayFireException.last("Failed to synchronize device");
+    }
+
+    // Cause of the last failed native call on this thread, see
+    // ArrayFireException
+    native static int    takeErrorCode();
+    native static String lastErrorMessage();
 
     private native static long createEmptyArray(int[] dims, int type);
     private native static long createArrayFromFloat(int[] dims, float[] elems);
     private native static long createArrayFromDouble(int[] dims, double[] elems);
-    private native static long createArrayFromFloatComplex(int[] dims, FloatComplex[] elems);
-    private native static long createArrayFromDoubleComplex(int[] dims, DoubleComplex[] elems);
+    private native static long createArrayFromInterleavedFloat(int[] dims, float[] reIm);
+    private native static long createArrayFromInterleavedDouble(int[] dims, double[] reIm);
+    private native static long createArrayFromSplitFloat(int[] dims, float[] re, float[] im);
+    private native static long createArrayFromSplitDouble(int[] dims, double[] re, double[] im);
     private native static long createArrayFromInt(int[] dims, int[] elems);
     private native static long createArrayFromBoolean(int[] dims, boolean[] elems);
+    private native static long createArrayFromBuffer(int[] dims, Buffer elems, int offset, int type);
+    private native static long createTypedArrayFromByte (int[] dims, byte[]  elems, int type);
+    private native static long createTypedArrayFromShort(int[] dims, short[] elems, int type);
+    private native static long createTypedArrayFromInt  (int[] dims, int[]   elems, int type);
+    private native static long createTypedArrayFromLong (int[] dims, long[]  elems, int type);
+    private native static long cast(long a, int type);
 
     private native static long createRanduArray(int[] dims, int type);
     private native static long createRandnArray(int[] dims, int type);
@@ -29,15 +137,45 @@ public class Array implements AutoCloseable {
 
 
     private native static void destroyArray(long ref);
-    private native static int[] getDims(long ref);
-    private native static int   getType(long ref);
+    native static void destroyArrays(long[] refs, int count);
+    // Fills info with the four dimensions followed by the type
+    private native static boolean getInfo(long ref, int[] info);
 
     private native static float  [] getFloatFromArray(long ref);
     private native static double [] getDoubleFromArray(long ref);
     private native static int    [] getIntFromArray(long ref);
     private native static boolean       [] getBooleanFromArray(long ref);
-    private native static FloatComplex  [] getFloatComplexFromArray(long ref);
-    private native static DoubleComplex [] getDoubleComplexFromArray(long ref);
+    private native static byte   [] getByteFromArray(long ref);
+    private native static short  [] getShortFromArray(long ref);
+    private native static long   [] getLongFromArray(long ref);
+
+    // Complex data as interleaved (re, im) pairs or split planes
+    private native static boolean getInterleavedFloatFromArray(long ref, float[] reIm);
+    private native static boolean getInterleavedDoubleFromArray(long ref, double[] reIm);
+    private native static boolean getSplitFloatFromArray(long ref, float[] re, float[] im);
+    private native static boolean getSplitDoubleFromArray(long ref, double[] re, double[] im);
+
+    // Downloads into caller owned storage, offsets are in elements
+    private native static boolean getFloatRangeFromArray(long ref, float[] dst, int dstOffset, int srcOffset, int length);
+    private native static boolean getDoubleRangeFromArray(long ref, double[] dst, int dstOffset, int srcOffset, int length);
+    private native static boolean getIntRangeFromArray(long ref, int[] dst, int dstOffset, int srcOffset, int length);
+    private native static boolean getBooleanRangeFromArray(long ref, boolean[] dst, int dstOffset, int srcOffset, int length);
+    private native static boolean getByteRangeFromArray(long ref, byte[] dst, int dstOffset, int srcOffset, int length);
+    private native static boolean getShortRangeFromArray(long ref, short[] dst, int dstOffset, int srcOffset, int length);
+    private native static boolean getLongRangeFromArray(long ref, long[] dst, int dstOffset, int srcOffset, int length);
+
+    // Direct buffer transfers, offset is in bytes
+    private native static boolean copyToBuffer(long ref, Buffer dst, int offset, int srcOffset, int length);
+    private native static boolean copyFromBuffer(long ref, Buffer src, int offset);
+
+    // Evaluates a recorded program, see Expr
+    native static long[] evalProgram(int[] code, long[] inputs, double[] scalars, int[] outputs);
+
+    // Memory pool, see MemoryManager
+    native static boolean deviceMemInfo(long[] info);
+    native static boolean deviceGC();
+    native static boolean setMemStepSize(long bytes);
+    native static long getMemStepSize();
 
     private native static long fft  (long a);
     private native static long fft2 (long a);
@@ -47,6 +185,44 @@ public class Array implements AutoCloseable {
     private native static long ifft2(long a);
     private native static long ifft3(long a);
 
+    // Transforms over the first rank dimensions, odims holds one output
+    // size per transformed dimension
+    private native static long    fftNorm   (long a, int rank, boolean inverse, double norm, int[] odims);
+    private native static long    fftR2C    (long a, int rank, double norm, int[] odims);
+    private native static long    fftC2R    (long a, int rank, boolean isOdd, double norm);
+    private native static boolean fftInPlace(long a, int rank, boolean inverse, double norm);
+
+    // FFT plan cache, see FftPlanCache
+    native static boolean setFftPlanCacheSize(int size);
+
+    // Indexing, one subscript per dimension: three ints per Seq in
+    // seqs, and in arrays the handle of an index Array or 0 for a Seq
+    private native static long    index       (long a, int[] seqs, long[] arrays);
+    private native static boolean assignArray (long dst, int[] seqs, long[] arrays, long src);
+    private native static boolean assignScalar(long dst, int[] seqs, long[] arrays, double val);
+
+    // Scans, sorting and sets
+    private native static long   accum       (long a, int dim);
+    private native static long   scan        (long a, int dim, int op, boolean inclusive);
+    private native static long   sort        (long a, int dim, boolean ascending);
+    private native static long[] sortIndex   (long a, int dim, boolean ascending);
+    private native static long[] topk        (long a, int k, int dim, int order);
+    private native static long   where       (long a);
+    private native static long   setUnique   (long a, boolean isSorted);
+    private native static long   setUnion    (long a, long b, boolean isUnique);
+    private native static long   setIntersect(long a, long b, boolean isUnique);
+
+    // Linear algebra
+    private native static long   matmul   (long a, long b, int optLhs, int optRhs);
+    private native static long   dot      (long a, long b);
+    private native static long   transpose(long a, boolean conjugate);
+    private native static long   solve    (long a, long b);
+    private native static long   inverse  (long a);
+    private native static long   cholesky (long a, boolean upper);
+    private native static long[] lu       (long a);
+    private native static long[] qr       (long a);
+    private native static long[] svd      (long a);
+
     // Binary operations
     private native static long add(long a, long b);
     private native static long sub(long a, long b);
@@ -77,15 +253,25 @@ public class Array implements AutoCloseable {
     private native static long abs  (long a);
     private native static long sqrt (long a);
 
-    // Scalar return operations
-    private native static double sumAll(long a);
-    private native static double maxAll(long a);
-    private native static double minAll(long a);
+    // Statistics, whole array results are written to out
+    private native static boolean statsAll(long a, int[] stats, double[] out);
+    private native static boolean imaxAll (long a, double[] out);
+    private native static boolean iminAll (long a, double[] out);
 
     private native static long sum(long a, int dim);
     private native static long max(long a, int dim);
     private native static long min(long a, int dim);
 
+    private native static long[] imax   (long a, int dim);
+    private native static long[] imin   (long a, int dim);
+    private native static long   mean   (long a, int dim);
+    private native static long   var    (long a, int dim, boolean biased);
+    private native static long   stdev  (long a, int dim);
+    private native static long   median (long a, int dim);
+    private native static long   count  (long a, int dim);
+    private native static long   anyTrue(long a, int dim);
+    private native static long   allTrue(long a, int dim);
+
     // Scalar operations
     private native static long addf(long a, float b);
     private native static long subf(long a, float b);
@@ -105,20 +291,318 @@ public class Array implements AutoCloseable {
     private native static long fge (float a, long b);
     private native static long fgt (float a, long b);
 
+    // Typed scalar operations, op is an Expr.typed opcode. dst is used as
+    // in the output parameter forms.
+    private native static long scalarOp    (long dst, int op, long a, double b);
+    private native static long scalarOpLong(long dst, int op, long a, long b);
+
+    // Output parameter forms, write into dst and return it. A dst of 0
+    // gets a newly allocated array.
+    private native static long addOut(long dst, long a, long b);
+    private native static long subOut(long dst, long a, long b);
+    private native static long mulOut(long dst, long a, long b);
+    private native static long divOut(long dst, long a, long b);
+    private native static long leOut (long dst, long a, long b);
+    private native static long ltOut (long dst, long a, long b);
+    private native static long geOut (long dst, long a, long b);
+    private native static long gtOut (long dst, long a, long b);
+    private native static long eqOut (long dst, long a, long b);
+    private native static long neOut (long dst, long a, long b);
+
+    private native static long sinOut  (long dst, long a);
+    private native static long cosOut  (long dst, long a);
+    private native static long tanOut  (long dst, long a);
+    private native static long asinOut (long dst, long a);
+    private native static long acosOut (long dst, long a);
+    private native static long atanOut (long dst, long a);
+    private native static long sinhOut (long dst, long a);
+    private native static long coshOut (long dst, long a);
+    private native static long tanhOut (long dst, long a);
+    private native static long asinhOut(long dst, long a);
+    private native static long acoshOut(long dst, long a);
+    private native static long atanhOut(long dst, long a);
+    private native static long expOut  (long dst, long a);
+    private native static long logOut  (long dst, long a);
+    private native static long absOut  (long dst, long a);
+    private native static long sqrtOut (long dst, long a);
+
+    private native static long addfOut(long dst, long a, float b);
+    private native static long subfOut(long dst, long a, float b);
+    private native static long mulfOut(long dst, long a, float b);
+    private native static long divfOut(long dst, long a, float b);
+    private native static long lefOut (long dst, long a, float b);
+    private native static long ltfOut (long dst, long a, float b);
+    private native static long gefOut (long dst, long a, float b);
+    private native static long gtfOut (long dst, long a, float b);
+    private native static long eqfOut (long dst, long a, float b);
+    private native static long nefOut (long dst, long a, float b);
+    private native static long powOut (long dst, long a, float b);
+
+    // Owns a native af::array. Registered with the Cleaner, so it must
+    // never reference the Array it belongs to.
+    static final class Handle implements Runnable {
+        private long ref;
+        private final Throwable trace;
+        private final long bytes;
+
+        Handle(long ref) {
+            this.ref = ref;
+            if (LeakDetector.isEnabled()) {
+                trace = new Throwable("Array allocated");
+                bytes = byteSize(ref);
+            } else {
+                trace = null;
+                bytes = 0;
+            }
+            LeakDetector.allocated(this);
+        }
+
+        Throwable trace() { return trace; }
+
+        long bytes() { return bytes; }
+
+        // Hands the native handle over to the caller. Returns 0
+        // if it was already released, so it is released only once.
+        synchronized long take(boolean reclaimed) {
+            long r = ref;
+            ref = 0;
+            if (r != 0) LeakDetector.released(this, reclaimed);
+            return r;
+        }
+
+        // Runs either from close() or from the Cleaner thread
+        @Override
+        public void run() {
+            long r = take(true);
+            if (r != 0) destroyArray(r);
+        }
+    }
+
     // Global reference to JVM object
     // to persist between JNI calls
     long ref;
 
+    // Pending expression of a lazy Array, null once evaluated.
+    // Cleared only after ref is set, so a reader that sees null
+    // also sees the handle.
+    volatile Expr expr;
+
+    // Lazy Arrays whose pending expression reads this Array directly,
+    // guarded by this. They are evaluated before anything writes into
+    // this Array in place, so they see the contents they were created
+    // from, as they would in eager mode.
+    private ArrayList<WeakReference<Array>> dependents;
+
+    private Handle handle;
+    private Cleaner.Cleanable cleanable;
+    private boolean scoped;
+
     public Array() {
         ref = 0;
     }
 
+    // Takes ownership of a native handle returned by JNI. Any handle
+    // previously owned by this Array is released. Throws the native
+    // error if the handle is 0, which is how natives report failure, and
+    // throws with the new handle released if it takes memory over the
+    // MemoryManager limit.
+    void set(long ref) throws Exception {
+        set(ref, true);
+    }
+
+    // register is false when storing the result of a lazy Array, which
+    // joined the scope of the thread that created it, not of the thread
+    // that happens to evaluate it
+    void set(long ref, boolean register) throws Exception {
+        release();
+        if (ref == 0) throw ArrayFireException.last(null);
+        this.ref = ref;
+
+        handle = new Handle(ref);
+        cleanable = cleaner.register(this, handle);
+
+        if (register) register();
+
+        if (MemoryManager.isLimited()) MemoryManager.allocated(this);
+    }
+
+    private void release() {
+        long r = detach();
+        if (r != 0) destroyArray(r);
+    }
+
+    // Gives up ownership of the native handle without destroying it,
+    // so the caller can release several handles in one native call.
+    long detach() {
+        ref = 0;
+        meta = null;
+        if (handle == null) return 0;
+
+        long r = handle.take(false);
+        cleanable.clean();
+        handle = null;
+        cleanable = null;
+        return r;
+    }
+
+    // Adds this Array to the innermost scope open on the calling thread
+    void register() {
+        if (!scoped) scoped = ArrayScope.register(this);
+    }
+
+    // Called when this Array leaves the scope it was created in
+    void unscope() {
+        scoped = false;
+    }
+
+    // Lazy evaluation
+    //
+    // With lazy evaluation enabled, the elementwise operators (add, sub,
+    // mul, div, comparisons, unary math and their scalar forms) return
+    // Arrays that only record the operation. The whole expression is
+    // sent to native code in one call when its result is first needed,
+    // either explicitly through eval() or by any other method reading
+    // the Array, such as getFloatArray() or sumAll(). ArrayFire then
+    // fuses the expression into a single kernel where it can.
+    //
+    // Writing into an operand in place, through an output parameter,
+    // an in place operation, assign(), copyFrom() or fftInPlace(), first
+    // evaluates the pending expressions reading it. So lazy results are
+    // the same as eager ones.
+    //
+    // Operands of a pending expression must not be closed before it is
+    // evaluated.
+
+    public static void setLazy(boolean enable) {
+        lazy = enable;
+    }
+
+    public static boolean isLazy() {
+        return lazy;
+    }
+
+    // Records that the pending expression of d reads this Array
+    synchronized void addDependent(Array d) {
+        if (dependents == null) dependents = new ArrayList<WeakReference<Array>>();
+        if (dependents.size() >= 8) {
+            dependents.removeIf(w -> {
+                Array x = w.get();
+                return x == null || x.expr == null;
+            });
+        }
+        dependents.add(new WeakReference<Array>(d));
+    }
+
+    // Evaluates the pending expressions reading this Array. Called
+    // before writing into it in place; those that could not be
+    // evaluated stay recorded.
+    void evalDependents() throws Exception {
+        ArrayList<WeakReference<Array>> pending;
+        synchronized (this) {
+            pending = dependents;
+            dependents = null;
+        }
+        if (pending == null) return;
+
+        for (int i = 0; i < pending.size(); i++) {
+            Array d = pending.get(i).get();
+            if (d == null || d.expr == null) continue;
+            try {
+                Expr.eval(d);
+            } catch (Exception e) {
+                synchronized (this) {
+                    if (dependents == null) dependents = new ArrayList<WeakReference<Array>>();
+                    dependents.addAll(pending.subList(i, pending.size()));
+                }
+                throw e;
+            }
+        }
+    }
+
+    // Evaluates a pending expression. Does nothing if there is none.
+    public Array eval() throws Exception {
+        if (expr != null) Expr.eval(this);
+        return this;
+    }
+
+    // Native handle for passing to JNI, evaluated first if needed.
+    // Never 0, an Array that was closed or never filled fails here.
+    long handle() throws Exception {
+        if (expr != null) Expr.eval(this);
+        if (ref == 0) {
+            throw ArrayFireException.create(ArrayFireException.InvalidArray, "Array holds no data");
+        }
+        return ref;
+    }
+
+    // Same as handle() for callers that cannot throw checked exceptions
+    private long evaluatedHandle() {
+        try {
+            return handle();
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private static long byteSize(long ref) {
+        try {
+            int[] info = new int[5];
+            if (!getInfo(ref, info)) return 0;
+            return (long)totalSize(Arrays.copyOf(info, 4)) * typeSize(info[4]);
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    // Shape and type of a native array. Read once per handle and kept
+    // until the handle or its contents are replaced, so checks on hot
+    // paths do not cross JNI. Immutable, so it can be shared between
+    // threads without locking.
+    private static final class Meta {
+        final int[] dims;
+        final int type;
+        final int elements;
+
+        Meta(int[] info) {
+            dims = Arrays.copyOf(info, 4);
+            type = info[4];
+            elements = dims[0] * dims[1] * dims[2] * dims[3];
+        }
+    }
+
+    private Meta meta;
+
+    private Meta meta() {
+        Meta m = meta;
+        if (m != null) return m;
+
+        long r = evaluatedHandle();
+
+        int[] info = new int[5];
+        boolean ok = getInfo(r, info);
+        Reference.reachabilityFence(this);
+        if (!ok) throw new IllegalStateException("Failed to read Array dimensions");
+
+        m = new Meta(info);
+        meta = m;
+        return m;
+    }
+
+    // All four dimensions, trailing ones are 1
     public int[] dims() {
-        return getDims(ref);
+        return meta().dims.clone();
+    }
+
+    public int dims(int i) {
+        return meta().dims[i];
+    }
+
+    public int elements() {
+        return meta().elements;
     }
 
     public int type() {
-        return getType(ref);
+        return meta().type;
     }
 
     public String typeName(int ty) throws Exception {
@@ -128,15 +612,22 @@ public class Array implements AutoCloseable {
         if (ty == BooleanType) return "boolean";
         if (ty == FloatComplexType) return "FloatComplex";
         if (ty == DoubleComplexType) return "DoubleComplex";
-        throw new Exception("Unknown type");
+        if (ty == UIntType) return "uint";
+        if (ty == ByteType) return "byte";
+        if (ty == LongType) return "long";
+        if (ty == ULongType) return "ulong";
+        if (ty == ShortType) return "short";
+        if (ty == UShortType) return "ushort";
+        if (ty == HalfType) return "half";
+        throw ArrayFireException.create(ArrayFireException.InvalidType, "Unknown type");
     }
 
-    private static int[] dim4(int[] dims) throws Exception {
+    static int[] dim4(int[] dims) throws Exception {
 
         if( dims == null ) {
-            throw new Exception("Null dimensions object provided");
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null dimensions object provided");
         } else if ( dims.length > 4 ) {
-            throw new Exception("ArrayFire supports up to 4 dimensions only");
+            throw ArrayFireException.create(ArrayFireException.InvalidSize, "ArrayFire supports up to 4 dimensions only");
         }
 
         int[] adims;
@@ -146,17 +637,106 @@ public class Array implements AutoCloseable {
         return adims;
     }
 
-    private void assertType(int ty) throws Exception {
+    // Passes if the Array has any of the types
+    private void assertType(int... tys) throws Exception {
 
         int myType = type();
 
-        if( myType != ty ) {
-            String str = "Type mismatch: ";
-            str = str + "Requested " + typeName(ty);
-            str = str + ". Found " + typeName(myType);
-            throw new Exception(str);
+        for (int ty : tys) if (myType == ty) return;
+
+        String str = "Type mismatch: ";
+        str = str + "Requested " + typeName(tys[0]);
+        for (int i = 1; i < tys.length; i++) str = str + " or " + typeName(tys[i]);
+        str = str + ". Found " + typeName(myType);
+        throw ArrayFireException.create(ArrayFireException.InvalidType, str);
+    }
+
+    private static int totalSize(int[] adims) {
+        int total_size = 1;
+        for (int i = 0; i < adims.length; i++) total_size *= adims[i];
+        return total_size;
+    }
+
+    private static int typeSize(int ty) throws Exception {
+        if (ty == FloatType) return 4;
+        if (ty == DoubleType) return 8;
+        if (ty == IntType) return 4;
+        if (ty == BooleanType) return 1;
+        if (ty == FloatComplexType) return 8;
+        if (ty == DoubleComplexType) return 16;
+        if (ty == UIntType) return 4;
+        if (ty == ByteType) return 1;
+        if (ty == LongType) return 8;
+        if (ty == ULongType) return 8;
+        if (ty == ShortType) return 2;
+        if (ty == UShortType) return 2;
+        if (ty == HalfType) return 2;
+        throw ArrayFireException.create(ArrayFireException.InvalidType, "Unknown type");
+    }
+
+    // Element width of a buffer in bytes. Typed buffers are only
+    // accepted for element types with the same primitive layout,
+    // ByteBuffer is treated as raw storage for any type.
+    private static int bufferElementSize(Buffer buf, int ty) throws Exception {
+        if (buf instanceof ByteBuffer) return 1;
+
+        ByteOrder order = null;
+        int size = 0;
+        boolean match = false;
+
+        if (buf instanceof FloatBuffer) {
+            order = ((FloatBuffer)buf).order();
+            size  = 4;
+            match = ty == FloatType || ty == FloatComplexType;
+        } else if (buf instanceof DoubleBuffer) {
+            order = ((DoubleBuffer)buf).order();
+            size  = 8;
+            match = ty == DoubleType || ty == DoubleComplexType;
+        } else if (buf instanceof IntBuffer) {
+            order = ((IntBuffer)buf).order();
+            size  = 4;
+            match = ty == IntType || ty == UIntType;
+        } else if (buf instanceof ShortBuffer) {
+            order = ((ShortBuffer)buf).order();
+            size  = 2;
+            match = ty == ShortType || ty == UShortType || ty == HalfType;
+        } else if (buf instanceof LongBuffer) {
+            order = ((LongBuffer)buf).order();
+            size  = 8;
+            match = ty == LongType || ty == ULongType;
+        }
+
+        if (!match) {
+            throw ArrayFireException.create(ArrayFireException.InvalidType, "Buffer does not match element type");
+        }
+        if (order != ByteOrder.nativeOrder()) {
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Buffer must use native byte order");
+        }
+        return size;
+    }
+
+    // Validates a direct buffer against the number of elements
+    // the native side will touch and returns the byte offset of
+    // its current position. The position is not advanced.
+    private static int directOffset(Buffer buf, int elements, int ty) throws Exception {
+        if (buf == null) {
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null buffer object provided");
+        }
+        if (!buf.isDirect()) {
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Only direct buffers are supported");
+        }
+
+        int esize = bufferElementSize(buf, ty);
+        long needed = (long)elements * typeSize(ty);
+
+        if ((long)buf.remaining() * esize < needed) {
+            throw ArrayFireException.create(ArrayFireException.InvalidSize, "Buffer too small for array");
         }
-        return;
+        long offset = (long)buf.position() * esize;
+        if (offset > Integer.MAX_VALUE) {
+            throw ArrayFireException.create(ArrayFireException.InvalidSize, "Buffer position too large");
+        }
+        return (int)offset;
     }
 
     // Below version of constructor
@@ -165,14 +745,16 @@ public class Array implements AutoCloseable {
 
     public Array(int[] dims, int type) throws Exception {
         int[] adims = dim4(dims);
-        ref = createEmptyArray(adims, type);
-        if (ref == 0) throw new Exception("Failed to create Array");
+        long t0 = Metrics.start();
+        set(createEmptyArray(adims, type));
+        Metrics.stop("createEmptyArray", t0);
     }
 
     public Array(int[] dims) throws Exception {
         int[] adims = dim4(dims);
-        ref = createEmptyArray(adims, FloatType);
-        if (ref == 0) throw new Exception("Failed to create Array");
+        long t0 = Metrics.start();
+        set(createEmptyArray(adims, FloatType));
+        Metrics.stop("createEmptyArray", t0);
     }
 
     public Array(int[] dims, float[] elems) throws Exception {
@@ -182,15 +764,16 @@ public class Array implements AutoCloseable {
         for (int i = 0; i < adims.length; i++) total_size *= adims[i];
 
         if(elems == null) {
-            throw new Exception("Null elems object provided");
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null elems object provided");
         }
 
         if( elems.length > total_size || elems.length < total_size ) {
-            throw new Exception("Mismatching dims and array size");
+            throw ArrayFireException.create(ArrayFireException.InvalidSize, "Mismatching dims and array size");
         }
 
-        ref = createArrayFromFloat(adims, elems);
-        if (ref == 0) throw new Exception("Failed to create Array");
+        long t0 = Metrics.start();
+        set(createArrayFromFloat(adims, elems));
+        Metrics.stop("createArrayFromFloat", t0, elems.length * 4L);
     }
 
     public Array(int[] dims, double[] elems) throws Exception {
@@ -200,15 +783,16 @@ public class Array implements AutoCloseable {
         for (int i = 0; i < adims.length; i++) total_size *= adims[i];
 
         if(elems == null) {
-            throw new Exception("Null elems object provided");
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null elems object provided");
         }
 
         if( elems.length > total_size || elems.length < total_size ) {
-            throw new Exception("Mismatching dims and array size");
+            throw ArrayFireException.create(ArrayFireException.InvalidSize, "Mismatching dims and array size");
         }
 
-        ref = createArrayFromDouble(adims, elems);
-        if (ref == 0) throw new Exception("Failed to create Array");
+        long t0 = Metrics.start();
+        set(createArrayFromDouble(adims, elems));
+        Metrics.stop("createArrayFromDouble", t0, elems.length * 8L);
     }
 
     public Array(int[] dims, int[] elems) throws Exception {
@@ -218,17 +802,87 @@ public class Array implements AutoCloseable {
         for (int i = 0; i < adims.length; i++) total_size *= adims[i];
 
         if(elems == null) {
-            throw new Exception("Null elems object provided");
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null elems object provided");
         }
 
         if( elems.length > total_size || elems.length < total_size ) {
-            throw new Exception("Mismatching dims and array size");
+            throw ArrayFireException.create(ArrayFireException.InvalidSize, "Mismatching dims and array size");
         }
 
-        ref = createArrayFromInt(adims, elems);
-        if (ref == 0) throw new Exception("Failed to create Array");
+        long t0 = Metrics.start();
+        set(createArrayFromInt(adims, elems));
+        Metrics.stop("createArrayFromInt", t0, elems.length * 4L);
+    }
+
+    // The constructors below upload the elements as they are, without
+    // widening them on the host. Use cast to widen them on the device.
+    // The forms taking a type accept any type of the primitive's width.
+
+    public Array(int[] dims, byte[] elems) throws Exception {
+        this(dims, elems, ByteType);
+    }
+
+    public Array(int[] dims, byte[] elems, int type) throws Exception {
+        int[] adims = dim4(dims);
+        checkTyped(adims, elems == null ? -1 : elems.length, type, 1);
+
+        long t0 = Metrics.start();
+        set(createTypedArrayFromByte(adims, elems, type));
+        Metrics.stop("createTypedArrayFromByte", t0, elems.length);
+    }
+
+    public Array(int[] dims, short[] elems) throws Exception {
+        this(dims, elems, ShortType);
+    }
+
+    public Array(int[] dims, short[] elems, int type) throws Exception {
+        int[] adims = dim4(dims);
+        checkTyped(adims, elems == null ? -1 : elems.length, type, 2);
+
+        long t0 = Metrics.start();
+        set(createTypedArrayFromShort(adims, elems, type));
+        Metrics.stop("createTypedArrayFromShort", t0, elems.length * 2L);
     }
 
+    public Array(int[] dims, int[] elems, int type) throws Exception {
+        int[] adims = dim4(dims);
+        checkTyped(adims, elems == null ? -1 : elems.length, type, 4);
+
+        long t0 = Metrics.start();
+        set(createTypedArrayFromInt(adims, elems, type));
+        Metrics.stop("createTypedArrayFromInt", t0, elems.length * 4L);
+    }
+
+    public Array(int[] dims, long[] elems) throws Exception {
+        this(dims, elems, LongType);
+    }
+
+    public Array(int[] dims, long[] elems, int type) throws Exception {
+        int[] adims = dim4(dims);
+        checkTyped(adims, elems == null ? -1 : elems.length, type, 8);
+
+        long t0 = Metrics.start();
+        set(createTypedArrayFromLong(adims, elems, type));
+        Metrics.stop("createTypedArrayFromLong", t0, elems.length * 8L);
+    }
+
+    // length is -1 for a null primitive array
+    private static void checkTyped(int[] adims, int length, int type, int width) throws Exception {
+        if (length < 0) {
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null elems object provided");
+        }
+        if (length != totalSize(adims)) {
+            throw ArrayFireException.create(ArrayFireException.InvalidSize, "Mismatching dims and array size");
+        }
+        if (type == FloatComplexType || type == DoubleComplexType || typeSize(type) != width) {
+            throw ArrayFireException.create(ArrayFireException.InvalidType, "Element type " + type + " does not fit " + (8 * width) + " bit elements");
+        }
+    }
+
+    // FloatComplex and DoubleComplex are a convenience view only,
+    // the data is packed into interleaved primitives before crossing
+    // into native code.
+
     public Array(int[] dims, FloatComplex[] elems) throws Exception {
         int[] adims = dim4(dims);
 
@@ -236,15 +890,22 @@ public class Array implements AutoCloseable {
         for (int i = 0; i < adims.length; i++) total_size *= adims[i];
 
         if(elems == null) {
-            throw new Exception("Null elems object provided");
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null elems object provided");
         }
 
         if( elems.length > total_size || elems.length < total_size ) {
-            throw new Exception("Mismatching dims and array size");
+            throw ArrayFireException.create(ArrayFireException.InvalidSize, "Mismatching dims and array size");
         }
 
-        ref = createArrayFromFloatComplex(adims, elems);
-        if (ref == 0) throw new Exception("Failed to create Array");
+        float[] reIm = new float[2 * total_size];
+        for (int i = 0; i < total_size; i++) {
+            reIm[2 * i    ] = elems[i].real();
+            reIm[2 * i + 1] = elems[i].imag();
+        }
+
+        long t0 = Metrics.start();
+        set(createArrayFromInterleavedFloat(adims, reIm));
+        Metrics.stop("createArrayFromInterleavedFloat", t0, reIm.length * 4L);
     }
 
     public Array(int[] dims, DoubleComplex[] elems) throws Exception {
@@ -254,407 +915,3023 @@ public class Array implements AutoCloseable {
         for (int i = 0; i < adims.length; i++) total_size *= adims[i];
 
         if(elems == null) {
-            throw new Exception("Null elems object provided");
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null elems object provided");
         }
 
         if( elems.length > total_size || elems.length < total_size ) {
-            throw new Exception("Mismatching dims and array size");
+            throw ArrayFireException.create(ArrayFireException.InvalidSize, "Mismatching dims and array size");
+        }
+
+        double[] reIm = new double[2 * total_size];
+        for (int i = 0; i < total_size; i++) {
+            reIm[2 * i    ] = elems[i].real();
+            reIm[2 * i + 1] = elems[i].imag();
         }
 
-        ref = createArrayFromDoubleComplex(adims, elems);
-        if (ref == 0) throw new Exception("Failed to create Array");
+        long t0 = Metrics.start();
+        set(createArrayFromInterleavedDouble(adims, reIm));
+        Metrics.stop("createArrayFromInterleavedDouble", t0, reIm.length * 8L);
+    }
+
+    // Buffer based constructors read straight from the memory
+    // backing a direct buffer, starting at its current position.
+
+    public Array(int[] dims, FloatBuffer elems) throws Exception {
+        this(dims, elems, FloatType);
+    }
+
+    public Array(int[] dims, DoubleBuffer elems) throws Exception {
+        this(dims, elems, DoubleType);
+    }
+
+    public Array(int[] dims, IntBuffer elems) throws Exception {
+        this(dims, elems, IntType);
+    }
+
+    public Array(int[] dims, ShortBuffer elems) throws Exception {
+        this(dims, elems, ShortType);
+    }
+
+    public Array(int[] dims, LongBuffer elems) throws Exception {
+        this(dims, elems, LongType);
+    }
+
+    public Array(int[] dims, ByteBuffer elems, int type) throws Exception {
+        this(dims, (Buffer)elems, type);
+    }
+
+    private Array(int[] dims, Buffer elems, int type) throws Exception {
+        int[] adims = dim4(dims);
+        int offset = directOffset(elems, totalSize(adims), type);
+
+        long t0 = Metrics.start();
+        set(createArrayFromBuffer(adims, elems, offset, type));
+        Metrics.stop("createArrayFromBuffer", t0, totalSize(adims) * (long)typeSize(type));
     }
 
     public float[] getFloatArray() throws Exception {
         assertType(FloatType);
-        return getFloatFromArray(ref);
+        long t0 = Metrics.start();
+        float[] res = getFloatFromArray(handle());
+        Reference.reachabilityFence(this);
+        if (res == null) throw ArrayFireException.last("Failed to copy Array to host");
+        Metrics.stop("getFloatArray", t0, res.length * 4L);
+        return res;
     }
 
     public double[] getDoubleArray() throws Exception {
         assertType(DoubleType);
-        return getDoubleFromArray(ref);
+        long t0 = Metrics.start();
+        double[] res = getDoubleFromArray(handle());
+        Reference.reachabilityFence(this);
+        if (res == null) throw ArrayFireException.last("Failed to copy Array to host");
+        Metrics.stop("getDoubleArray", t0, res.length * 8L);
+        return res;
     }
 
     public FloatComplex[] getFloatComplexArray() throws Exception {
-        assertType(FloatComplexType);
-        return getFloatComplexFromArray(ref);
+        float[] reIm = getInterleavedFloat();
+        FloatComplex[] res = new FloatComplex[reIm.length / 2];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = new FloatComplex(reIm[2 * i], reIm[2 * i + 1]);
+        }
+        return res;
     }
 
     public DoubleComplex[] getDoubleComplexArray() throws Exception {
-        assertType(DoubleComplexType);
-        return getDoubleComplexFromArray(ref);
+        double[] reIm = getInterleavedDouble();
+        DoubleComplex[] res = new DoubleComplex[reIm.length / 2];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = new DoubleComplex(reIm[2 * i], reIm[2 * i + 1]);
+        }
+        return res;
     }
 
+    // Also returns the bits of a UIntType Array
     public int[] getIntArray() throws Exception {
-        assertType(IntType);
-        return getIntFromArray(ref);
+        assertType(IntType, UIntType);
+        long t0 = Metrics.start();
+        int[] res = getIntFromArray(handle());
+        Reference.reachabilityFence(this);
+        if (res == null) throw ArrayFireException.last("Failed to copy Array to host");
+        Metrics.stop("getIntArray", t0, res.length * 4L);
+        return res;
+    }
+
+    public byte[] getByteArray() throws Exception {
+        assertType(ByteType);
+        long t0 = Metrics.start();
+        byte[] res = getByteFromArray(handle());
+        Reference.reachabilityFence(this);
+        if (res == null) throw ArrayFireException.last("Failed to copy Array to host");
+        Metrics.stop("getByteArray", t0, res.length);
+        return res;
+    }
+
+    // Also returns the bits of UShortType and HalfType Arrays
+    public short[] getShortArray() throws Exception {
+        assertType(ShortType, UShortType, HalfType);
+        long t0 = Metrics.start();
+        short[] res = getShortFromArray(handle());
+        Reference.reachabilityFence(this);
+        if (res == null) throw ArrayFireException.last("Failed to copy Array to host");
+        Metrics.stop("getShortArray", t0, res.length * 2L);
+        return res;
+    }
+
+    // Also returns the bits of a ULongType Array
+    public long[] getLongArray() throws Exception {
+        assertType(LongType, ULongType);
+        long t0 = Metrics.start();
+        long[] res = getLongFromArray(handle());
+        Reference.reachabilityFence(this);
+        if (res == null) throw ArrayFireException.last("Failed to copy Array to host");
+        Metrics.stop("getLongArray", t0, res.length * 8L);
+        return res;
     }
 
     public boolean[] getBooleanArray() throws Exception {
         assertType(BooleanType);
-        return getBooleanFromArray(ref);
+        long t0 = Metrics.start();
+        boolean[] res = getBooleanFromArray(handle());
+        Reference.reachabilityFence(this);
+        if (res == null) throw ArrayFireException.last("Failed to copy Array to host");
+        Metrics.stop("getBooleanArray", t0, res.length);
+        return res;
     }
 
-    // Binary operations
+    // Complex arrays as primitives. Interleaved data holds the real
+    // and imaginary part of each element next to each other, split
+    // data keeps them in two separate arrays of the same length.
 
-    public static Array randu(int[] dims, int type) throws Exception {
+    public static Array fromInterleaved(int[] dims, float[] reIm) throws Exception {
         int[] adims = dim4(dims);
-        long ref = createRanduArray(adims, type);
-        if (ref == 0) throw new Exception("Failed to create Array");
 
-        Array ret_val = new Array();
-        ret_val.ref = ref;
-        return ret_val;
-    }
+        if (reIm == null) {
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null elems object provided");
+        }
+        if (reIm.length != 2 * totalSize(adims)) {
+            throw ArrayFireException.create(ArrayFireException.InvalidSize, "Mismatching dims and array size");
+        }
 
-    public static Array randn(int[] dims, int type) throws Exception {
-        int[] adims = dim4(dims);
-        long ref = createRandnArray(adims, type);
-        if (ref == 0) throw new Exception("Failed to create Array");
+        long t0 = Metrics.start();
+        long ref = createArrayFromInterleavedFloat(adims, reIm);
+        if (ref == 0) throw ArrayFireException.last("Failed to create Array");
+        Metrics.stop("fromInterleaved", t0, reIm.length * 4L);
 
         Array ret_val = new Array();
-        ret_val.ref = ref;
+        ret_val.set(ref);
         return ret_val;
     }
 
-    public static Array constant(double val, int[] dims, int type) throws Exception {
+    public static Array fromInterleaved(int[] dims, double[] reIm) throws Exception {
         int[] adims = dim4(dims);
-        long ref = createConstantsArray(val, adims, type);
-        if (ref == 0) throw new Exception("Failed to create Array");
 
-        Array ret_val = new Array();
-        ret_val.ref = ref;
-        return ret_val;
-    }
+        if (reIm == null) {
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null elems object provided");
+        }
+        if (reIm.length != 2 * totalSize(adims)) {
+            throw ArrayFireException.create(ArrayFireException.InvalidSize, "Mismatching dims and array size");
+        }
 
-    public static Array add(Array a, Array b) throws Exception {
-        Array ret_val = new Array();
-        ret_val.ref = add(a.ref,b.ref);
-        return ret_val;
-    }
+        long t0 = Metrics.start();
+        long ref = createArrayFromInterleavedDouble(adims, reIm);
+        if (ref == 0) throw ArrayFireException.last("Failed to create Array");
+        Metrics.stop("fromInterleaved", t0, reIm.length * 8L);
 
-    public static Array sub(Array a, Array b) throws Exception {
         Array ret_val = new Array();
-        ret_val.ref = sub(a.ref,b.ref);
+        ret_val.set(ref);
         return ret_val;
     }
 
-    public static Array mul(Array a, Array b) throws Exception {
-        Array ret_val = new Array();
-        ret_val.ref = mul(a.ref,b.ref);
-        return ret_val;
+    public static Array fromInterleaved(int[] dims, FloatBuffer reIm) throws Exception {
+        return new Array(dims, reIm, FloatComplexType);
     }
 
-    public static Array div(Array a, Array b) throws Exception {
-        Array ret_val = new Array();
-        ret_val.ref = div(a.ref,b.ref);
-        return ret_val;
+    public static Array fromInterleaved(int[] dims, DoubleBuffer reIm) throws Exception {
+        return new Array(dims, reIm, DoubleComplexType);
     }
 
-    public static Array le(Array a, Array b) throws Exception {
+    public static Array fromSplit(int[] dims, float[] re, float[] im) throws Exception {
+        int[] adims = dim4(dims);
+
+        if (re == null || im == null) {
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null elems object provided");
+        }
+        if (re.length != totalSize(adims) || im.length != re.length) {
+            throw ArrayFireException.create(ArrayFireException.InvalidSize, "Mismatching dims and array size");
+        }
+
+        long t0 = Metrics.start();
+        long ref = createArrayFromSplitFloat(adims, re, im);
+        if (ref == 0) throw ArrayFireException.last("Failed to create Array");
+        Metrics.stop("fromSplit", t0, 2L * re.length * 4);
+
         Array ret_val = new Array();
-        ret_val.ref = le(a.ref,b.ref);
+        ret_val.set(ref);
         return ret_val;
     }
 
-    public static Array lt(Array a, Array b) throws Exception {
+    public static Array fromSplit(int[] dims, double[] re, double[] im) throws Exception {
+        int[] adims = dim4(dims);
+
+        if (re == null || im == null) {
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null elems object provided");
+        }
+        if (re.length != totalSize(adims) || im.length != re.length) {
+            throw ArrayFireException.create(ArrayFireException.InvalidSize, "Mismatching dims and array size");
+        }
+
+        long t0 = Metrics.start();
+        long ref = createArrayFromSplitDouble(adims, re, im);
+        if (ref == 0) throw ArrayFireException.last("Failed to create Array");
+        Metrics.stop("fromSplit", t0, 2L * re.length * 8);
+
         Array ret_val = new Array();
-        ret_val.ref = lt(a.ref,b.ref);
+        ret_val.set(ref);
         return ret_val;
     }
 
-    public static Array ge(Array a, Array b) throws Exception {
-        Array ret_val = new Array();
-        ret_val.ref = ge(a.ref,b.ref);
-        return ret_val;
+    public float[] getInterleavedFloat() throws Exception {
+        return getInterleavedFloat(new float[2 * elements()]);
     }
 
-    public static Array gt(Array a, Array b) throws Exception {
-        Array ret_val = new Array();
-        ret_val.ref = gt(a.ref,b.ref);
-        return ret_val;
+    public float[] getInterleavedFloat(float[] reIm) throws Exception {
+        assertType(FloatComplexType);
+        if (reIm == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null destination provided");
+        int total_size = elements();
+        if (reIm.length < 2L * total_size) {
+            throw ArrayFireException.create(ArrayFireException.InvalidSize, "Destination too small for range");
+        }
+
+        long t0 = Metrics.start();
+        boolean ok = getInterleavedFloatFromArray(handle(), reIm);
+        Reference.reachabilityFence(this);
+        if (!ok) {
+            throw ArrayFireException.last("Failed to copy Array to host");
+        }
+        Metrics.stop("getInterleavedFloat", t0, 2L * total_size * 4);
+        return reIm;
     }
 
-    public static Array eq(Array a, Array b) throws Exception {
-        Array ret_val = new Array();
-        ret_val.ref = eq(a.ref,b.ref);
-        return ret_val;
+    public double[] getInterleavedDouble() throws Exception {
+        return getInterleavedDouble(new double[2 * elements()]);
     }
 
-    public static Array ne(Array a, Array b) throws Exception {
-        Array ret_val = new Array();
-        ret_val.ref = ne(a.ref,b.ref);
-        return ret_val;
+    public double[] getInterleavedDouble(double[] reIm) throws Exception {
+        assertType(DoubleComplexType);
+        if (reIm == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null destination provided");
+        int total_size = elements();
+        if (reIm.length < 2L * total_size) {
+            throw ArrayFireException.create(ArrayFireException.InvalidSize, "Destination too small for range");
+        }
+
+        long t0 = Metrics.start();
+        boolean ok = getInterleavedDoubleFromArray(handle(), reIm);
+        Reference.reachabilityFence(this);
+        if (!ok) {
+            throw ArrayFireException.last("Failed to copy Array to host");
+        }
+        Metrics.stop("getInterleavedDouble", t0, 2L * total_size * 8);
+        return reIm;
     }
 
-    // Unary operations
-    public static Array sin(Array a) throws Exception {
-        Array ret_val = new Array();
-        ret_val.ref = sin(a.ref);
-        return ret_val;
+    public void getSplitFloat(float[] re, float[] im) throws Exception {
+        assertType(FloatComplexType);
+        if (re == null || im == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null destination provided");
+        int total_size = elements();
+        if (re.length < total_size || im.length < total_size) {
+            throw ArrayFireException.create(ArrayFireException.InvalidSize, "Destination too small for range");
+        }
+
+        long t0 = Metrics.start();
+        boolean ok = getSplitFloatFromArray(handle(), re, im);
+        Reference.reachabilityFence(this);
+        if (!ok) {
+            throw ArrayFireException.last("Failed to copy Array to host");
+        }
+        Metrics.stop("getSplitFloat", t0, 2L * total_size * 4);
     }
 
-    public static Array cos(Array a) throws Exception {
-        Array ret_val = new Array();
-        ret_val.ref = cos(a.ref);
-        return ret_val;
+    public void getSplitDouble(double[] re, double[] im) throws Exception {
+        assertType(DoubleComplexType);
+        if (re == null || im == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null destination provided");
+        int total_size = elements();
+        if (re.length < total_size || im.length < total_size) {
+            throw ArrayFireException.create(ArrayFireException.InvalidSize, "Destination too small for range");
+        }
+
+        long t0 = Metrics.start();
+        boolean ok = getSplitDoubleFromArray(handle(), re, im);
+        Reference.reachabilityFence(this);
+        if (!ok) {
+            throw ArrayFireException.last("Failed to copy Array to host");
+        }
+        Metrics.stop("getSplitDouble", t0, 2L * total_size * 8);
     }
 
-    public static Array tan(Array a) throws Exception {
-        Array ret_val = new Array();
-        ret_val.ref = tan(a.ref);
-        return ret_val;
+    // Checks a range of elements to download against both the
+    // destination capacity and the number of elements in the Array
+    private void checkRange(int capacity, int dstOffset, int srcOffset, int length) throws Exception {
+        if (dstOffset < 0 || srcOffset < 0 || length < 0) {
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Negative offset or length");
+        }
+        if (length > capacity - dstOffset) {
+            throw ArrayFireException.create(ArrayFireException.InvalidSize, "Destination too small for range");
+        }
+        if (length > elements() - srcOffset) {
+            throw ArrayFireException.create(ArrayFireException.InvalidSize, "Range exceeds number of elements");
+        }
     }
 
-    public static Array asin(Array a) throws Exception {
-        Array ret_val = new Array();
-        ret_val.ref = asin(a.ref);
-        return ret_val;
+    // The overloads below write into caller owned arrays instead of
+    // allocating a new one, so a result of the same shape can be
+    // pulled back repeatedly without creating garbage.
+
+    public float[] getFloatArray(float[] dst) throws Exception {
+        if (dst == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null destination provided");
+        return getFloatArray(dst, 0, 0, elements());
     }
 
-    public static Array acos(Array a) throws Exception {
-        Array ret_val = new Array();
-        ret_val.ref = acos(a.ref);
-        return ret_val;
+    public float[] getFloatArray(float[] dst, int dstOffset, int srcOffset, int length) throws Exception {
+        assertType(FloatType);
+        if (dst == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null destination provided");
+        checkRange(dst.length, dstOffset, srcOffset, length);
+        if (length == 0) return dst;
+
+        long t0 = Metrics.start();
+        boolean ok = getFloatRangeFromArray(handle(), dst, dstOffset, srcOffset, length);
+        Reference.reachabilityFence(this);
+        if (!ok) {
+            throw ArrayFireException.last("Failed to copy Array to host");
+        }
+        Metrics.stop("getFloatArray", t0, length * 4L);
+        return dst;
     }
 
-    public static Array atan(Array a) throws Exception {
-        Array ret_val = new Array();
-        ret_val.ref = atan(a.ref);
-        return ret_val;
+    public double[] getDoubleArray(double[] dst) throws Exception {
+        if (dst == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null destination provided");
+        return getDoubleArray(dst, 0, 0, elements());
     }
 
-    public static Array sinh(Array a) throws Exception {
-        Array ret_val = new Array();
-        ret_val.ref = sinh(a.ref);
-        return ret_val;
+    public double[] getDoubleArray(double[] dst, int dstOffset, int srcOffset, int length) throws Exception {
+        assertType(DoubleType);
+        if (dst == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null destination provided");
+        checkRange(dst.length, dstOffset, srcOffset, length);
+        if (length == 0) return dst;
+
+        long t0 = Metrics.start();
+        boolean ok = getDoubleRangeFromArray(handle(), dst, dstOffset, srcOffset, length);
+        Reference.reachabilityFence(this);
+        if (!ok) {
+            throw ArrayFireException.last("Failed to copy Array to host");
+        }
+        Metrics.stop("getDoubleArray", t0, length * 8L);
+        return dst;
     }
 
-    public static Array cosh(Array a) throws Exception {
-        Array ret_val = new Array();
-        ret_val.ref = cosh(a.ref);
-        return ret_val;
+    public int[] getIntArray(int[] dst) throws Exception {
+        if (dst == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null destination provided");
+        return getIntArray(dst, 0, 0, elements());
     }
 
-    public static Array tanh(Array a) throws Exception {
+    public int[] getIntArray(int[] dst, int dstOffset, int srcOffset, int length) throws Exception {
+        assertType(IntType, UIntType);
+        if (dst == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null destination provided");
+        checkRange(dst.length, dstOffset, srcOffset, length);
+        if (length == 0) return dst;
+
+        long t0 = Metrics.start();
+        boolean ok = getIntRangeFromArray(handle(), dst, dstOffset, srcOffset, length);
+        Reference.reachabilityFence(this);
+        if (!ok) {
+            throw ArrayFireException.last("Failed to copy Array to host");
+        }
+        Metrics.stop("getIntArray", t0, length * 4L);
+        return dst;
+    }
+
+    public boolean[] getBooleanArray(boolean[] dst) throws Exception {
+        if (dst == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null destination provided");
+        return getBooleanArray(dst, 0, 0, elements());
+    }
+
+    public boolean[] getBooleanArray(boolean[] dst, int dstOffset, int srcOffset, int length) throws Exception {
+        assertType(BooleanType);
+        if (dst == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null destination provided");
+        checkRange(dst.length, dstOffset, srcOffset, length);
+        if (length == 0) return dst;
+
+        long t0 = Metrics.start();
+        boolean ok = getBooleanRangeFromArray(handle(), dst, dstOffset, srcOffset, length);
+        Reference.reachabilityFence(this);
+        if (!ok) {
+            throw ArrayFireException.last("Failed to copy Array to host");
+        }
+        Metrics.stop("getBooleanArray", t0, length);
+        return dst;
+    }
+
+    public byte[] getByteArray(byte[] dst) throws Exception {
+        if (dst == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null destination provided");
+        return getByteArray(dst, 0, 0, elements());
+    }
+
+    public byte[] getByteArray(byte[] dst, int dstOffset, int srcOffset, int length) throws Exception {
+        assertType(ByteType);
+        if (dst == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null destination provided");
+        checkRange(dst.length, dstOffset, srcOffset, length);
+        if (length == 0) return dst;
+
+        long t0 = Metrics.start();
+        boolean ok = getByteRangeFromArray(handle(), dst, dstOffset, srcOffset, length);
+        Reference.reachabilityFence(this);
+        if (!ok) {
+            throw ArrayFireException.last("Failed to copy Array to host");
+        }
+        Metrics.stop("getByteArray", t0, length);
+        return dst;
+    }
+
+    public short[] getShortArray(short[] dst) throws Exception {
+        if (dst == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null destination provided");
+        return getShortArray(dst, 0, 0, elements());
+    }
+
+    public short[] getShortArray(short[] dst, int dstOffset, int srcOffset, int length) throws Exception {
+        assertType(ShortType, UShortType, HalfType);
+        if (dst == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null destination provided");
+        checkRange(dst.length, dstOffset, srcOffset, length);
+        if (length == 0) return dst;
+
+        long t0 = Metrics.start();
+        boolean ok = getShortRangeFromArray(handle(), dst, dstOffset, srcOffset, length);
+        Reference.reachabilityFence(this);
+        if (!ok) {
+            throw ArrayFireException.last("Failed to copy Array to host");
+        }
+        Metrics.stop("getShortArray", t0, length * 2L);
+        return dst;
+    }
+
+    public long[] getLongArray(long[] dst) throws Exception {
+        if (dst == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null destination provided");
+        return getLongArray(dst, 0, 0, elements());
+    }
+
+    public long[] getLongArray(long[] dst, int dstOffset, int srcOffset, int length) throws Exception {
+        assertType(LongType, ULongType);
+        if (dst == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null destination provided");
+        checkRange(dst.length, dstOffset, srcOffset, length);
+        if (length == 0) return dst;
+
+        long t0 = Metrics.start();
+        boolean ok = getLongRangeFromArray(handle(), dst, dstOffset, srcOffset, length);
+        Reference.reachabilityFence(this);
+        if (!ok) {
+            throw ArrayFireException.last("Failed to copy Array to host");
+        }
+        Metrics.stop("getLongArray", t0, length * 8L);
+        return dst;
+    }
+
+    // Column reads download one contiguous column. Columns are
+    // counted across all dimensions after the first.
+
+    // Index of the first element of column col
+    private int columnOffset(int col) throws Exception {
+        int rows = dims(0);
+        if (col < 0 || (long)col * rows >= elements()) {
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Column index out of range");
+        }
+        return col * rows;
+    }
+
+    public float[] getFloatColumn(int col, float[] dst) throws Exception {
+        return getFloatArray(dst, 0, columnOffset(col), dims(0));
+    }
+
+    public double[] getDoubleColumn(int col, double[] dst) throws Exception {
+        return getDoubleArray(dst, 0, columnOffset(col), dims(0));
+    }
+
+    public int[] getIntColumn(int col, int[] dst) throws Exception {
+        return getIntArray(dst, 0, columnOffset(col), dims(0));
+    }
+
+    public boolean[] getBooleanColumn(int col, boolean[] dst) throws Exception {
+        return getBooleanArray(dst, 0, columnOffset(col), dims(0));
+    }
+
+    // Copies all elements into a direct buffer, starting at its
+    // current position. The position is not advanced.
+    public void copyTo(Buffer dst) throws Exception {
+        copyTo(dst, 0, elements());
+    }
+
+    // Copies length elements starting at element srcOffset
+    public void copyTo(Buffer dst, int srcOffset, int length) throws Exception {
+        int ty = type();
+        int offset = directOffset(dst, length, ty);
+
+        if (srcOffset < 0 || length < 0) {
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Negative offset or length");
+        }
+        if (length > elements() - srcOffset) {
+            throw ArrayFireException.create(ArrayFireException.InvalidSize, "Range exceeds number of elements");
+        }
+        if (length == 0) return;
+
+        long t0 = Metrics.start();
+        boolean ok = copyToBuffer(handle(), dst, offset, srcOffset, length);
+        Reference.reachabilityFence(this);
+        if (!ok) {
+            throw ArrayFireException.last("Failed to copy Array to buffer");
+        }
+        Metrics.stop("copyTo", t0, length * (long)typeSize(ty));
+    }
+
+    // Overwrites all elements from a direct buffer, starting at its
+    // current position. Dimensions and type stay the same.
+    public void copyFrom(Buffer src) throws Exception {
+        int total_size = elements();
+        int ty = type();
+        int offset = directOffset(src, total_size, ty);
+
+        long h = handle();
+        evalDependents();
+        long t0 = Metrics.start();
+        boolean ok = copyFromBuffer(h, src, offset);
+        Reference.reachabilityFence(this);
+        if (!ok) {
+            throw ArrayFireException.last("Failed to copy buffer to Array");
+        }
+        Metrics.stop("copyFrom", t0, total_size * (long)typeSize(ty));
+    }
+
+    // Converts the elements of a to type on the device. Narrowing
+    // conversions follow C++ casts.
+    public static Array cast(Array a, int type) throws Exception {
+        typeSize(type); // rejects unknown types
         Array ret_val = new Array();
-        ret_val.ref = tanh(a.ref);
+        long t0 = Metrics.start();
+        ret_val.set(cast(a.handle(),type));
+        Metrics.stop("cast", t0);
+        Reference.reachabilityFence(a);
         return ret_val;
     }
 
-    public static Array asinh(Array a) throws Exception {
+    // Binary operations
+
+    public static Array randu(int[] dims, int type) throws Exception {
+        int[] adims = dim4(dims);
+        long t0 = Metrics.start();
+        long ref = createRanduArray(adims, type);
+        Metrics.stop("randu", t0);
+        if (ref == 0) throw ArrayFireException.last("Failed to create Array");
+
         Array ret_val = new Array();
-        ret_val.ref = asinh(a.ref);
+        ret_val.set(ref);
         return ret_val;
     }
-    public static Array acosh(Array a) throws Exception {
+
+    public static Array randn(int[] dims, int type) throws Exception {
+        int[] adims = dim4(dims);
+        long t0 = Metrics.start();
+        long ref = createRandnArray(adims, type);
+        Metrics.stop("randn", t0);
+        if (ref == 0) throw ArrayFireException.last("Failed to create Array");
+
         Array ret_val = new Array();
-        ret_val.ref = acosh(a.ref);
+        ret_val.set(ref);
         return ret_val;
     }
-    public static Array atanh(Array a) throws Exception {
+
+    public static Array constant(double val, int[] dims, int type) throws Exception {
+        int[] adims = dim4(dims);
+        long t0 = Metrics.start();
+        long ref = createConstantsArray(val, adims, type);
+        Metrics.stop("constant", t0);
+        if (ref == 0) throw ArrayFireException.last("Failed to create Array");
+
         Array ret_val = new Array();
-        ret_val.ref = atanh(a.ref);
+        ret_val.set(ref);
         return ret_val;
     }
-    public static Array exp(Array a) throws Exception {
+
+    public static Array add(Array a, Array b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.ADD, a, b);
         Array ret_val = new Array();
-        ret_val.ref = exp(a.ref);
+        long t0 = Metrics.start();
+        ret_val.set(add(a.handle(),b.handle()));
+        Metrics.stop("add", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
         return ret_val;
     }
-    public static Array log(Array a) throws Exception {
+
+    public static Array sub(Array a, Array b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.SUB, a, b);
         Array ret_val = new Array();
-        ret_val.ref = log(a.ref);
+        long t0 = Metrics.start();
+        ret_val.set(sub(a.handle(),b.handle()));
+        Metrics.stop("sub", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
         return ret_val;
     }
-    public static Array abs(Array a) throws Exception {
+
+    public static Array mul(Array a, Array b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.MUL, a, b);
         Array ret_val = new Array();
-        ret_val.ref = abs(a.ref);
+        long t0 = Metrics.start();
+        ret_val.set(mul(a.handle(),b.handle()));
+        Metrics.stop("mul", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
         return ret_val;
     }
-    public static Array sqrt(Array a) throws Exception {
+
+    public static Array div(Array a, Array b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.DIV, a, b);
         Array ret_val = new Array();
-        ret_val.ref = sqrt(a.ref);
+        long t0 = Metrics.start();
+        ret_val.set(div(a.handle(),b.handle()));
+        Metrics.stop("div", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
         return ret_val;
     }
 
-    // Scalar return operations
-    public static double sumAll(Array a) throws Exception { return sumAll(a.ref); }
-    public static double maxAll(Array a) throws Exception { return maxAll(a.ref); }
-    public static double minAll(Array a) throws Exception { return minAll(a.ref); }
+    public static Array le(Array a, Array b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.LE, a, b);
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(le(a.handle(),b.handle()));
+        Metrics.stop("le", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return ret_val;
+    }
 
-    public static Array fft(Array a) throws Exception {
+    public static Array lt(Array a, Array b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.LT, a, b);
         Array ret_val = new Array();
-        ret_val.ref = fft(a.ref);
+        long t0 = Metrics.start();
+        ret_val.set(lt(a.handle(),b.handle()));
+        Metrics.stop("lt", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
         return ret_val;
     }
 
-    public static Array fft2(Array a) throws Exception {
+    public static Array ge(Array a, Array b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.GE, a, b);
         Array ret_val = new Array();
-        ret_val.ref = fft2(a.ref);
+        long t0 = Metrics.start();
+        ret_val.set(ge(a.handle(),b.handle()));
+        Metrics.stop("ge", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
         return ret_val;
     }
 
-    public static Array fft3(Array a) throws Exception {
+    public static Array gt(Array a, Array b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.GT, a, b);
         Array ret_val = new Array();
-        ret_val.ref = fft3(a.ref);
+        long t0 = Metrics.start();
+        ret_val.set(gt(a.handle(),b.handle()));
+        Metrics.stop("gt", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
         return ret_val;
     }
 
-    public static Array ifft(Array a) throws Exception {
+    public static Array eq(Array a, Array b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.EQ, a, b);
         Array ret_val = new Array();
-        ret_val.ref = ifft(a.ref);
+        long t0 = Metrics.start();
+        ret_val.set(eq(a.handle(),b.handle()));
+        Metrics.stop("eq", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
         return ret_val;
     }
 
-    public static Array ifft2(Array a) throws Exception {
+    public static Array ne(Array a, Array b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.NE, a, b);
         Array ret_val = new Array();
-        ret_val.ref = ifft2(a.ref);
+        long t0 = Metrics.start();
+        ret_val.set(ne(a.handle(),b.handle()));
+        Metrics.stop("ne", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
         return ret_val;
     }
 
-    public static Array ifft3(Array a) throws Exception {
+    // Unary operations
+    public static Array sin(Array a) throws Exception {
+        if (lazy) return Expr.lazy(Expr.SIN, a);
         Array ret_val = new Array();
-        ret_val.ref = ifft3(a.ref);
+        long t0 = Metrics.start();
+        ret_val.set(sin(a.handle()));
+        Metrics.stop("sin", t0);
+        Reference.reachabilityFence(a);
         return ret_val;
     }
 
-    public static Array sum(Array a, int dim) throws Exception {
+    public static Array cos(Array a) throws Exception {
+        if (lazy) return Expr.lazy(Expr.COS, a);
         Array ret_val = new Array();
-        ret_val.ref = sum(a.ref, dim);
+        long t0 = Metrics.start();
+        ret_val.set(cos(a.handle()));
+        Metrics.stop("cos", t0);
+        Reference.reachabilityFence(a);
         return ret_val;
     }
 
-    public static Array max(Array a, int dim) throws Exception {
+    public static Array tan(Array a) throws Exception {
+        if (lazy) return Expr.lazy(Expr.TAN, a);
         Array ret_val = new Array();
-        ret_val.ref = max(a.ref, dim);
+        long t0 = Metrics.start();
+        ret_val.set(tan(a.handle()));
+        Metrics.stop("tan", t0);
+        Reference.reachabilityFence(a);
         return ret_val;
     }
 
-    public static Array min(Array a, int dim) throws Exception {
+    public static Array asin(Array a) throws Exception {
+        if (lazy) return Expr.lazy(Expr.ASIN, a);
         Array ret_val = new Array();
-        ret_val.ref = min(a.ref, dim);
+        long t0 = Metrics.start();
+        ret_val.set(asin(a.handle()));
+        Metrics.stop("asin", t0);
+        Reference.reachabilityFence(a);
         return ret_val;
     }
 
-    public static Array sum(Array a) throws Exception {
-        return sum(a, -1);
+    public static Array acos(Array a) throws Exception {
+        if (lazy) return Expr.lazy(Expr.ACOS, a);
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(acos(a.handle()));
+        Metrics.stop("acos", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
     }
 
-    public static Array max(Array a) throws Exception {
-        return max(a, -1);
+    public static Array atan(Array a) throws Exception {
+        if (lazy) return Expr.lazy(Expr.ATAN, a);
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(atan(a.handle()));
+        Metrics.stop("atan", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
     }
 
-    public static Array min(Array a) throws Exception {
-        return min(a, -1);
+    public static Array sinh(Array a) throws Exception {
+        if (lazy) return Expr.lazy(Expr.SINH, a);
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(sinh(a.handle()));
+        Metrics.stop("sinh", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
     }
 
-    // Scalar operations
-    public static Array add(Array a, float b) throws Exception {
-        Array res = new Array();
-        res.ref = addf(a.ref,b);
-        return res;
+    public static Array cosh(Array a) throws Exception {
+        if (lazy) return Expr.lazy(Expr.COSH, a);
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(cosh(a.handle()));
+        Metrics.stop("cosh", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
     }
 
-    public static Array sub(Array a, float b) throws Exception {
-        Array res = new Array();
-        res.ref = subf(a.ref,b);
-        return res;
+    public static Array tanh(Array a) throws Exception {
+        if (lazy) return Expr.lazy(Expr.TANH, a);
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(tanh(a.handle()));
+        Metrics.stop("tanh", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
     }
 
-    public static Array mul(Array a, float b) throws Exception {
-        Array res = new Array();
-        res.ref = mulf(a.ref,b);
-        return res;
+    public static Array asinh(Array a) throws Exception {
+        if (lazy) return Expr.lazy(Expr.ASINH, a);
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(asinh(a.handle()));
+        Metrics.stop("asinh", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+    public static Array acosh(Array a) throws Exception {
+        if (lazy) return Expr.lazy(Expr.ACOSH, a);
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(acosh(a.handle()));
+        Metrics.stop("acosh", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+    public static Array atanh(Array a) throws Exception {
+        if (lazy) return Expr.lazy(Expr.ATANH, a);
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(atanh(a.handle()));
+        Metrics.stop("atanh", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+    public static Array exp(Array a) throws Exception {
+        if (lazy) return Expr.lazy(Expr.EXP, a);
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(exp(a.handle()));
+        Metrics.stop("exp", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+    public static Array log(Array a) throws Exception {
+        if (lazy) return Expr.lazy(Expr.LOG, a);
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(log(a.handle()));
+        Metrics.stop("log", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+    public static Array abs(Array a) throws Exception {
+        if (lazy) return Expr.lazy(Expr.ABS, a);
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(abs(a.handle()));
+        Metrics.stop("abs", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+    public static Array sqrt(Array a) throws Exception {
+        if (lazy) return Expr.lazy(Expr.SQRT, a);
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(sqrt(a.handle()));
+        Metrics.stop("sqrt", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
     }
 
-    public static Array div(Array a, float b) throws Exception {
-        Array res = new Array();
-        res.ref = divf(a.ref,b);
+    // Statistics
+    //
+    // The *All methods reduce the whole array to a double on the host.
+    // They fail on complex arrays instead of dropping the imaginary part.
+
+    // Several whole array statistics, given as Stat constants, in one
+    // native call. The reductions run on the device in the element type
+    // of the Array and all results come back in a single copy, with var
+    // and stdev sharing one mean and sum of squared deviations, e.g.
+    //   double[] r = Array.statsAll(a, StatMean, StatStdev, StatMax);
+    public static double[] statsAll(Array a, int... stats) throws Exception {
+        for (int s : stats) {
+            if (s < StatSum || s > StatAllTrue) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Unknown statistic " + s);
+        }
+        double[] res = new double[stats.length];
+        long t0 = Metrics.start();
+        boolean ok = statsAll(a.handle(),stats,res);
+        Metrics.stop("statsAll", t0);
+        Reference.reachabilityFence(a);
+        if (!ok) throw ArrayFireException.last("Failed to compute statistics");
         return res;
     }
 
-    public static Array le(Array a, float b) throws Exception {
-        Array res = new Array();
-        res.ref = lef(a.ref,b);
-        return res;
+    private static double statAll(Array a, int stat, String name) throws Exception {
+        double[] res = new double[1];
+        long t0 = Metrics.start();
+        boolean ok = statsAll(a.handle(),new int[] { stat },res);
+        Metrics.stop(name, t0);
+        Reference.reachabilityFence(a);
+        if (!ok) throw ArrayFireException.last("Failed to compute " + name);
+        return res[0];
     }
 
-    public static Array lt(Array a, float b) throws Exception {
-        Array res = new Array();
-        res.ref = ltf(a.ref,b);
-        return res;
+    public static double sumAll(Array a) throws Exception {
+        return statAll(a, StatSum, "sumAll");
     }
 
-    public static Array ge(Array a, float b) throws Exception {
-        Array res = new Array();
-        res.ref = gef(a.ref,b);
-        return res;
+    public static double maxAll(Array a) throws Exception {
+        return statAll(a, StatMax, "maxAll");
     }
 
-    public static Array gt(Array a, float b) throws Exception {
-        Array res = new Array();
-        res.ref = gtf(a.ref,b);
-        return res;
+    public static double minAll(Array a) throws Exception {
+        return statAll(a, StatMin, "minAll");
     }
 
-    public static Array eq(Array a, float b) throws Exception {
-        Array res = new Array();
-        res.ref = eqf(a.ref,b);
-        return res;
+    public static double meanAll(Array a) throws Exception {
+        return statAll(a, StatMean, "meanAll");
     }
 
-    public static Array ne(Array a, float b) throws Exception {
-        Array res = new Array();
-        res.ref = nef(a.ref,b);
-        return res;
+    public static double varAll(Array a) throws Exception {
+        return statAll(a, StatVar, "varAll");
     }
 
-    public static Array pow(Array a, float b) throws Exception {
-        Array res = new Array();
-        res.ref = pow(a.ref,b);
-        return res;
+    public static double stdevAll(Array a) throws Exception {
+        return statAll(a, StatStdev, "stdevAll");
     }
 
-    public static Array sub(float a, Array b) throws Exception {
-        Array res = new Array();
-        res.ref = fsub(a,b.ref);
-        return res;
+    public static double medianAll(Array a) throws Exception {
+        return statAll(a, StatMedian, "medianAll");
     }
 
-    public static Array div(float a, Array b) throws Exception {
-        Array res = new Array();
-        res.ref = fdiv(a,b.ref);
-        return res;
+    // Number of non zero elements
+    public static long countAll(Array a) throws Exception {
+        return (long)statAll(a, StatCount, "countAll");
     }
 
-    public static Array le(float a, Array b) throws Exception {
-        Array res = new Array();
-        res.ref = fle(a,b.ref);
-        return res;
+    public static boolean anyTrueAll(Array a) throws Exception {
+        return statAll(a, StatAnyTrue, "anyTrueAll") != 0;
     }
 
-    public static Array lt(float a, Array b) throws Exception {
-        Array res = new Array();
-        res.ref = flt(a,b.ref);
-        return res;
+    public static boolean allTrueAll(Array a) throws Exception {
+        return statAll(a, StatAllTrue, "allTrueAll") != 0;
     }
 
-    public static Array ge(float a, Array b) throws Exception {
-        Array res = new Array();
-        res.ref = fge(a,b.ref);
+    // Largest element and its linear index, as { value, index }
+    public static double[] imaxAll(Array a) throws Exception {
+        double[] res = new double[2];
+        long t0 = Metrics.start();
+        boolean ok = imaxAll(a.handle(),res);
+        Metrics.stop("imaxAll", t0);
+        Reference.reachabilityFence(a);
+        if (!ok) throw ArrayFireException.last("Failed to find maximum");
         return res;
     }
 
-    public static Array gt(float a, Array b) throws Exception {
-        Array res = new Array();
-        res.ref = fgt(a,b.ref);
+    // Smallest element and its linear index, as { value, index }
+    public static double[] iminAll(Array a) throws Exception {
+        double[] res = new double[2];
+        long t0 = Metrics.start();
+        boolean ok = iminAll(a.handle(),res);
+        Metrics.stop("iminAll", t0);
+        Reference.reachabilityFence(a);
+        if (!ok) throw ArrayFireException.last("Failed to find minimum");
         return res;
     }
 
+    public static Array fft(Array a) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(fft(a.handle()));
+        Metrics.stop("fft", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    public static Array fft2(Array a) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(fft2(a.handle()));
+        Metrics.stop("fft2", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    public static Array fft3(Array a) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(fft3(a.handle()));
+        Metrics.stop("fft3", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    public static Array ifft(Array a) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(ifft(a.handle()));
+        Metrics.stop("ifft", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    public static Array ifft2(Array a) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(ifft2(a.handle()));
+        Metrics.stop("ifft2", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    public static Array ifft3(Array a) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(ifft3(a.handle()));
+        Metrics.stop("ifft3", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    // Transforms scaled by norm, with the input padded with zeros or
+    // truncated to odim along each transformed dimension, 0 keeping its
+    // size. The plain forms above scale forward transforms by 1 and
+    // inverse ones by 1/N, N being the number of transformed elements.
+    //
+    // Every transform runs along the first one, two or three dimensions
+    // and is batched over the rest: fft of a 1024 x 64 Array is 64
+    // transforms of length 1024 made with a single plan.
+    public static Array fft(Array a, double norm, int odim0) throws Exception {
+        return scaledFft(a, 1, false, norm, new int[] { odim0 }, "fft");
+    }
+
+    public static Array fft2(Array a, double norm, int odim0, int odim1) throws Exception {
+        return scaledFft(a, 2, false, norm, new int[] { odim0, odim1 }, "fft2");
+    }
+
+    public static Array fft3(Array a, double norm, int odim0, int odim1, int odim2) throws Exception {
+        return scaledFft(a, 3, false, norm, new int[] { odim0, odim1, odim2 }, "fft3");
+    }
+
+    public static Array ifft(Array a, double norm, int odim0) throws Exception {
+        return scaledFft(a, 1, true, norm, new int[] { odim0 }, "ifft");
+    }
+
+    public static Array ifft2(Array a, double norm, int odim0, int odim1) throws Exception {
+        return scaledFft(a, 2, true, norm, new int[] { odim0, odim1 }, "ifft2");
+    }
+
+    public static Array ifft3(Array a, double norm, int odim0, int odim1, int odim2) throws Exception {
+        return scaledFft(a, 3, true, norm, new int[] { odim0, odim1, odim2 }, "ifft3");
+    }
+
+    private static Array scaledFft(Array a, int rank, boolean inverse, double norm, int[] odims, String name) throws Exception {
+        checkOutputDims(odims);
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(fftNorm(a.handle(), rank, inverse, norm, odims));
+        Metrics.stop(name, t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    // Transform of a real Array over its first rank dimensions, batched
+    // over the rest. Only the dims(0) / 2 + 1 non redundant outputs
+    // along the first dimension are computed, about half the work and
+    // memory of fft on the same data.
+    public static Array fftR2C(Array a, int rank) throws Exception {
+        checkRank(rank);
+        return fftR2C(a, rank, 1.0, new int[rank]);
+    }
+
+    // odims pads or truncates the input before the transform, one size
+    // per transformed dimension, 0 keeping the input size
+    public static Array fftR2C(Array a, int rank, double norm, int[] odims) throws Exception {
+        checkRank(rank);
+        if (odims.length != rank) throw ArrayFireException.create(ArrayFireException.InvalidSize, "Expected " + rank + " output sizes");
+        checkOutputDims(odims);
+        a.assertType(FloatType, DoubleType);
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(fftR2C(a.handle(), rank, norm, odims));
+        Metrics.stop("fftR2C", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    // Inverse of fftR2C, scaled by 1/N. The half spectrum does not tell
+    // whether the real signal had an odd length along the first
+    // dimension, so isOdd gives it: the result has 2 * (dims(0) - 1)
+    // elements there, plus one when isOdd is set.
+    public static Array fftC2R(Array a, int rank, boolean isOdd) throws Exception {
+        return fftC2R(a, rank, isOdd, 0);
+    }
+
+    // norm 0 keeps the 1/N scale
+    public static Array fftC2R(Array a, int rank, boolean isOdd, double norm) throws Exception {
+        checkRank(rank);
+        a.assertType(FloatComplexType, DoubleComplexType);
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(fftC2R(a.handle(), rank, isOdd, norm));
+        Metrics.stop("fftC2R", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    // Transforms this complex Array over its first rank dimensions,
+    // writing the result over it. Saves allocating a result of the same
+    // size, which for large batches is most of the memory a transform
+    // needs.
+    public Array fftInPlace(int rank) throws Exception {
+        return fftInPlace(rank, 1.0);
+    }
+
+    public Array fftInPlace(int rank, double norm) throws Exception {
+        return transformInPlace(rank, false, norm, "fftInPlace");
+    }
+
+    // Scaled by 1/N like ifft
+    public Array ifftInPlace(int rank) throws Exception {
+        checkRank(rank);
+        int[] d = dims();
+        double n = 1;
+        for (int i = 0; i < rank; i++) n *= d[i];
+        return ifftInPlace(rank, 1.0 / n);
+    }
+
+    public Array ifftInPlace(int rank, double norm) throws Exception {
+        return transformInPlace(rank, true, norm, "ifftInPlace");
+    }
+
+    private Array transformInPlace(int rank, boolean inverse, double norm, String name) throws Exception {
+        checkRank(rank);
+        assertType(FloatComplexType, DoubleComplexType);
+        long h = handle();
+        evalDependents();
+        long t0 = Metrics.start();
+        boolean ok = fftInPlace(h, rank, inverse, norm);
+        Metrics.stop(name, t0);
+        if (!ok) throw ArrayFireException.last("Failed to transform in place");
+        return this;
+    }
+
+    private static void checkRank(int rank) throws Exception {
+        if (rank < 1 || rank > 3) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Transform rank must be 1, 2 or 3");
+    }
+
+    private static void checkOutputDims(int[] odims) throws Exception {
+        for (int d : odims) {
+            if (d < 0) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Output size must not be negative");
+        }
+    }
+
+    public static Array sum(Array a, int dim) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(sum(a.handle(), dim));
+        Metrics.stop("sum", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    public static Array max(Array a, int dim) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(max(a.handle(), dim));
+        Metrics.stop("max", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    public static Array min(Array a, int dim) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(min(a.handle(), dim));
+        Metrics.stop("min", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    public static Array sum(Array a) throws Exception {
+        return sum(a, -1);
+    }
+
+    public static Array max(Array a) throws Exception {
+        return max(a, -1);
+    }
+
+    public static Array min(Array a) throws Exception {
+        return min(a, -1);
+    }
+
+    // Returns { values, indices } of the largest elements along dim
+    public static Array[] imax(Array a, int dim) throws Exception {
+        long t0 = Metrics.start();
+        long[] res = imax(a.handle(),dim);
+        Metrics.stop("imax", t0);
+        Reference.reachabilityFence(a);
+        if (res == null) throw ArrayFireException.last("Failed to find maximum");
+        return wrap(res);
+    }
+
+    // Returns { values, indices } of the smallest elements along dim
+    public static Array[] imin(Array a, int dim) throws Exception {
+        long t0 = Metrics.start();
+        long[] res = imin(a.handle(),dim);
+        Metrics.stop("imin", t0);
+        Reference.reachabilityFence(a);
+        if (res == null) throw ArrayFireException.last("Failed to find minimum");
+        return wrap(res);
+    }
+
+    public static Array mean(Array a, int dim) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(mean(a.handle(),dim));
+        Metrics.stop("mean", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    // Variance along dim. A biased variance divides by the number of
+    // elements, an unbiased one by that number minus one.
+    public static Array var(Array a, int dim, boolean biased) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(var(a.handle(),dim,biased));
+        Metrics.stop("var", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    public static Array var(Array a, int dim) throws Exception {
+        return var(a, dim, false);
+    }
+
+    public static Array stdev(Array a, int dim) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(stdev(a.handle(),dim));
+        Metrics.stop("stdev", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    public static Array median(Array a, int dim) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(median(a.handle(),dim));
+        Metrics.stop("median", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    // Number of non zero elements along dim
+    public static Array count(Array a, int dim) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(count(a.handle(),dim));
+        Metrics.stop("count", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    public static Array anyTrue(Array a, int dim) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(anyTrue(a.handle(),dim));
+        Metrics.stop("anyTrue", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    public static Array allTrue(Array a, int dim) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(allTrue(a.handle(),dim));
+        Metrics.stop("allTrue", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    // Linear algebra
+    //
+    // matmul multiplies matrices held in the first two dimensions. When
+    // the third and fourth dimensions are larger than one, every matrix
+    // in the batch is multiplied by the matching one of the other
+    // operand, or by its single matrix if that has no batch.
+
+    public static Array matmul(Array a, Array b) throws Exception {
+        return matmul(a, b, MatNone, MatNone);
+    }
+
+    // optLhs and optRhs are one of MatNone, MatTrans, MatCTrans
+    public static Array matmul(Array a, Array b, int optLhs, int optRhs) throws Exception {
+        checkMatProp(optLhs);
+        checkMatProp(optRhs);
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(matmul(a.handle(),b.handle(),optLhs,optRhs));
+        Metrics.stop("matmul", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return ret_val;
+    }
+
+    // Dot product of two vectors, as a single element Array
+    public static Array dot(Array a, Array b) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(dot(a.handle(),b.handle()));
+        Metrics.stop("dot", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return ret_val;
+    }
+
+    public static Array transpose(Array a) throws Exception {
+        return transpose(a, false);
+    }
+
+    public static Array transpose(Array a, boolean conjugate) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(transpose(a.handle(),conjugate));
+        Metrics.stop("transpose", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    // Solves a * x = b for x
+    public static Array solve(Array a, Array b) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(solve(a.handle(),b.handle()));
+        Metrics.stop("solve", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return ret_val;
+    }
+
+    public static Array inverse(Array a) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(inverse(a.handle()));
+        Metrics.stop("inverse", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    // Triangular factor of a positive definite matrix, upper or lower
+    public static Array cholesky(Array a, boolean upper) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(cholesky(a.handle(),upper));
+        Metrics.stop("cholesky", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    // Returns { lower, upper, pivot }
+    public static Array[] lu(Array a) throws Exception {
+        long t0 = Metrics.start();
+        long[] res = lu(a.handle());
+        Metrics.stop("lu", t0);
+        Reference.reachabilityFence(a);
+        if (res == null) throw ArrayFireException.last("LU decomposition failed");
+        return wrap(res);
+    }
+
+    // Returns { q, r, tau }
+    public static Array[] qr(Array a) throws Exception {
+        long t0 = Metrics.start();
+        long[] res = qr(a.handle());
+        Metrics.stop("qr", t0);
+        Reference.reachabilityFence(a);
+        if (res == null) throw ArrayFireException.last("QR decomposition failed");
+        return wrap(res);
+    }
+
+    // Returns { u, s, vt }, s holding the singular values as a vector
+    public static Array[] svd(Array a) throws Exception {
+        long t0 = Metrics.start();
+        long[] res = svd(a.handle());
+        Metrics.stop("svd", t0);
+        Reference.reachabilityFence(a);
+        if (res == null) throw ArrayFireException.last("Singular value decomposition failed");
+        return wrap(res);
+    }
+
+    private static void checkMatProp(int opt) throws Exception {
+        if (opt != MatNone && opt != MatTrans && opt != MatCTrans) {
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Unknown matrix option");
+        }
+    }
+
+    // Takes ownership of several handles returned by one native call
+    static Array[] wrap(long[] refs) throws Exception {
+        Array[] ret_val = new Array[refs.length];
+        int i = 0;
+        try {
+            for (; i < refs.length; i++) {
+                ret_val[i] = new Array();
+                ret_val[i].set(refs[i]);
+            }
+        } catch (Exception e) {
+            // Rejected by the memory limit, release every result
+            for (int j = 0; j < i; j++) ret_val[j].close();
+            destroyArrays(Arrays.copyOfRange(refs, i + 1, refs.length), refs.length - i - 1);
+            throw e;
+        }
+        return ret_val;
+    }
+
+    // Indexing
+    //
+    // index() returns the elements selected by one subscript per
+    // dimension, or by a single subscript over the flattened Array. The
+    // work stays on the device, and ArrayFire keeps the result as a view
+    // of this Array's memory until either of them is written to, so a
+    // slice is not copied unless needed. assign() writes into the
+    // selected elements of this Array in place, so like the other in
+    // place methods it needs exclusive access.
+
+    public Array index(Seq... seqs) throws Exception {
+        return indexWith(packSeqs(seqs), new long[seqs.length]);
+    }
+
+    // Elements at the positions held by indices, counted over the
+    // flattened Array. A BooleanType indices selects where it is true.
+    public Array index(Array indices) throws Exception {
+        if (indices == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null indices provided");
+        Array ret_val = indexWith(new int[] { 0, -1, 1 }, new long[] { indices.handle() });
+        Reference.reachabilityFence(indices);
+        return ret_val;
+    }
+
+    public Array row(int i) throws Exception {
+        return index(Seq.at(i), Seq.SPAN);
+    }
+
+    // Rows first to last, both included
+    public Array rows(int first, int last) throws Exception {
+        return index(new Seq(first, last), Seq.SPAN);
+    }
+
+    public Array col(int i) throws Exception {
+        return index(Seq.SPAN, Seq.at(i));
+    }
+
+    public Array cols(int first, int last) throws Exception {
+        return index(Seq.SPAN, new Seq(first, last));
+    }
+
+    public Array slice(int i) throws Exception {
+        return index(Seq.SPAN, Seq.SPAN, Seq.at(i));
+    }
+
+    public Array slices(int first, int last) throws Exception {
+        return index(Seq.SPAN, Seq.SPAN, new Seq(first, last));
+    }
+
+    // Copies src into the selected elements. src must have the shape of
+    // the selection, or be a single element.
+    public Array assign(Array src, Seq... seqs) throws Exception {
+        if (src == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null source provided");
+        assignWith(packSeqs(seqs), new long[seqs.length], src);
+        return this;
+    }
+
+    public Array assign(double val, Seq... seqs) throws Exception {
+        assignWith(packSeqs(seqs), new long[seqs.length], val);
+        return this;
+    }
+
+    // Assigns at the positions held by indices over the flattened Array
+    public Array assign(Array indices, Array src) throws Exception {
+        if (indices == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null indices provided");
+        if (src == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null source provided");
+        assignWith(new int[] { 0, -1, 1 }, new long[] { indices.handle() }, src);
+        Reference.reachabilityFence(indices);
+        return this;
+    }
+
+    public Array assign(Array indices, double val) throws Exception {
+        if (indices == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null indices provided");
+        assignWith(new int[] { 0, -1, 1 }, new long[] { indices.handle() }, val);
+        Reference.reachabilityFence(indices);
+        return this;
+    }
+
+    public Array setRow(int i, Array src) throws Exception {
+        return assign(src, Seq.at(i), Seq.SPAN);
+    }
+
+    public Array setCol(int i, Array src) throws Exception {
+        return assign(src, Seq.SPAN, Seq.at(i));
+    }
+
+    public Array setSlice(int i, Array src) throws Exception {
+        return assign(src, Seq.SPAN, Seq.SPAN, Seq.at(i));
+    }
+
+    private static int[] packSeqs(Seq[] seqs) throws Exception {
+        if (seqs == null || seqs.length < 1 || seqs.length > 4) {
+            throw ArrayFireException.create(ArrayFireException.InvalidSize, "Expected one to four subscripts");
+        }
+        int[] res = new int[3 * seqs.length];
+        for (int i = 0; i < seqs.length; i++) {
+            if (seqs[i] == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null subscript provided");
+            res[3 * i    ] = seqs[i].begin;
+            res[3 * i + 1] = seqs[i].end;
+            res[3 * i + 2] = seqs[i].step;
+        }
+        return res;
+    }
+
+    private Array indexWith(int[] seqs, long[] arrays) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(index(handle(),seqs,arrays));
+        Metrics.stop("index", t0);
+        Reference.reachabilityFence(this);
+        return ret_val;
+    }
+
+    private void assignWith(int[] seqs, long[] arrays, Array src) throws Exception {
+        long h = handle();
+        evalDependents();
+        long t0 = Metrics.start();
+        boolean ok = assignArray(h,seqs,arrays,src.handle());
+        Metrics.stop("assign", t0);
+        Reference.reachabilityFence(this);
+        Reference.reachabilityFence(src);
+        if (!ok) throw ArrayFireException.last("Invalid or out of bounds assignment");
+    }
+
+    private void assignWith(int[] seqs, long[] arrays, double val) throws Exception {
+        long h = handle();
+        evalDependents();
+        long t0 = Metrics.start();
+        boolean ok = assignScalar(h,seqs,arrays,val);
+        Metrics.stop("assign", t0);
+        Reference.reachabilityFence(this);
+        if (!ok) throw ArrayFireException.last("Invalid or out of bounds assignment");
+    }
+
+    // Scans, sorting and sets
+    //
+    // All of these run on the device and return Arrays, so their results
+    // can feed further operations without a round trip through the host.
+    // Index outputs are unsigned 32 bit on the native side.
+
+    // Inclusive prefix sum along dim
+    public static Array accum(Array a, int dim) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(accum(a.handle(),dim));
+        Metrics.stop("accum", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    // Prefix reduction along dim with ScanAdd, ScanMul, ScanMin or
+    // ScanMax. An exclusive scan leaves out the element itself.
+    public static Array scan(Array a, int dim, int op, boolean inclusive) throws Exception {
+        if (op < ScanAdd || op > ScanMax) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Unknown scan operator");
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(scan(a.handle(),dim,op,inclusive));
+        Metrics.stop("scan", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    public static Array sort(Array a, int dim, boolean ascending) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(sort(a.handle(),dim,ascending));
+        Metrics.stop("sort", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    // Returns { values, indices }, indices giving the position of each
+    // sorted value in a
+    public static Array[] sortIndex(Array a, int dim, boolean ascending) throws Exception {
+        long t0 = Metrics.start();
+        long[] res = sortIndex(a.handle(),dim,ascending);
+        Metrics.stop("sortIndex", t0);
+        Reference.reachabilityFence(a);
+        if (res == null) throw ArrayFireException.last("Failed to sort Array");
+        return wrap(res);
+    }
+
+    // af::topkFunction values
+    private static final int TOPK_MIN = 1;
+    private static final int TOPK_MAX = 2;
+
+    // Returns { values, indices } of the k largest, or smallest,
+    // elements along dim
+    public static Array[] topk(Array a, int k, int dim, boolean largest) throws Exception {
+        if (k < 1) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "k must be positive");
+        long t0 = Metrics.start();
+        long[] res = topk(a.handle(),k,dim,largest ? TOPK_MAX : TOPK_MIN);
+        Metrics.stop("topk", t0);
+        Reference.reachabilityFence(a);
+        if (res == null) throw ArrayFireException.last("Failed to find top k elements");
+        return wrap(res);
+    }
+
+    // Linear indices of the non zero elements
+    public static Array where(Array a) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(where(a.handle()));
+        Metrics.stop("where", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    public static Array nonzero(Array a) throws Exception {
+        return where(a);
+    }
+
+    // Sorted distinct values of a vector. isSorted skips sorting
+    // when a is already in ascending order.
+    public static Array setUnique(Array a, boolean isSorted) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(setUnique(a.handle(),isSorted));
+        Metrics.stop("setUnique", t0);
+        Reference.reachabilityFence(a);
+        return ret_val;
+    }
+
+    // isUnique skips removing duplicates when both inputs are already
+    // distinct values
+    public static Array setUnion(Array a, Array b, boolean isUnique) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(setUnion(a.handle(),b.handle(),isUnique));
+        Metrics.stop("setUnion", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return ret_val;
+    }
+
+    public static Array setIntersect(Array a, Array b, boolean isUnique) throws Exception {
+        Array ret_val = new Array();
+        long t0 = Metrics.start();
+        ret_val.set(setIntersect(a.handle(),b.handle(),isUnique));
+        Metrics.stop("setIntersect", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return ret_val;
+    }
+
+    // Scalar operations
+    public static Array add(Array a, float b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.ADDF, a, b);
+        Array res = new Array();
+        long t0 = Metrics.start();
+        res.set(addf(a.handle(),b));
+        Metrics.stop("add", t0);
+        Reference.reachabilityFence(a);
+        return res;
+    }
+
+    public static Array sub(Array a, float b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.SUBF, a, b);
+        Array res = new Array();
+        long t0 = Metrics.start();
+        res.set(subf(a.handle(),b));
+        Metrics.stop("sub", t0);
+        Reference.reachabilityFence(a);
+        return res;
+    }
+
+    public static Array mul(Array a, float b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.MULF, a, b);
+        Array res = new Array();
+        long t0 = Metrics.start();
+        res.set(mulf(a.handle(),b));
+        Metrics.stop("mul", t0);
+        Reference.reachabilityFence(a);
+        return res;
+    }
+
+    public static Array div(Array a, float b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.DIVF, a, b);
+        Array res = new Array();
+        long t0 = Metrics.start();
+        res.set(divf(a.handle(),b));
+        Metrics.stop("div", t0);
+        Reference.reachabilityFence(a);
+        return res;
+    }
+
+    public static Array le(Array a, float b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.LEF, a, b);
+        Array res = new Array();
+        long t0 = Metrics.start();
+        res.set(lef(a.handle(),b));
+        Metrics.stop("le", t0);
+        Reference.reachabilityFence(a);
+        return res;
+    }
+
+    public static Array lt(Array a, float b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.LTF, a, b);
+        Array res = new Array();
+        long t0 = Metrics.start();
+        res.set(ltf(a.handle(),b));
+        Metrics.stop("lt", t0);
+        Reference.reachabilityFence(a);
+        return res;
+    }
+
+    public static Array ge(Array a, float b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.GEF, a, b);
+        Array res = new Array();
+        long t0 = Metrics.start();
+        res.set(gef(a.handle(),b));
+        Metrics.stop("ge", t0);
+        Reference.reachabilityFence(a);
+        return res;
+    }
+
+    public static Array gt(Array a, float b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.GTF, a, b);
+        Array res = new Array();
+        long t0 = Metrics.start();
+        res.set(gtf(a.handle(),b));
+        Metrics.stop("gt", t0);
+        Reference.reachabilityFence(a);
+        return res;
+    }
+
+    public static Array eq(Array a, float b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.EQF, a, b);
+        Array res = new Array();
+        long t0 = Metrics.start();
+        res.set(eqf(a.handle(),b));
+        Metrics.stop("eq", t0);
+        Reference.reachabilityFence(a);
+        return res;
+    }
+
+    public static Array ne(Array a, float b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.NEF, a, b);
+        Array res = new Array();
+        long t0 = Metrics.start();
+        res.set(nef(a.handle(),b));
+        Metrics.stop("ne", t0);
+        Reference.reachabilityFence(a);
+        return res;
+    }
+
+    public static Array pow(Array a, float b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.POW, a, b);
+        Array res = new Array();
+        long t0 = Metrics.start();
+        res.set(pow(a.handle(),b));
+        Metrics.stop("pow", t0);
+        Reference.reachabilityFence(a);
+        return res;
+    }
+
+    public static Array sub(float a, Array b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.FSUB, b, a);
+        Array res = new Array();
+        long t0 = Metrics.start();
+        res.set(fsub(a,b.handle()));
+        Metrics.stop("sub", t0);
+        Reference.reachabilityFence(b);
+        return res;
+    }
+
+    public static Array div(float a, Array b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.FDIV, b, a);
+        Array res = new Array();
+        long t0 = Metrics.start();
+        res.set(fdiv(a,b.handle()));
+        Metrics.stop("div", t0);
+        Reference.reachabilityFence(b);
+        return res;
+    }
+
+    public static Array le(float a, Array b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.FLE, b, a);
+        Array res = new Array();
+        long t0 = Metrics.start();
+        res.set(fle(a,b.handle()));
+        Metrics.stop("le", t0);
+        Reference.reachabilityFence(b);
+        return res;
+    }
+
+    public static Array lt(float a, Array b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.FLT, b, a);
+        Array res = new Array();
+        long t0 = Metrics.start();
+        res.set(flt(a,b.handle()));
+        Metrics.stop("lt", t0);
+        Reference.reachabilityFence(b);
+        return res;
+    }
+
+    public static Array ge(float a, Array b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.FGE, b, a);
+        Array res = new Array();
+        long t0 = Metrics.start();
+        res.set(fge(a,b.handle()));
+        Metrics.stop("ge", t0);
+        Reference.reachabilityFence(b);
+        return res;
+    }
+
+    public static Array gt(float a, Array b) throws Exception {
+        if (lazy) return Expr.lazy(Expr.FGT, b, a);
+        Array res = new Array();
+        long t0 = Metrics.start();
+        res.set(fgt(a,b.handle()));
+        Metrics.stop("gt", t0);
+        Reference.reachabilityFence(b);
+        return res;
+    }
+
+    // Scalars of other types. The scalar takes the type of the Array
+    // instead of float: float Arrays stay float, double Arrays keep the
+    // full precision of a double scalar and integer Arrays stay integer
+    // with int and long scalars, all without a cast kernel. A double
+    // scalar on an integer Array gives a DoubleType result rather than
+    // being truncated. An int or long scalar the integer type cannot
+    // hold, such as -1 on UIntType or 300 on ByteType, widens the result
+    // instead of wrapping, so gt(a, -1) on a UIntType Array is all true.
+    // int and long scalars on a BooleanType Array count as integers.
+
+    private static Array typedOp(int op, String name, Array a, double b) throws Exception {
+        if (lazy) return Expr.lazy(op, a, b);
+        Array res = new Array();
+        long t0 = Metrics.start();
+        res.set(scalarOp(0, op, a.handle(), b));
+        Metrics.stop(name, t0);
+        Reference.reachabilityFence(a);
+        return res;
+    }
+
+    // Always eager, a long may not fit the double of a recorded scalar
+    private static Array typedOp(int op, String name, Array a, long b) throws Exception {
+        Array res = new Array();
+        long t0 = Metrics.start();
+        res.set(scalarOpLong(0, op, a.handle(), b));
+        Metrics.stop(name, t0);
+        Reference.reachabilityFence(a);
+        return res;
+    }
+
+    public static Array add(Array a, double b) throws Exception {
+        return typedOp(Expr.typed(Expr.ADD, false, false), "add", a, b);
+    }
+
+    public static Array add(Array a, int b) throws Exception {
+        return typedOp(Expr.typed(Expr.ADD, true, false), "add", a, (double)b);
+    }
+
+    public static Array add(Array a, long b) throws Exception {
+        return typedOp(Expr.typed(Expr.ADD, true, false), "add", a, b);
+    }
+
+    public static Array sub(Array a, double b) throws Exception {
+        return typedOp(Expr.typed(Expr.SUB, false, false), "sub", a, b);
+    }
+
+    public static Array sub(Array a, int b) throws Exception {
+        return typedOp(Expr.typed(Expr.SUB, true, false), "sub", a, (double)b);
+    }
+
+    public static Array sub(Array a, long b) throws Exception {
+        return typedOp(Expr.typed(Expr.SUB, true, false), "sub", a, b);
+    }
+
+    public static Array mul(Array a, double b) throws Exception {
+        return typedOp(Expr.typed(Expr.MUL, false, false), "mul", a, b);
+    }
+
+    public static Array mul(Array a, int b) throws Exception {
+        return typedOp(Expr.typed(Expr.MUL, true, false), "mul", a, (double)b);
+    }
+
+    public static Array mul(Array a, long b) throws Exception {
+        return typedOp(Expr.typed(Expr.MUL, true, false), "mul", a, b);
+    }
+
+    public static Array div(Array a, double b) throws Exception {
+        return typedOp(Expr.typed(Expr.DIV, false, false), "div", a, b);
+    }
+
+    public static Array div(Array a, int b) throws Exception {
+        return typedOp(Expr.typed(Expr.DIV, true, false), "div", a, (double)b);
+    }
+
+    public static Array div(Array a, long b) throws Exception {
+        return typedOp(Expr.typed(Expr.DIV, true, false), "div", a, b);
+    }
+
+    public static Array le(Array a, double b) throws Exception {
+        return typedOp(Expr.typed(Expr.LE, false, false), "le", a, b);
+    }
+
+    public static Array le(Array a, int b) throws Exception {
+        return typedOp(Expr.typed(Expr.LE, true, false), "le", a, (double)b);
+    }
+
+    public static Array le(Array a, long b) throws Exception {
+        return typedOp(Expr.typed(Expr.LE, true, false), "le", a, b);
+    }
+
+    public static Array lt(Array a, double b) throws Exception {
+        return typedOp(Expr.typed(Expr.LT, false, false), "lt", a, b);
+    }
+
+    public static Array lt(Array a, int b) throws Exception {
+        return typedOp(Expr.typed(Expr.LT, true, false), "lt", a, (double)b);
+    }
+
+    public static Array lt(Array a, long b) throws Exception {
+        return typedOp(Expr.typed(Expr.LT, true, false), "lt", a, b);
+    }
+
+    public static Array ge(Array a, double b) throws Exception {
+        return typedOp(Expr.typed(Expr.GE, false, false), "ge", a, b);
+    }
+
+    public static Array ge(Array a, int b) throws Exception {
+        return typedOp(Expr.typed(Expr.GE, true, false), "ge", a, (double)b);
+    }
+
+    public static Array ge(Array a, long b) throws Exception {
+        return typedOp(Expr.typed(Expr.GE, true, false), "ge", a, b);
+    }
+
+    public static Array gt(Array a, double b) throws Exception {
+        return typedOp(Expr.typed(Expr.GT, false, false), "gt", a, b);
+    }
+
+    public static Array gt(Array a, int b) throws Exception {
+        return typedOp(Expr.typed(Expr.GT, true, false), "gt", a, (double)b);
+    }
+
+    public static Array gt(Array a, long b) throws Exception {
+        return typedOp(Expr.typed(Expr.GT, true, false), "gt", a, b);
+    }
+
+    public static Array eq(Array a, double b) throws Exception {
+        return typedOp(Expr.typed(Expr.EQ, false, false), "eq", a, b);
+    }
+
+    public static Array eq(Array a, int b) throws Exception {
+        return typedOp(Expr.typed(Expr.EQ, true, false), "eq", a, (double)b);
+    }
+
+    public static Array eq(Array a, long b) throws Exception {
+        return typedOp(Expr.typed(Expr.EQ, true, false), "eq", a, b);
+    }
+
+    public static Array ne(Array a, double b) throws Exception {
+        return typedOp(Expr.typed(Expr.NE, false, false), "ne", a, b);
+    }
+
+    public static Array ne(Array a, int b) throws Exception {
+        return typedOp(Expr.typed(Expr.NE, true, false), "ne", a, (double)b);
+    }
+
+    public static Array ne(Array a, long b) throws Exception {
+        return typedOp(Expr.typed(Expr.NE, true, false), "ne", a, b);
+    }
+
+    public static Array pow(Array a, double b) throws Exception {
+        return typedOp(Expr.typed(Expr.TYPED_POW, false, false), "pow", a, b);
+    }
+
+    public static Array pow(Array a, int b) throws Exception {
+        return typedOp(Expr.typed(Expr.TYPED_POW, true, false), "pow", a, (double)b);
+    }
+
+    public static Array pow(Array a, long b) throws Exception {
+        return typedOp(Expr.typed(Expr.TYPED_POW, true, false), "pow", a, b);
+    }
+
+    // Scalar op Array for every operator and scalar type. The commutative
+    // float forms reuse Array op scalar.
+
+    public static Array add(float a, Array b) throws Exception {
+        return add(b, a);
+    }
+
+    public static Array mul(float a, Array b) throws Exception {
+        return mul(b, a);
+    }
+
+    public static Array eq(float a, Array b) throws Exception {
+        return eq(b, a);
+    }
+
+    public static Array ne(float a, Array b) throws Exception {
+        return ne(b, a);
+    }
+
+    // Same as the double form
+    public static Array pow(float a, Array b) throws Exception {
+        return pow((double)a, b);
+    }
+
+    public static Array add(double a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.ADD, false, true), "add", b, a);
+    }
+
+    public static Array add(int a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.ADD, true, true), "add", b, (double)a);
+    }
+
+    public static Array add(long a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.ADD, true, true), "add", b, a);
+    }
+
+    public static Array sub(double a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.SUB, false, true), "sub", b, a);
+    }
+
+    public static Array sub(int a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.SUB, true, true), "sub", b, (double)a);
+    }
+
+    public static Array sub(long a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.SUB, true, true), "sub", b, a);
+    }
+
+    public static Array mul(double a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.MUL, false, true), "mul", b, a);
+    }
+
+    public static Array mul(int a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.MUL, true, true), "mul", b, (double)a);
+    }
+
+    public static Array mul(long a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.MUL, true, true), "mul", b, a);
+    }
+
+    public static Array div(double a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.DIV, false, true), "div", b, a);
+    }
+
+    public static Array div(int a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.DIV, true, true), "div", b, (double)a);
+    }
+
+    public static Array div(long a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.DIV, true, true), "div", b, a);
+    }
+
+    public static Array le(double a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.LE, false, true), "le", b, a);
+    }
+
+    public static Array le(int a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.LE, true, true), "le", b, (double)a);
+    }
+
+    public static Array le(long a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.LE, true, true), "le", b, a);
+    }
+
+    public static Array lt(double a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.LT, false, true), "lt", b, a);
+    }
+
+    public static Array lt(int a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.LT, true, true), "lt", b, (double)a);
+    }
+
+    public static Array lt(long a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.LT, true, true), "lt", b, a);
+    }
+
+    public static Array ge(double a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.GE, false, true), "ge", b, a);
+    }
+
+    public static Array ge(int a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.GE, true, true), "ge", b, (double)a);
+    }
+
+    public static Array ge(long a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.GE, true, true), "ge", b, a);
+    }
+
+    public static Array gt(double a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.GT, false, true), "gt", b, a);
+    }
+
+    public static Array gt(int a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.GT, true, true), "gt", b, (double)a);
+    }
+
+    public static Array gt(long a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.GT, true, true), "gt", b, a);
+    }
+
+    public static Array eq(double a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.EQ, false, true), "eq", b, a);
+    }
+
+    public static Array eq(int a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.EQ, true, true), "eq", b, (double)a);
+    }
+
+    public static Array eq(long a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.EQ, true, true), "eq", b, a);
+    }
+
+    public static Array ne(double a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.NE, false, true), "ne", b, a);
+    }
+
+    public static Array ne(int a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.NE, true, true), "ne", b, (double)a);
+    }
+
+    public static Array ne(long a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.NE, true, true), "ne", b, a);
+    }
+
+    public static Array pow(double a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.TYPED_POW, false, true), "pow", b, a);
+    }
+
+    public static Array pow(int a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.TYPED_POW, true, true), "pow", b, (double)a);
+    }
+
+    public static Array pow(long a, Array b) throws Exception {
+        return typedOp(Expr.typed(Expr.TYPED_POW, true, true), "pow", b, a);
+    }
+
+    // Output parameters
+    //
+    // add(a, b, out) and the other forms taking an out Array write the
+    // result into out instead of allocating a new Array. The native
+    // handle of out is kept and only its contents are replaced, so loops
+    // such as acc.addInPlace(x) do not create a handle per iteration.
+    // An out without contents, such as new Array(), is filled on first
+    // use. out may be one of the operands.
+    //
+    // These always run eagerly, even with lazy evaluation enabled. Any
+    // pending expression reading out is evaluated before out is written,
+    // so it keeps the result it would have had in eager mode.
+
+    // Handle of an output Array, which must not be null, or 0 if it
+    // holds no data yet. Pending expressions reading out are evaluated
+    // first.
+    private static long outHandle(Array out) throws Exception {
+        if (out == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null output Array provided");
+        if (out.expr != null) Expr.eval(out);
+        out.evalDependents();
+        return out.ref;
+    }
+
+    // Stores the handle returned by an output parameter native in out
+    private static Array storeOut(Array out, long res) throws Exception {
+        if (res == 0) throw ArrayFireException.last(null);
+        if (res != out.ref) {
+            out.set(res);
+            return out;
+        }
+        // The same handle may now hold another shape or type, and new
+        // memory, so it is checked against the limit like a new Array
+        out.meta = null;
+        if (MemoryManager.isLimited()) MemoryManager.allocated(out);
+        return out;
+    }
+
+    public static Array add(Array a, Array b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, addOut(outHandle(out), a.handle(), b.handle()));
+        Metrics.stop("add", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return out;
+    }
+
+    public static Array sub(Array a, Array b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, subOut(outHandle(out), a.handle(), b.handle()));
+        Metrics.stop("sub", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return out;
+    }
+
+    public static Array mul(Array a, Array b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, mulOut(outHandle(out), a.handle(), b.handle()));
+        Metrics.stop("mul", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return out;
+    }
+
+    public static Array div(Array a, Array b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, divOut(outHandle(out), a.handle(), b.handle()));
+        Metrics.stop("div", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return out;
+    }
+
+    public static Array le(Array a, Array b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, leOut(outHandle(out), a.handle(), b.handle()));
+        Metrics.stop("le", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return out;
+    }
+
+    public static Array lt(Array a, Array b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, ltOut(outHandle(out), a.handle(), b.handle()));
+        Metrics.stop("lt", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return out;
+    }
+
+    public static Array ge(Array a, Array b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, geOut(outHandle(out), a.handle(), b.handle()));
+        Metrics.stop("ge", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return out;
+    }
+
+    public static Array gt(Array a, Array b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, gtOut(outHandle(out), a.handle(), b.handle()));
+        Metrics.stop("gt", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return out;
+    }
+
+    public static Array eq(Array a, Array b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, eqOut(outHandle(out), a.handle(), b.handle()));
+        Metrics.stop("eq", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return out;
+    }
+
+    public static Array ne(Array a, Array b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, neOut(outHandle(out), a.handle(), b.handle()));
+        Metrics.stop("ne", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return out;
+    }
+
+    public static Array sin(Array a, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, sinOut(outHandle(out), a.handle()));
+        Metrics.stop("sin", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array cos(Array a, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, cosOut(outHandle(out), a.handle()));
+        Metrics.stop("cos", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array tan(Array a, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, tanOut(outHandle(out), a.handle()));
+        Metrics.stop("tan", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array asin(Array a, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, asinOut(outHandle(out), a.handle()));
+        Metrics.stop("asin", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array acos(Array a, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, acosOut(outHandle(out), a.handle()));
+        Metrics.stop("acos", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array atan(Array a, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, atanOut(outHandle(out), a.handle()));
+        Metrics.stop("atan", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array sinh(Array a, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, sinhOut(outHandle(out), a.handle()));
+        Metrics.stop("sinh", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array cosh(Array a, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, coshOut(outHandle(out), a.handle()));
+        Metrics.stop("cosh", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array tanh(Array a, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, tanhOut(outHandle(out), a.handle()));
+        Metrics.stop("tanh", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array asinh(Array a, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, asinhOut(outHandle(out), a.handle()));
+        Metrics.stop("asinh", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array acosh(Array a, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, acoshOut(outHandle(out), a.handle()));
+        Metrics.stop("acosh", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array atanh(Array a, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, atanhOut(outHandle(out), a.handle()));
+        Metrics.stop("atanh", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array exp(Array a, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, expOut(outHandle(out), a.handle()));
+        Metrics.stop("exp", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array log(Array a, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, logOut(outHandle(out), a.handle()));
+        Metrics.stop("log", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array abs(Array a, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, absOut(outHandle(out), a.handle()));
+        Metrics.stop("abs", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array sqrt(Array a, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, sqrtOut(outHandle(out), a.handle()));
+        Metrics.stop("sqrt", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array add(Array a, float b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, addfOut(outHandle(out), a.handle(), b));
+        Metrics.stop("add", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array sub(Array a, float b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, subfOut(outHandle(out), a.handle(), b));
+        Metrics.stop("sub", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array mul(Array a, float b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, mulfOut(outHandle(out), a.handle(), b));
+        Metrics.stop("mul", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array div(Array a, float b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, divfOut(outHandle(out), a.handle(), b));
+        Metrics.stop("div", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array le(Array a, float b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, lefOut(outHandle(out), a.handle(), b));
+        Metrics.stop("le", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array lt(Array a, float b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, ltfOut(outHandle(out), a.handle(), b));
+        Metrics.stop("lt", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array ge(Array a, float b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, gefOut(outHandle(out), a.handle(), b));
+        Metrics.stop("ge", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array gt(Array a, float b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, gtfOut(outHandle(out), a.handle(), b));
+        Metrics.stop("gt", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array eq(Array a, float b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, eqfOut(outHandle(out), a.handle(), b));
+        Metrics.stop("eq", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array ne(Array a, float b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, nefOut(outHandle(out), a.handle(), b));
+        Metrics.stop("ne", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array pow(Array a, float b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, powOut(outHandle(out), a.handle(), b));
+        Metrics.stop("pow", t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    private static Array typedOp(int op, String name, Array a, double b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, scalarOp(outHandle(out), op, a.handle(), b));
+        Metrics.stop(name, t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    private static Array typedOp(int op, String name, Array a, long b, Array out) throws Exception {
+        long t0 = Metrics.start();
+        storeOut(out, scalarOpLong(outHandle(out), op, a.handle(), b));
+        Metrics.stop(name, t0);
+        Reference.reachabilityFence(a);
+        return out;
+    }
+
+    public static Array add(Array a, double b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.ADD, false, false), "add", a, b, out);
+    }
+
+    public static Array add(Array a, int b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.ADD, true, false), "add", a, (double)b, out);
+    }
+
+    public static Array add(Array a, long b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.ADD, true, false), "add", a, b, out);
+    }
+
+    public static Array sub(Array a, double b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.SUB, false, false), "sub", a, b, out);
+    }
+
+    public static Array sub(Array a, int b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.SUB, true, false), "sub", a, (double)b, out);
+    }
+
+    public static Array sub(Array a, long b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.SUB, true, false), "sub", a, b, out);
+    }
+
+    public static Array mul(Array a, double b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.MUL, false, false), "mul", a, b, out);
+    }
+
+    public static Array mul(Array a, int b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.MUL, true, false), "mul", a, (double)b, out);
+    }
+
+    public static Array mul(Array a, long b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.MUL, true, false), "mul", a, b, out);
+    }
+
+    public static Array div(Array a, double b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.DIV, false, false), "div", a, b, out);
+    }
+
+    public static Array div(Array a, int b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.DIV, true, false), "div", a, (double)b, out);
+    }
+
+    public static Array div(Array a, long b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.DIV, true, false), "div", a, b, out);
+    }
+
+    public static Array le(Array a, double b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.LE, false, false), "le", a, b, out);
+    }
+
+    public static Array le(Array a, int b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.LE, true, false), "le", a, (double)b, out);
+    }
+
+    public static Array le(Array a, long b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.LE, true, false), "le", a, b, out);
+    }
+
+    public static Array lt(Array a, double b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.LT, false, false), "lt", a, b, out);
+    }
+
+    public static Array lt(Array a, int b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.LT, true, false), "lt", a, (double)b, out);
+    }
+
+    public static Array lt(Array a, long b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.LT, true, false), "lt", a, b, out);
+    }
+
+    public static Array ge(Array a, double b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.GE, false, false), "ge", a, b, out);
+    }
+
+    public static Array ge(Array a, int b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.GE, true, false), "ge", a, (double)b, out);
+    }
+
+    public static Array ge(Array a, long b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.GE, true, false), "ge", a, b, out);
+    }
+
+    public static Array gt(Array a, double b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.GT, false, false), "gt", a, b, out);
+    }
+
+    public static Array gt(Array a, int b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.GT, true, false), "gt", a, (double)b, out);
+    }
+
+    public static Array gt(Array a, long b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.GT, true, false), "gt", a, b, out);
+    }
+
+    public static Array eq(Array a, double b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.EQ, false, false), "eq", a, b, out);
+    }
+
+    public static Array eq(Array a, int b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.EQ, true, false), "eq", a, (double)b, out);
+    }
+
+    public static Array eq(Array a, long b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.EQ, true, false), "eq", a, b, out);
+    }
+
+    public static Array ne(Array a, double b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.NE, false, false), "ne", a, b, out);
+    }
+
+    public static Array ne(Array a, int b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.NE, true, false), "ne", a, (double)b, out);
+    }
+
+    public static Array ne(Array a, long b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.NE, true, false), "ne", a, b, out);
+    }
+
+    public static Array pow(Array a, double b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.TYPED_POW, false, false), "pow", a, b, out);
+    }
+
+    public static Array pow(Array a, int b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.TYPED_POW, true, false), "pow", a, (double)b, out);
+    }
+
+    public static Array pow(Array a, long b, Array out) throws Exception {
+        return typedOp(Expr.typed(Expr.TYPED_POW, true, false), "pow", a, b, out);
+    }
+
+    // Status codes
+    //
+    // The try forms below are the output parameter operations without
+    // exceptions. They return ArrayFireException.Success or the af_err
+    // code of the failure, so a tight loop can check a code per call.
+    // Failures allocate no exception, and successes allocate nothing
+    // once out holds a handle; only the first result stored in an empty
+    // out creates its handle. An operand that holds no data is reported
+    // by the native guard as InvalidArgument, one whose pending
+    // expression fails to evaluate by the code of that failure. Unary
+    // operations have no try forms as they cannot mismatch shapes or
+    // types.
+
+    // Code of an operand that failed to evaluate in the current try
+    // form, reported by status() in place of the guard's InvalidArgument
+    private static final ThreadLocal<int[]> evalFailure =
+        ThreadLocal.withInitial(() -> new int[1]);
+
+    // Handle of an operand for the try forms, 0 if there is none
+    private static long peek(Array a) {
+        if (a == null) return 0;
+        if (a.expr == null) return a.ref;
+        try {
+            return a.handle();
+        } catch (ArrayFireException e) {
+            evalFailure.get()[0] = e.code();
+            return 0;
+        } catch (Exception e) {
+            evalFailure.get()[0] = ArrayFireException.Unknown;
+            return 0;
+        }
+    }
+
+    // Status of evaluating the pending expressions reading out, which a
+    // try form must do before writing into it
+    private static int prepareOut(Array out) {
+        if (out == null) return ArrayFireException.InvalidArgument;
+        try {
+            out.evalDependents();
+            return ArrayFireException.Success;
+        } catch (ArrayFireException e) {
+            return e.code();
+        } catch (Exception e) {
+            return ArrayFireException.Unknown;
+        }
+    }
+
+    // Stores the handle returned by an output parameter native in out,
+    // returning the status of the call
+    private static int status(Array out, long res) {
+        if (res == 0) {
+            int code = ArrayFireException.takeCode();
+            int[] failed = evalFailure.get();
+            if (failed[0] != ArrayFireException.Success) {
+                code = failed[0];
+                failed[0] = ArrayFireException.Success;
+            }
+            return code;
+        }
+        try {
+            if (res == out.ref) {
+                out.meta = null;
+                if (MemoryManager.isLimited()) MemoryManager.allocated(out);
+            } else {
+                out.set(res);
+            }
+            return ArrayFireException.Success;
+        } catch (ArrayFireException e) {
+            return e.code();
+        } catch (Exception e) {
+            return ArrayFireException.Unknown;
+        }
+    }
+
+    public static int tryAdd(Array a, Array b, Array out) {
+        int pending = prepareOut(out);
+        if (pending != ArrayFireException.Success) return pending;
+        long t0 = Metrics.start();
+        long res = addOut(peek(out), peek(a), peek(b));
+        Metrics.stop("add", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return status(out, res);
+    }
+
+    public static int trySub(Array a, Array b, Array out) {
+        int pending = prepareOut(out);
+        if (pending != ArrayFireException.Success) return pending;
+        long t0 = Metrics.start();
+        long res = subOut(peek(out), peek(a), peek(b));
+        Metrics.stop("sub", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return status(out, res);
+    }
+
+    public static int tryMul(Array a, Array b, Array out) {
+        int pending = prepareOut(out);
+        if (pending != ArrayFireException.Success) return pending;
+        long t0 = Metrics.start();
+        long res = mulOut(peek(out), peek(a), peek(b));
+        Metrics.stop("mul", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return status(out, res);
+    }
+
+    public static int tryDiv(Array a, Array b, Array out) {
+        int pending = prepareOut(out);
+        if (pending != ArrayFireException.Success) return pending;
+        long t0 = Metrics.start();
+        long res = divOut(peek(out), peek(a), peek(b));
+        Metrics.stop("div", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return status(out, res);
+    }
+
+    public static int tryLe(Array a, Array b, Array out) {
+        int pending = prepareOut(out);
+        if (pending != ArrayFireException.Success) return pending;
+        long t0 = Metrics.start();
+        long res = leOut(peek(out), peek(a), peek(b));
+        Metrics.stop("le", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return status(out, res);
+    }
+
+    public static int tryLt(Array a, Array b, Array out) {
+        int pending = prepareOut(out);
+        if (pending != ArrayFireException.Success) return pending;
+        long t0 = Metrics.start();
+        long res = ltOut(peek(out), peek(a), peek(b));
+        Metrics.stop("lt", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return status(out, res);
+    }
+
+    public static int tryGe(Array a, Array b, Array out) {
+        int pending = prepareOut(out);
+        if (pending != ArrayFireException.Success) return pending;
+        long t0 = Metrics.start();
+        long res = geOut(peek(out), peek(a), peek(b));
+        Metrics.stop("ge", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return status(out, res);
+    }
+
+    public static int tryGt(Array a, Array b, Array out) {
+        int pending = prepareOut(out);
+        if (pending != ArrayFireException.Success) return pending;
+        long t0 = Metrics.start();
+        long res = gtOut(peek(out), peek(a), peek(b));
+        Metrics.stop("gt", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return status(out, res);
+    }
+
+    public static int tryEq(Array a, Array b, Array out) {
+        int pending = prepareOut(out);
+        if (pending != ArrayFireException.Success) return pending;
+        long t0 = Metrics.start();
+        long res = eqOut(peek(out), peek(a), peek(b));
+        Metrics.stop("eq", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return status(out, res);
+    }
+
+    public static int tryNe(Array a, Array b, Array out) {
+        int pending = prepareOut(out);
+        if (pending != ArrayFireException.Success) return pending;
+        long t0 = Metrics.start();
+        long res = neOut(peek(out), peek(a), peek(b));
+        Metrics.stop("ne", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
+        return status(out, res);
+    }
+
+    public static int tryAdd(Array a, float b, Array out) {
+        int pending = prepareOut(out);
+        if (pending != ArrayFireException.Success) return pending;
+        long t0 = Metrics.start();
+        long res = addfOut(peek(out), peek(a), b);
+        Metrics.stop("add", t0);
+        Reference.reachabilityFence(a);
+        return status(out, res);
+    }
+
+    public static int trySub(Array a, float b, Array out) {
+        int pending = prepareOut(out);
+        if (pending != ArrayFireException.Success) return pending;
+        long t0 = Metrics.start();
+        long res = subfOut(peek(out), peek(a), b);
+        Metrics.stop("sub", t0);
+        Reference.reachabilityFence(a);
+        return status(out, res);
+    }
+
+    public static int tryMul(Array a, float b, Array out) {
+        int pending = prepareOut(out);
+        if (pending != ArrayFireException.Success) return pending;
+        long t0 = Metrics.start();
+        long res = mulfOut(peek(out), peek(a), b);
+        Metrics.stop("mul", t0);
+        Reference.reachabilityFence(a);
+        return status(out, res);
+    }
+
+    public static int tryDiv(Array a, float b, Array out) {
+        int pending = prepareOut(out);
+        if (pending != ArrayFireException.Success) return pending;
+        long t0 = Metrics.start();
+        long res = divfOut(peek(out), peek(a), b);
+        Metrics.stop("div", t0);
+        Reference.reachabilityFence(a);
+        return status(out, res);
+    }
+
+    public static int tryLe(Array a, float b, Array out) {
+        int pending = prepareOut(out);
+        if (pending != ArrayFireException.Success) return pending;
+        long t0 = Metrics.start();
+        long res = lefOut(peek(out), peek(a), b);
+        Metrics.stop("le", t0);
+        Reference.reachabilityFence(a);
+        return status(out, res);
+    }
+
+    public static int tryLt(Array a, float b, Array out) {
+        int pending = prepareOut(out);
+        if (pending != ArrayFireException.Success) return pending;
+        long t0 = Metrics.start();
+        long res = ltfOut(peek(out), peek(a), b);
+        Metrics.stop("lt", t0);
+        Reference.reachabilityFence(a);
+        return status(out, res);
+    }
+
+    public static int tryGe(Array a, float b, Array out) {
+        int pending = prepareOut(out);
+        if (pending != ArrayFireException.Success) return pending;
+        long t0 = Metrics.start();
+        long res = gefOut(peek(out), peek(a), b);
+        Metrics.stop("ge", t0);
+        Reference.reachabilityFence(a);
+        return status(out, res);
+    }
+
+    public static int tryGt(Array a, float b, Array out) {
+        int pending = prepareOut(out);
+        if (pending != ArrayFireException.Success) return pending;
+        long t0 = Metrics.start();
+        long res = gtfOut(peek(out), peek(a), b);
+        Metrics.stop("gt", t0);
+        Reference.reachabilityFence(a);
+        return status(out, res);
+    }
+
+    public static int tryEq(Array a, float b, Array out) {
+        int pending = prepareOut(out);
+        if (pending != ArrayFireException.Success) return pending;
+        long t0 = Metrics.start();
+        long res = eqfOut(peek(out), peek(a), b);
+        Metrics.stop("eq", t0);
+        Reference.reachabilityFence(a);
+        return status(out, res);
+    }
+
+    public static int tryNe(Array a, float b, Array out) {
+        int pending = prepareOut(out);
+        if (pending != ArrayFireException.Success) return pending;
+        long t0 = Metrics.start();
+        long res = nefOut(peek(out), peek(a), b);
+        Metrics.stop("ne", t0);
+        Reference.reachabilityFence(a);
+        return status(out, res);
+    }
+
+    public static int tryPow(Array a, float b, Array out) {
+        int pending = prepareOut(out);
+        if (pending != ArrayFireException.Success) return pending;
+        long t0 = Metrics.start();
+        long res = powOut(peek(out), peek(a), b);
+        Metrics.stop("pow", t0);
+        Reference.reachabilityFence(a);
+        return status(out, res);
+    }
+
+    // In place arithmetic, this Array is both an operand and the output
+    public Array addInPlace(Array b) throws Exception {
+        return add(this, b, this);
+    }
+
+    public Array addInPlace(float b) throws Exception {
+        return add(this, b, this);
+    }
+
+    public Array addInPlace(double b) throws Exception {
+        return add(this, b, this);
+    }
+
+    public Array addInPlace(int b) throws Exception {
+        return add(this, b, this);
+    }
+
+    public Array addInPlace(long b) throws Exception {
+        return add(this, b, this);
+    }
+
+    public Array subInPlace(Array b) throws Exception {
+        return sub(this, b, this);
+    }
+
+    public Array subInPlace(float b) throws Exception {
+        return sub(this, b, this);
+    }
+
+    public Array subInPlace(double b) throws Exception {
+        return sub(this, b, this);
+    }
+
+    public Array subInPlace(int b) throws Exception {
+        return sub(this, b, this);
+    }
+
+    public Array subInPlace(long b) throws Exception {
+        return sub(this, b, this);
+    }
+
+    public Array mulInPlace(Array b) throws Exception {
+        return mul(this, b, this);
+    }
+
+    public Array mulInPlace(float b) throws Exception {
+        return mul(this, b, this);
+    }
+
+    public Array mulInPlace(double b) throws Exception {
+        return mul(this, b, this);
+    }
+
+    public Array mulInPlace(int b) throws Exception {
+        return mul(this, b, this);
+    }
+
+    public Array mulInPlace(long b) throws Exception {
+        return mul(this, b, this);
+    }
+
+    public Array divInPlace(Array b) throws Exception {
+        return div(this, b, this);
+    }
+
+    public Array divInPlace(float b) throws Exception {
+        return div(this, b, this);
+    }
+
+    public Array divInPlace(double b) throws Exception {
+        return div(this, b, this);
+    }
+
+    public Array divInPlace(int b) throws Exception {
+        return div(this, b, this);
+    }
+
+    public Array divInPlace(long b) throws Exception {
+        return div(this, b, this);
+    }
+
+    // Releases the native array. Calling close() more than once
+    // is allowed, later calls do nothing.
     @Override
     public void close() throws Exception {
-        if (ref != 0) destroyArray(ref);
+        release();
     }
 
 }
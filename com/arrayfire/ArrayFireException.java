@@ -0,0 +1,102 @@
+package com.arrayfire;
+
+// Failure reported by ArrayFire or by the wrapper, carrying the af_err
+// code of its cause. The subclasses group the codes callers usually
+// handle differently:
+//
+//   DeviceMemoryException    out of device memory, or over the soft
+//                            limit of MemoryManager
+//   InvalidArgumentException bad shapes, types or arguments, and
+//                            Arrays that hold no data
+//   UnsupportedException     operations the device or build lacks
+//   BackendException         driver, runtime and library loading errors
+//
+// Native methods signal failure through their return value and keep the
+// cause per thread, so building an exception costs nothing until a call
+// actually fails. Loops that cannot afford exceptions at all can use the
+// try forms of Array, which return these codes instead.
+public class ArrayFireException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    // af_err values
+    public static final int Success = 0;
+    public static final int NoMemory = 101;
+    public static final int DriverError = 102;
+    public static final int RuntimeError = 103;
+    public static final int InvalidArray = 201;
+    public static final int InvalidArgument = 202;
+    public static final int InvalidSize = 203;
+    public static final int InvalidType = 204;
+    public static final int DifferentTypes = 205;
+    public static final int BatchMismatch = 207;
+    public static final int InvalidDevice = 208;
+    public static final int NotSupported = 301;
+    public static final int NotConfigured = 302;
+    public static final int NonFree = 303;
+    public static final int NoDouble = 401;
+    public static final int NoGraphics = 402;
+    public static final int LoadLibrary = 501;
+    public static final int LoadSymbol = 502;
+    public static final int BackendMismatch = 503;
+    public static final int Internal = 998;
+    public static final int Unknown = 999;
+
+    private final int code;
+
+    public ArrayFireException(int code, String message) {
+        super(message);
+        this.code = code;
+    }
+
+    // af_err code of the failure
+    public int code() { return code; }
+
+    // Code of the last native failure on the calling thread, Unknown if
+    // the native method did not record one. Clears it.
+    static int takeCode() {
+        int code = Array.takeErrorCode();
+        return code == Success ? Unknown : code;
+    }
+
+    // Exception for the last native failure on the calling thread.
+    // context, if not null, says what was being done.
+    static ArrayFireException last(String context) {
+        String msg = Array.lastErrorMessage();
+        int code = takeCode();
+        if (msg == null) msg = context == null ? "ArrayFire call failed" : context;
+        else if (context != null) msg = context + ": " + msg;
+        return create(code, msg);
+    }
+
+    // Exception of the class matching code, also used by the
+    // com.arrayfire.ffm binding for codes returned by the C API
+    public static ArrayFireException create(int code, String msg) {
+        switch (code) {
+        case NoMemory:
+            return new DeviceMemoryException(msg);
+        case InvalidArray:
+        case InvalidArgument:
+        case InvalidSize:
+        case InvalidType:
+        case DifferentTypes:
+        case BatchMismatch:
+            return new InvalidArgumentException(code, msg);
+        case NotSupported:
+        case NotConfigured:
+        case NonFree:
+        case NoDouble:
+        case NoGraphics:
+            return new UnsupportedException(code, msg);
+        case DriverError:
+        case RuntimeError:
+        case InvalidDevice:
+        case LoadLibrary:
+        case LoadSymbol:
+        case BackendMismatch:
+            return new BackendException(code, msg);
+        default:
+            return new ArrayFireException(code, msg);
+        }
+    }
+}
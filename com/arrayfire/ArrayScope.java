@@ -0,0 +1,84 @@
+package com.arrayfire;
+
+import java.util.ArrayList;
+
+// Releases every Array created on this thread while the scope is open.
+//
+//     try (ArrayScope scope = ArrayScope.open()) {
+//         Array r = Array.add(Array.mul(x, x), Array.mul(y, y));
+//         return scope.escape(r);
+//     }
+//
+// Arrays are released together in a single native call when the scope
+// closes. Results that must outlive the scope are passed to escape(),
+// which hands them to the enclosing scope, or to nobody when there is
+// none. Scopes nest and belong to the thread that opened them. A lazy
+// Array joins the scope open when it is created, wherever it is later
+// evaluated.
+public class ArrayScope implements AutoCloseable {
+
+    private static final ThreadLocal<ArrayScope> current =
+        new ThreadLocal<ArrayScope>();
+
+    private final ArrayScope parent;
+    private final ArrayList<Array> arrays = new ArrayList<Array>();
+    private boolean closed;
+
+    private ArrayScope(ArrayScope parent) {
+        this.parent = parent;
+    }
+
+    public static ArrayScope open() {
+        ArrayScope scope = new ArrayScope(current.get());
+        current.set(scope);
+        return scope;
+    }
+
+    // Adds a newly created Array to the innermost open scope of the
+    // calling thread. Returns false when there is no such scope.
+    static boolean register(Array a) {
+        ArrayScope scope = current.get();
+        if (scope == null) return false;
+        scope.arrays.add(a);
+        return true;
+    }
+
+    // Keeps an Array alive after this scope closes
+    public <T extends Array> T escape(T a) throws Exception {
+        if (closed) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "ArrayScope already closed");
+
+        // Lazy results must be evaluated while their operands are alive
+        a.eval();
+        if (!arrays.remove(a)) return a;
+
+        if (parent != null && !parent.closed) {
+            parent.arrays.add(a);
+        } else {
+            a.unscope();
+        }
+        return a;
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+
+        if (current.get() == this) {
+            ArrayScope p = parent;
+            while (p != null && p.closed) p = p.parent;
+            if (p != null) current.set(p);
+            else current.remove();
+        }
+
+        long[] refs = new long[arrays.size()];
+        int count = 0;
+        for (Array a : arrays) {
+            long r = a.detach();
+            if (r != 0) refs[count++] = r;
+        }
+        arrays.clear();
+
+        if (count > 0) Array.destroyArrays(refs, count);
+    }
+}
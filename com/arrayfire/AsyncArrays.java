@@ -0,0 +1,244 @@
+package com.arrayfire;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs Array work on a small dedicated pool of threads and hands back
+// CompletableFutures, so request threads can keep preparing host data
+// while the device computes.
+//
+//     try (AsyncArrays async = new AsyncArrays()) {
+//         CompletableFuture<float[]> f = async.submit(() -> {
+//             Array r = Array.add(a, b);
+//             return r.getFloatArray();
+//         });
+//         ...
+//     }
+//
+// The pool owns the ArrayFire context, by default a single thread. At
+// most queueDepth tasks wait for a thread. When the queue is full,
+// submit() either blocks the caller or fails the returned future with a
+// RejectedExecutionException, depending on blockWhenFull.
+//
+// Cancelling a future drops the task if it has not started. Arrays
+// returned by a task whose future was cancelled meanwhile are closed,
+// except for the Array passed to eval(), which belongs to the caller.
+// Arrays created inside a task belong to the pool thread, so they are
+// not recorded by an ArrayScope of the submitting thread.
+//
+// ArrayFire binds the active backend and device per thread. Pool threads
+// use the preferred Backend like any other thread, and bind a device if
+// one is given before running their first task, so one pool per device
+// can drive several devices side by side. If the device cannot be selected, tasks fail with the
+// cause instead of running on another device.
+public class AsyncArrays implements AutoCloseable {
+
+    private static final AtomicInteger poolCount = new AtomicInteger();
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 60;
+
+    private final ThreadPoolExecutor executor;
+    private final int device;
+
+    // Whether the calling pool thread has bound its device
+    private final ThreadLocal<Boolean> bound = new ThreadLocal<Boolean>();
+
+    public AsyncArrays() {
+        this(1, 64, true);
+    }
+
+    public AsyncArrays(int threads, int queueDepth) {
+        this(threads, queueDepth, true);
+    }
+
+    public AsyncArrays(int threads, int queueDepth, boolean blockWhenFull) {
+        this(threads, queueDepth, blockWhenFull, -1);
+    }
+
+    // device < 0 leaves the pool threads on the default device
+    public AsyncArrays(int threads, int queueDepth, boolean blockWhenFull, final int device) {
+        if (threads < 1) throw new IllegalArgumentException("Need at least one thread");
+        if (queueDepth < 1) throw new IllegalArgumentException("Need a queue depth of at least one");
+
+        this.device = device;
+        final int pool = poolCount.incrementAndGet();
+        final AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "arrayfire-async-" + pool + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+
+        RejectedExecutionHandler handler = blockWhenFull
+            ? new BlockWhenFull()
+            : new ThreadPoolExecutor.AbortPolicy();
+
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                                          new ArrayBlockingQueue<Runnable>(queueDepth),
+                                          factory, handler);
+    }
+
+    // Puts the task in the queue, waiting for a free slot. Gives up if
+    // the pool closes meanwhile, since a task queued after the workers
+    // drained the queue and exited would never run.
+    private static final class BlockWhenFull implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            try {
+                while (true) {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("AsyncArrays is closed");
+                    }
+                    if (executor.getQueue().offer(r, 100, TimeUnit.MILLISECONDS)) break;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for queue space");
+            }
+            // Closed while queueing. If a worker took the task already it
+            // runs, otherwise it is taken back out.
+            if (executor.isShutdown() && executor.remove(r)) {
+                throw new RejectedExecutionException("AsyncArrays is closed");
+            }
+        }
+    }
+
+    // A queued task, keeping its future so close() can fail it if the
+    // task is dropped
+    private static final class Task<T> implements Runnable {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        final Callable<T> call;
+        final Object input;
+
+        Task(Callable<T> call, Object input) {
+            this.call = call;
+            this.input = input;
+        }
+
+        @Override
+        public void run() {
+            // Cancelled while queued
+            if (future.isDone()) return;
+            try {
+                T res = call.call();
+                if (!future.complete(res) && res != input) release(res);
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+    }
+
+    public <T> CompletableFuture<T> submit(final Callable<T> task) {
+        return submit(task, null);
+    }
+
+    // Binds the calling pool thread before its first task, retrying on
+    // the next task if it failed
+    private void bindThread() throws Exception {
+        if (bound.get() != null) return;
+        if (device >= 0) Array.setDevice(device);
+        bound.set(Boolean.TRUE);
+    }
+
+    // input is an Array of the caller that the task may return, which is
+    // not released if the future was cancelled meanwhile
+    private <T> CompletableFuture<T> submit(Callable<T> task, Object input) {
+        final Task<T> run = new Task<T>(() -> {
+            bindThread();
+            return task.call();
+        }, input);
+        final CompletableFuture<T> future = run.future;
+
+        try {
+            executor.execute(run);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        // Free the queue slot right away instead of when the task is reached
+        future.whenComplete((res, err) -> {
+            if (future.isCancelled()) executor.remove(run);
+        });
+        return future;
+    }
+
+    public CompletableFuture<Array> eval(final Array a) {
+        return submit(() -> a.eval(), a);
+    }
+
+    public CompletableFuture<float[]> getFloatArray(final Array a) {
+        return submit(() -> a.getFloatArray());
+    }
+
+    public CompletableFuture<double[]> getDoubleArray(final Array a) {
+        return submit(() -> a.getDoubleArray());
+    }
+
+    public CompletableFuture<int[]> getIntArray(final Array a) {
+        return submit(() -> a.getIntArray());
+    }
+
+    public CompletableFuture<Double> sumAll(final Array a) {
+        return submit(() -> Array.sumAll(a));
+    }
+
+    public CompletableFuture<Double> maxAll(final Array a) {
+        return submit(() -> Array.maxAll(a));
+    }
+
+    public CompletableFuture<Double> minAll(final Array a) {
+        return submit(() -> Array.minAll(a));
+    }
+
+    // Number of tasks waiting for a thread
+    public int pending() {
+        return executor.getQueue().size();
+    }
+
+    // Stops accepting tasks and waits up to a minute for the queued ones
+    // to finish
+    @Override
+    public void close() {
+        close(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // Returns whether all tasks finished in time. If not, or if the
+    // calling thread is interrupted, the tasks still queued are dropped
+    // with their futures failed and running ones are interrupted.
+    public boolean close(long timeout, TimeUnit unit) {
+        executor.shutdown();
+        boolean done;
+        try {
+            done = executor.awaitTermination(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            done = false;
+        }
+        if (!done) {
+            for (Runnable r : executor.shutdownNow()) {
+                ((Task<?>)r).future.completeExceptionally(
+                    new CancellationException("AsyncArrays closed before the task ran"));
+            }
+        }
+        return done;
+    }
+
+    private static void release(Object res) throws Exception {
+        if (res instanceof Array) {
+            ((Array)res).close();
+        } else if (res instanceof Array[]) {
+            for (Array a : (Array[])res) {
+                if (a != null) a.close();
+            }
+        }
+    }
+}
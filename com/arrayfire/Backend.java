@@ -0,0 +1,131 @@
+package com.arrayfire;
+
+// Selects the ArrayFire backend at runtime and reports which backend
+// and device are active.
+//
+// Built against ArrayFire's unified library (make unified), the same
+// wrapper runs on whichever of the CPU, CUDA and OpenCL backends are
+// installed. Built against a single backend, that one is the only
+// backend available.
+//
+// Start the JVM with -Darrayfire.backend=cpu, cuda or opencl to choose
+// one when the library loads, before any other backend is initialized.
+// -Darrayfire.library overrides the name of the JNI library, af_java by
+// default.
+//
+// Like the device, ArrayFire keeps the active backend per thread. Every
+// thread is bound to the preferred backend, the one chosen through
+// arrayfire.backend or set(), on its first native call. Without either,
+// threads use ArrayFire's own choice, the first available of CUDA,
+// OpenCL and CPU. set() binds the calling thread right away, while
+// threads that already made calls keep their backend until they call
+// bind(). An Array can only be used with the backend that created it.
+public final class Backend {
+
+    // af::Backend values, available() combines them as bits
+    public static final int Default = 0;
+    public static final int CPU = 1;
+    public static final int CUDA = 2;
+    public static final int OpenCL = 4;
+
+    private static boolean loaded = false;
+    private static volatile int preferred = Default;
+
+    static {
+        load();
+    }
+
+    private native static boolean init(int backend);
+    private native static boolean setBackend(int backend);
+    private native static int     getActiveBackend();
+    private native static int     getAvailableBackends();
+    private native static String  deviceInfo();
+
+    private Backend() {}
+
+    // Loads the JNI library and applies arrayfire.backend. Classes with
+    // native methods call it from their static initializer.
+    static synchronized void load() {
+        if (loaded) return;
+        System.loadLibrary(System.getProperty("arrayfire.library", "af_java"));
+        loaded = true;
+
+        String prop = System.getProperty("arrayfire.backend");
+        int backend = prop == null ? Default : parse(prop);
+        if (backend < 0) {
+            throw new IllegalArgumentException("Unknown ArrayFire backend " + prop
+                                               + ", expected cpu, cuda or opencl");
+        }
+        if (!init(backend)) {
+            throw new IllegalStateException("ArrayFire backend " + prop + " is not available");
+        }
+        preferred = backend;
+    }
+
+    private static int parse(String name) {
+        switch (name.trim().toLowerCase()) {
+        case "default": return Default;
+        case "cpu": return CPU;
+        case "cuda": return CUDA;
+        case "opencl": return OpenCL;
+        default: return -1;
+        }
+    }
+
+    public static String name(int backend) {
+        switch (backend) {
+        case Default: return "Default";
+        case CPU: return "CPU";
+        case CUDA: return "CUDA";
+        case OpenCL: return "OpenCL";
+        default: return "Unknown";
+        }
+    }
+
+    // Binds the calling thread to backend and makes it the preferred one
+    public static void set(int backend) throws Exception {
+        if (backend != Default && backend != CPU && backend != CUDA && backend != OpenCL) {
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Unknown backend");
+        }
+        if (!setBackend(backend)) {
+            throw ArrayFireException.last("Backend " + name(backend) + " is not available");
+        }
+        preferred = backend;
+    }
+
+    // Binds the calling thread to the preferred backend, for threads
+    // that made calls before set() changed it
+    public static void bind() throws Exception {
+        int backend = preferred;
+        if (backend != Default && !setBackend(backend)) {
+            throw ArrayFireException.last("Backend " + name(backend) + " is not available");
+        }
+    }
+
+    // Backend of the calling thread
+    public static int active() {
+        return getActiveBackend();
+    }
+
+    // Preferred backend set through arrayfire.backend or set()
+    public static int preferred() {
+        return preferred;
+    }
+
+    // Bits of the backends that can be loaded
+    public static int available() {
+        return getAvailableBackends();
+    }
+
+    public static boolean isAvailable(int backend) {
+        return backend != Default && (available() & backend) == backend;
+    }
+
+    // Active backend and device of the calling thread, e.g.
+    // "CPU device 0: Intel(R) Xeon(R) ..., ..."
+    public static String info() {
+        String dev = deviceInfo();
+        return name(active()) + " device " + Array.getDevice()
+            + (dev == null ? "" : ": " + dev);
+    }
+}
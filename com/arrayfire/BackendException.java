@@ -0,0 +1,12 @@
+package com.arrayfire;
+
+// Thrown for driver and runtime errors, invalid devices, and backend
+// libraries that fail to load
+public class BackendException extends ArrayFireException {
+
+    private static final long serialVersionUID = 1L;
+
+    public BackendException(int code, String message) {
+        super(code, message);
+    }
+}
@@ -0,0 +1,207 @@
+package com.arrayfire;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Records a sequence of Array operations and runs all of them in a
+// single native call.
+//
+//     CommandBatch batch = new CommandBatch();
+//     int x = batch.input(xs);
+//     int y = batch.input(ys);
+//     int r = batch.add(batch.mul(x, x), batch.mul(y, y));
+//     batch.output(batch.sumAll(batch.ltf(r, 1)));
+//     Array[] res = batch.execute();
+//
+// Every method returns a register id naming its result, which later
+// operations take as operands. Operations are stored in primitive
+// arrays in the program format described in Expr. execute() returns one
+// Array per register passed to output(), or the result of the last
+// operation when output() was never called. A batch can be cleared and
+// recorded again, reusing its storage.
+public class CommandBatch {
+
+    private final ArrayList<Array> inputs = new ArrayList<Array>();
+    private final ArrayList<Integer> outputs = new ArrayList<Integer>();
+
+    private int[] code = new int[16 * Expr.INSTR_SIZE];
+    private double[] scalars = new double[16];
+
+    // Register id per input, or -1 for registers holding results
+    private int[] inputOf = new int[32];
+
+    private int ninstrs;
+    private int nscalars;
+    private int nregs;
+
+    public CommandBatch() {}
+
+    // Makes an Array available to the batch
+    public int input(Array a) throws Exception {
+        if (a == null) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Null input provided");
+        inputs.add(a);
+        return newRegister(inputs.size() - 1);
+    }
+
+    // Marks a register to be returned from execute()
+    public void output(int reg) throws Exception {
+        checkRegister(reg);
+        outputs.add(reg);
+    }
+
+    // Binary operations
+    public int add(int a, int b) throws Exception { return record(Expr.ADD, a, b, 0); }
+    public int sub(int a, int b) throws Exception { return record(Expr.SUB, a, b, 0); }
+    public int mul(int a, int b) throws Exception { return record(Expr.MUL, a, b, 0); }
+    public int div(int a, int b) throws Exception { return record(Expr.DIV, a, b, 0); }
+    public int le(int a, int b) throws Exception { return record(Expr.LE, a, b, 0); }
+    public int lt(int a, int b) throws Exception { return record(Expr.LT, a, b, 0); }
+    public int ge(int a, int b) throws Exception { return record(Expr.GE, a, b, 0); }
+    public int gt(int a, int b) throws Exception { return record(Expr.GT, a, b, 0); }
+    public int eq(int a, int b) throws Exception { return record(Expr.EQ, a, b, 0); }
+    public int ne(int a, int b) throws Exception { return record(Expr.NE, a, b, 0); }
+
+    // Unary operations
+    public int sin(int a) throws Exception { return record(Expr.SIN, a, -1, 0); }
+    public int cos(int a) throws Exception { return record(Expr.COS, a, -1, 0); }
+    public int tan(int a) throws Exception { return record(Expr.TAN, a, -1, 0); }
+    public int asin(int a) throws Exception { return record(Expr.ASIN, a, -1, 0); }
+    public int acos(int a) throws Exception { return record(Expr.ACOS, a, -1, 0); }
+    public int atan(int a) throws Exception { return record(Expr.ATAN, a, -1, 0); }
+    public int sinh(int a) throws Exception { return record(Expr.SINH, a, -1, 0); }
+    public int cosh(int a) throws Exception { return record(Expr.COSH, a, -1, 0); }
+    public int tanh(int a) throws Exception { return record(Expr.TANH, a, -1, 0); }
+    public int asinh(int a) throws Exception { return record(Expr.ASINH, a, -1, 0); }
+    public int acosh(int a) throws Exception { return record(Expr.ACOSH, a, -1, 0); }
+    public int atanh(int a) throws Exception { return record(Expr.ATANH, a, -1, 0); }
+    public int exp(int a) throws Exception { return record(Expr.EXP, a, -1, 0); }
+    public int log(int a) throws Exception { return record(Expr.LOG, a, -1, 0); }
+    public int abs(int a) throws Exception { return record(Expr.ABS, a, -1, 0); }
+    public int sqrt(int a) throws Exception { return record(Expr.SQRT, a, -1, 0); }
+
+    // Scalar operations, named after the native Array methods so an
+    // int literal is never mistaken for a register id
+    public int addf(int a, float b) throws Exception { return scalar(Expr.ADDF, a, b); }
+    public int subf(int a, float b) throws Exception { return scalar(Expr.SUBF, a, b); }
+    public int mulf(int a, float b) throws Exception { return scalar(Expr.MULF, a, b); }
+    public int divf(int a, float b) throws Exception { return scalar(Expr.DIVF, a, b); }
+    public int lef(int a, float b) throws Exception { return scalar(Expr.LEF, a, b); }
+    public int ltf(int a, float b) throws Exception { return scalar(Expr.LTF, a, b); }
+    public int gef(int a, float b) throws Exception { return scalar(Expr.GEF, a, b); }
+    public int gtf(int a, float b) throws Exception { return scalar(Expr.GTF, a, b); }
+    public int eqf(int a, float b) throws Exception { return scalar(Expr.EQF, a, b); }
+    public int nef(int a, float b) throws Exception { return scalar(Expr.NEF, a, b); }
+    public int pow(int a, float b) throws Exception { return scalar(Expr.POW, a, b); }
+    public int fsub(float a, int b) throws Exception { return scalar(Expr.FSUB, b, a); }
+    public int fdiv(float a, int b) throws Exception { return scalar(Expr.FDIV, b, a); }
+    public int fle(float a, int b) throws Exception { return scalar(Expr.FLE, b, a); }
+    public int flt(float a, int b) throws Exception { return scalar(Expr.FLT, b, a); }
+    public int fge(float a, int b) throws Exception { return scalar(Expr.FGE, b, a); }
+    public int fgt(float a, int b) throws Exception { return scalar(Expr.FGT, b, a); }
+
+    // Reductions
+    public int sum(int a, int dim) throws Exception { return record(Expr.SUM, a, -1, dim); }
+    public int max(int a, int dim) throws Exception { return record(Expr.MAX, a, -1, dim); }
+    public int min(int a, int dim) throws Exception { return record(Expr.MIN, a, -1, dim); }
+    public int sum(int a) throws Exception { return record(Expr.SUM, a, -1, -1); }
+    public int max(int a) throws Exception { return record(Expr.MAX, a, -1, -1); }
+    public int min(int a) throws Exception { return record(Expr.MIN, a, -1, -1); }
+    public int sumAll(int a) throws Exception { return record(Expr.SUM_ALL, a, -1, 0); }
+    public int maxAll(int a) throws Exception { return record(Expr.MAX_ALL, a, -1, 0); }
+    public int minAll(int a) throws Exception { return record(Expr.MIN_ALL, a, -1, 0); }
+
+    // Fourier transforms
+    public int fft(int a) throws Exception { return record(Expr.FFT, a, -1, 0); }
+    public int fft2(int a) throws Exception { return record(Expr.FFT2, a, -1, 0); }
+    public int fft3(int a) throws Exception { return record(Expr.FFT3, a, -1, 0); }
+    public int ifft(int a) throws Exception { return record(Expr.IFFT, a, -1, 0); }
+    public int ifft2(int a) throws Exception { return record(Expr.IFFT2, a, -1, 0); }
+    public int ifft3(int a) throws Exception { return record(Expr.IFFT3, a, -1, 0); }
+
+    public Array[] execute() throws Exception {
+        if (ninstrs == 0 && outputs.isEmpty()) {
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Empty CommandBatch");
+        }
+
+        // Inputs come first in the program, results follow in the
+        // order they were recorded
+        int[] map = new int[nregs];
+        int next = inputs.size();
+        for (int r = 0; r < nregs; r++) {
+            map[r] = inputOf[r] >= 0 ? inputOf[r] : next++;
+        }
+
+        int[] prog = Arrays.copyOf(code, ninstrs * Expr.INSTR_SIZE);
+        for (int i = 0; i < prog.length; i += Expr.INSTR_SIZE) {
+            prog[i + 1] = map[prog[i + 1]];
+            if (prog[i + 2] >= 0) prog[i + 2] = map[prog[i + 2]];
+        }
+
+        int[] outs;
+        if (outputs.isEmpty()) {
+            outs = new int[] { map[nregs - 1] };
+        } else {
+            outs = new int[outputs.size()];
+            for (int i = 0; i < outs.length; i++) outs[i] = map[outputs.get(i)];
+        }
+
+        long[] handles = new long[inputs.size()];
+        for (int i = 0; i < handles.length; i++) {
+            handles[i] = inputs.get(i).handle();
+        }
+
+        long t0 = Metrics.start();
+        long[] res = Array.evalProgram(prog, handles, scalars, outs);
+        Metrics.stop("CommandBatch.execute", t0);
+        Reference.reachabilityFence(inputs);
+        if (res == null) throw ArrayFireException.last("Failed to execute CommandBatch");
+
+        return Array.wrap(res);
+    }
+
+    // Forgets all recorded operations and inputs
+    public void clear() {
+        inputs.clear();
+        outputs.clear();
+        ninstrs = 0;
+        nscalars = 0;
+        nregs = 0;
+    }
+
+    private int scalar(int op, int a, float b) throws Exception {
+        if (nscalars == scalars.length) {
+            scalars = Arrays.copyOf(scalars, 2 * scalars.length);
+        }
+        scalars[nscalars] = b;
+        return record(op, a, -1, nscalars++);
+    }
+
+    private int record(int op, int a, int b, int imm) throws Exception {
+        checkRegister(a);
+        if (b >= 0) checkRegister(b);
+
+        int pos = ninstrs * Expr.INSTR_SIZE;
+        if (pos == code.length) {
+            code = Arrays.copyOf(code, 2 * code.length);
+        }
+        code[pos    ] = op;
+        code[pos + 1] = a;
+        code[pos + 2] = b;
+        code[pos + 3] = imm;
+        ninstrs++;
+        return newRegister(-1);
+    }
+
+    private int newRegister(int input) {
+        if (nregs == inputOf.length) {
+            inputOf = Arrays.copyOf(inputOf, 2 * inputOf.length);
+        }
+        inputOf[nregs] = input;
+        return nregs++;
+    }
+
+    private void checkRegister(int reg) throws Exception {
+        if (reg < 0 || reg >= nregs) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Unknown register " + reg);
+    }
+}
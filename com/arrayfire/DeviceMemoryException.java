@@ -0,0 +1,11 @@
+package com.arrayfire;
+
+// Thrown when device memory runs out
+public class DeviceMemoryException extends ArrayFireException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DeviceMemoryException(String message) {
+        super(NoMemory, message);
+    }
+}
@@ -0,0 +1,226 @@
+package com.arrayfire;
+
+import java.lang.ref.Reference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+// A recorded operation of a lazy Array, and the program format used to
+// evaluate a whole expression in one native call.
+//
+// A program works on a list of registers. The first registers hold the
+// input handles and every instruction appends one more. An instruction
+// is INSTR_SIZE ints: opcode, first operand register, second operand
+// register and an immediate. The immediate indexes the scalar table for
+// scalar operations and holds the dimension for reductions along a
+// dimension. Opcodes must match the Opcode enum in java_wrapper.cpp.
+final class Expr {
+
+    static final int INSTR_SIZE = 4;
+
+    // Binary operations
+    static final int ADD = 0;
+    static final int SUB = 1;
+    static final int MUL = 2;
+    static final int DIV = 3;
+    static final int LE  = 4;
+    static final int LT  = 5;
+    static final int GE  = 6;
+    static final int GT  = 7;
+    static final int EQ  = 8;
+    static final int NE  = 9;
+
+    // Unary operations
+    static final int SIN   = 10;
+    static final int COS   = 11;
+    static final int TAN   = 12;
+    static final int ASIN  = 13;
+    static final int ACOS  = 14;
+    static final int ATAN  = 15;
+    static final int SINH  = 16;
+    static final int COSH  = 17;
+    static final int TANH  = 18;
+    static final int ASINH = 19;
+    static final int ACOSH = 20;
+    static final int ATANH = 21;
+    static final int EXP   = 22;
+    static final int LOG   = 23;
+    static final int ABS   = 24;
+    static final int SQRT  = 25;
+
+    // Array op scalar
+    static final int ADDF = 26;
+    static final int SUBF = 27;
+    static final int MULF = 28;
+    static final int DIVF = 29;
+    static final int LEF  = 30;
+    static final int LTF  = 31;
+    static final int GEF  = 32;
+    static final int GTF  = 33;
+    static final int EQF  = 34;
+    static final int NEF  = 35;
+    static final int POW  = 36;
+
+    // Scalar op Array
+    static final int FSUB = 37;
+    static final int FDIV = 38;
+    static final int FLE  = 39;
+    static final int FLT  = 40;
+    static final int FGE  = 41;
+    static final int FGT  = 42;
+
+    // Reductions, SUM, MAX and MIN reduce along the immediate
+    static final int SUM     = 43;
+    static final int MAX     = 44;
+    static final int MIN     = 45;
+    static final int SUM_ALL = 46;
+    static final int MAX_ALL = 47;
+    static final int MIN_ALL = 48;
+
+    // Fourier transforms
+    static final int FFT   = 49;
+    static final int FFT2  = 50;
+    static final int FFT3  = 51;
+    static final int IFFT  = 52;
+    static final int IFFT2 = 53;
+    static final int IFFT3 = 54;
+
+    // Typed scalar operations, TYPED + 4 * operator + kind + side where
+    // operator is ADD to NE or TYPED_POW, kind is TYPED_INT for integer
+    // scalars and side is TYPED_REVERSE for scalar op Array
+    static final int TYPED         = 55;
+    static final int TYPED_POW     = 10;
+    static final int TYPED_INT     = 2;
+    static final int TYPED_REVERSE = 1;
+
+    static int typed(int operator, boolean integer, boolean reverse) {
+        return TYPED + 4 * operator + (integer ? TYPED_INT : 0) + (reverse ? TYPED_REVERSE : 0);
+    }
+
+    final int op;
+    final Array a;
+    final Array b;
+    final double scalar;
+
+    private Expr(int op, Array a, Array b, double scalar) {
+        this.op = op;
+        this.a = a;
+        this.b = b;
+        this.scalar = scalar;
+    }
+
+    static Array lazy(int op, Array a) {
+        return lazy(new Expr(op, a, null, 0));
+    }
+
+    static Array lazy(int op, Array a, Array b) {
+        return lazy(new Expr(op, a, b, 0));
+    }
+
+    // For scalar operations a is the Array operand, the opcode tells
+    // which side the scalar is on
+    static Array lazy(int op, Array a, double scalar) {
+        return lazy(new Expr(op, a, null, scalar));
+    }
+
+    private static Array lazy(Expr e) {
+        Array ret_val = new Array();
+        ret_val.expr = e;
+        e.a.addDependent(ret_val);
+        if (e.b != null && e.b != e.a) e.b.addDependent(ret_val);
+        ret_val.register();
+        return ret_val;
+    }
+
+    // Compiles the expression behind root into a program, runs it and
+    // stores the resulting handle in root. Threads evaluating the same
+    // Array wait for the first one instead of evaluating it again.
+    static void eval(Array root) throws Exception {
+        synchronized (root) {
+            if (root.expr != null) evalLocked(root);
+        }
+    }
+
+    private static void evalLocked(Array root) throws Exception {
+        ArrayList<Array> inputs = new ArrayList<Array>();
+        ArrayList<Array> nodes = new ArrayList<Array>();
+        ArrayList<Expr> exprs = new ArrayList<Expr>();
+        IdentityHashMap<Array, Integer> regs = new IdentityHashMap<Array, Integer>();
+
+        // Post order walk, so operands always come before their users. Only
+        // root is locked, another thread may evaluate a shared operand and
+        // clear its expr at any time, so the Expr read here is kept and
+        // compiled rather than read again.
+        ArrayDeque<Array> stack = new ArrayDeque<Array>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Array n = stack.peek();
+            if (regs.containsKey(n)) {
+                stack.pop();
+                continue;
+            }
+
+            Expr e = n.expr;
+            if (e == null) {
+                regs.put(n, -1);
+                inputs.add(n);
+                stack.pop();
+                continue;
+            }
+
+            boolean ready = true;
+            if (e.b != null && !regs.containsKey(e.b)) {
+                stack.push(e.b);
+                ready = false;
+            }
+            if (!regs.containsKey(e.a)) {
+                stack.push(e.a);
+                ready = false;
+            }
+            if (ready) {
+                regs.put(n, -1);
+                nodes.add(n);
+                exprs.add(e);
+                stack.pop();
+            }
+        }
+
+        long[] handles = new long[inputs.size()];
+        for (int i = 0; i < handles.length; i++) {
+            Array in = inputs.get(i);
+            if (in.ref == 0) {
+                throw ArrayFireException.create(ArrayFireException.InvalidArray,
+                                                "Expression operand has been released");
+            }
+            handles[i] = in.ref;
+            regs.put(in, i);
+        }
+
+        int[] code = new int[INSTR_SIZE * nodes.size()];
+        double[] scalars = new double[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            Array n = nodes.get(i);
+            Expr e = exprs.get(i);
+            regs.put(n, handles.length + i);
+
+            code[INSTR_SIZE * i    ] = e.op;
+            code[INSTR_SIZE * i + 1] = regs.get(e.a);
+            code[INSTR_SIZE * i + 2] = e.b == null ? -1 : regs.get(e.b);
+            code[INSTR_SIZE * i + 3] = i;
+            scalars[i] = e.scalar;
+        }
+
+        int[] outputs = new int[] { regs.get(root) };
+        long t0 = Metrics.start();
+        long[] res = Array.evalProgram(code, handles, scalars, outputs);
+        Metrics.stop("eval", t0);
+        Reference.reachabilityFence(inputs);
+
+        if (res == null || res[0] == 0) {
+            throw ArrayFireException.last("Failed to evaluate expression");
+        }
+
+        root.set(res[0], false);
+        root.expr = null;
+    }
+}
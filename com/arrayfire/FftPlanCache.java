@@ -0,0 +1,54 @@
+package com.arrayfire;
+
+import java.util.HashMap;
+
+// Size of ArrayFire's FFT plan cache.
+//
+// Planning a transform with cuFFT, clFFT or FFTW costs far more than
+// running a small one. ArrayFire keeps the plans it made last, five by
+// default on each device, and a transform with the same kind, precision,
+// sizes and batch as a cached plan skips planning. A loop going through
+// more distinct shapes than the cache holds plans again on every call,
+// so the size should cover the shapes in use at the same time.
+//
+// Each backend and device has its own cache. All methods act on the
+// active backend and device of the calling thread.
+//
+// ArrayFire does not report cache hits. To see whether planning is the
+// cost, compare the first transform of a shape with later ones through
+// Metrics.
+public class FftPlanCache {
+
+    private static final int DEFAULT_SIZE = 5;
+
+    // Sizes set per backend and device, see key()
+    private static final HashMap<Long, Integer> sizes = new HashMap<Long, Integer>();
+
+    private FftPlanCache() {}
+
+    private static long key() {
+        return ((long)Backend.active() << 32) | (Array.getDevice() & 0xFFFFFFFFL);
+    }
+
+    // Number of plans kept on the current device, 0 disables caching
+    public static synchronized void setSize(int plans) throws Exception {
+        if (plans < 0) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Cache size must not be negative");
+        if (!Array.setFftPlanCacheSize(plans)) {
+            throw ArrayFireException.last("Failed to set FFT plan cache size");
+        }
+        sizes.put(key(), plans);
+    }
+
+    public static synchronized int getSize() {
+        Integer size = sizes.get(key());
+        return size == null ? DEFAULT_SIZE : size;
+    }
+
+    // Drops the plans cached on the current device, keeping the size
+    public static synchronized void clear() throws Exception {
+        int size = getSize();
+        if (!Array.setFftPlanCacheSize(0) || !Array.setFftPlanCacheSize(size)) {
+            throw ArrayFireException.last("Failed to clear FFT plan cache");
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.arrayfire;
 
+import java.lang.ref.Reference;
+
 public class Image extends Array {
 
     private native static long erode    (long a, long b);
@@ -23,55 +25,85 @@ public class Image extends Array {
 
     public static Image erode(Image a, Image b) throws Exception {
         Image ret_val = new Image();
-        ret_val.ref = erode(a.ref,b.ref);
+        long t0 = Metrics.start();
+        ret_val.set(erode(a.handle(),b.handle()));
+        Metrics.stop("erode", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
         return ret_val;
     }
 
     public static Image dilate(Image a, Image b) throws Exception {
         Image ret_val = new Image();
-        ret_val.ref = dilate(a.ref,b.ref);
+        long t0 = Metrics.start();
+        ret_val.set(dilate(a.handle(),b.handle()));
+        Metrics.stop("dilate", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
         return ret_val;
     }
 
     public static Image convolve(Image a, Image b) throws Exception {
         Image ret_val = new Image();
-        ret_val.ref = convolve(a.ref,b.ref);
+        long t0 = Metrics.start();
+        ret_val.set(convolve(a.handle(),b.handle()));
+        Metrics.stop("convolve", t0);
+        Reference.reachabilityFence(a);
+        Reference.reachabilityFence(b);
         return ret_val;
     }
 
     public static Image medianfilter(Image a, int width, int height) throws Exception {
         Image ret_val = new Image();
-        ret_val.ref = medfilt(a.ref,width,height);
+        long t0 = Metrics.start();
+        ret_val.set(medfilt(a.handle(),width,height));
+        Metrics.stop("medianfilter", t0);
+        Reference.reachabilityFence(a);
         return ret_val;
     }
 
     public static Image bilateral(Image a, float space, float color) throws Exception {
         Image ret_val = new Image();
-        ret_val.ref = bilateral(a.ref,space,color);
+        long t0 = Metrics.start();
+        ret_val.set(bilateral(a.handle(),space,color));
+        Metrics.stop("bilateral", t0);
+        Reference.reachabilityFence(a);
         return ret_val;
     }
 
     public static Image meanshift(Image a, float space, float color, int iterations) throws Exception {
         Image ret_val = new Image();
-        ret_val.ref = meanshift(a.ref,space,color,iterations);
+        long t0 = Metrics.start();
+        ret_val.set(meanshift(a.handle(),space,color,iterations));
+        Metrics.stop("meanshift", t0);
+        Reference.reachabilityFence(a);
         return ret_val;
     }
 
     public static Image histogram(Image a, int nbins) throws Exception {
         Image ret_val = new Image();
-        ret_val.ref = histogram(a.ref,nbins);
+        long t0 = Metrics.start();
+        ret_val.set(histogram(a.handle(),nbins));
+        Metrics.stop("histogram", t0);
+        Reference.reachabilityFence(a);
         return ret_val;
     }
 
     public static Image histogram(Image a, int nbins, float min, float max) throws Exception {
         Image ret_val = new Image();
-        ret_val.ref = hist_mnmx(a.ref,nbins,min,max);
+        long t0 = Metrics.start();
+        ret_val.set(hist_mnmx(a.handle(),nbins,min,max));
+        Metrics.stop("histogram", t0);
+        Reference.reachabilityFence(a);
         return ret_val;
     }
 
     public static Image rotate(Image a, float theta, boolean crop) throws Exception {
         Image ret_val = new Image();
-        ret_val.ref = rotate(a.ref,theta,crop);
+        long t0 = Metrics.start();
+        ret_val.set(rotate(a.handle(),theta,crop));
+        Metrics.stop("rotate", t0);
+        Reference.reachabilityFence(a);
         return ret_val;
     }
 
@@ -79,19 +111,28 @@ public class Image extends Array {
     // or 'N' - Nearest neighbor
     public static Image resize(Image a, float scale, char method) throws Exception {
         Image ret_val = new Image();
-        ret_val.ref = resize1(a.ref,scale,method);
+        long t0 = Metrics.start();
+        ret_val.set(resize1(a.handle(),scale,method));
+        Metrics.stop("resize", t0);
+        Reference.reachabilityFence(a);
         return ret_val;
     }
 
     public static Image resize(Image a, float scalex, float scaley, char method) throws Exception {
         Image ret_val = new Image();
-        ret_val.ref = resize2(a.ref,scalex,scaley,method);
+        long t0 = Metrics.start();
+        ret_val.set(resize2(a.handle(),scalex,scaley,method));
+        Metrics.stop("resize", t0);
+        Reference.reachabilityFence(a);
         return ret_val;
     }
 
     public static Image resize(Image a, int height, int width, char method) throws Exception {
         Image ret_val = new Image();
-        ret_val.ref = resize3(a.ref,height,width,method);
+        long t0 = Metrics.start();
+        ret_val.set(resize3(a.handle(),height,width,method));
+        Metrics.stop("resize", t0);
+        Reference.reachabilityFence(a);
         return ret_val;
     }
 
@@ -0,0 +1,12 @@
+package com.arrayfire;
+
+// Thrown for arguments ArrayFire rejects, such as mismatching shapes or
+// types, and for Arrays that hold no data
+public class InvalidArgumentException extends ArrayFireException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidArgumentException(int code, String message) {
+        super(code, message);
+    }
+}
@@ -0,0 +1,72 @@
+package com.arrayfire;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Keeps count of native arrays owned by Java objects.
+//
+// Live handle counts are always maintained. When enabled, either by
+// calling enable() or by starting the JVM with
+// -Darrayfire.leakDetection=true, every allocation also records its
+// size and stack trace, so arrays that are never closed can be traced
+// back to where they were created.
+public class LeakDetector {
+
+    private static volatile boolean enabled =
+        Boolean.getBoolean("arrayfire.leakDetection");
+
+    private static final AtomicLong live = new AtomicLong();
+    private static final AtomicLong liveBytes = new AtomicLong();
+    private static final AtomicLong reclaimed = new AtomicLong();
+
+    private static final Map<Array.Handle, Boolean> tracked =
+        new ConcurrentHashMap<Array.Handle, Boolean>();
+
+    private LeakDetector() {}
+
+    // Only arrays allocated while enabled are tracked
+    public static void enable() { enabled = true; }
+
+    public static void disable() { enabled = false; }
+
+    public static boolean isEnabled() { return enabled; }
+
+    // Number of native arrays currently alive
+    public static long liveCount() { return live.get(); }
+
+    // Bytes held by tracked arrays currently alive
+    public static long liveBytes() { return liveBytes.get(); }
+
+    // Number of arrays released by the Cleaner instead of close()
+    public static long reclaimedCount() { return reclaimed.get(); }
+
+    // Prints every tracked array that is still alive along with
+    // the stack trace of its allocation
+    public static void report(PrintStream out) {
+        out.println("ArrayFire: " + live.get() + " live arrays, "
+                    + liveBytes.get() + " tracked bytes, "
+                    + reclaimed.get() + " reclaimed without close()");
+        for (Array.Handle h : tracked.keySet()) {
+            out.println("Array of " + h.bytes() + " bytes still alive");
+            h.trace().printStackTrace(out);
+        }
+    }
+
+    static void allocated(Array.Handle h) {
+        live.incrementAndGet();
+        if (h.trace() != null) {
+            liveBytes.addAndGet(h.bytes());
+            tracked.put(h, Boolean.TRUE);
+        }
+    }
+
+    static void released(Array.Handle h, boolean byCleaner) {
+        live.decrementAndGet();
+        if (byCleaner) reclaimed.incrementAndGet();
+        if (h.trace() != null && tracked.remove(h) != null) {
+            liveBytes.addAndGet(-h.bytes());
+        }
+    }
+}
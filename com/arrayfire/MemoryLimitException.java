@@ -0,0 +1,23 @@
+package com.arrayfire;
+
+// Thrown when an allocation takes device memory over the soft limit
+// set through MemoryManager, and garbage collection could not bring
+// it back under. Its code is NoMemory, like running out of device memory.
+public class MemoryLimitException extends DeviceMemoryException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long allocatedBytes;
+    private final long limitBytes;
+
+    public MemoryLimitException(long allocatedBytes, long limitBytes) {
+        super("Device memory over soft limit: " + allocatedBytes
+              + " bytes allocated, limit is " + limitBytes + " bytes");
+        this.allocatedBytes = allocatedBytes;
+        this.limitBytes = limitBytes;
+    }
+
+    public long getAllocatedBytes() { return allocatedBytes; }
+
+    public long getLimitBytes() { return limitBytes; }
+}
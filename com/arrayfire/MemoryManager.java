@@ -0,0 +1,166 @@
+package com.arrayfire;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Reports and limits the device memory held by ArrayFire's memory pool.
+//
+// ArrayFire does not hand freed buffers back to the device right away.
+// They stay in its pool to be reused by later allocations of a similar
+// size, so the numbers below include buffers that are cached but no
+// longer used by any Array. Locked bytes are those in use by live
+// arrays.
+//
+// A soft limit can be set on the allocated bytes. Once a new Array takes
+// the pool over the limit, cached buffers are returned to the device. If
+// that is not enough the allocation either goes ahead or, when rejection
+// is enabled, the new Array is released and a MemoryLimitException is
+// thrown. While live data stays above the limit, the pool is only
+// collected again once it has grown since the last collection, so
+// allocations served from cached buffers do not flush the cache each
+// time. Checking costs a native call per allocation, so it only runs
+// while a limit is set. Output parameter and in place operations count
+// as allocations, and rejecting one releases their output Array.
+public class MemoryManager {
+
+    private static final int ALLOC_BYTES = 0;
+    private static final int ALLOC_BUFFERS = 1;
+    private static final int LOCK_BYTES = 2;
+    private static final int LOCK_BUFFERS = 3;
+
+    private static volatile long softLimit = 0;
+    private static volatile boolean reject = false;
+
+    private static final AtomicLong peak = new AtomicLong();
+    private static final AtomicLong collections = new AtomicLong();
+    private static final AtomicLong rejections = new AtomicLong();
+
+    // Allocated bytes left by the last collection that did not get under
+    // the limit, 0 once the pool is back under it
+    private static volatile long collectedBytes = 0;
+
+    private MemoryManager() {}
+
+    // Allocated bytes, allocated buffers, locked bytes, locked buffers
+    private static long[] info() throws Exception {
+        long[] info = new long[4];
+        if (!Array.deviceMemInfo(info)) {
+            throw ArrayFireException.last("Failed to read device memory info");
+        }
+        updatePeak(info[ALLOC_BYTES]);
+        return info;
+    }
+
+    private static void updatePeak(long bytes) {
+        long p = peak.get();
+        while (bytes > p && !peak.compareAndSet(p, bytes)) p = peak.get();
+    }
+
+    // Bytes allocated on the current device, including cached buffers
+    public static long allocatedBytes() throws Exception {
+        return info()[ALLOC_BYTES];
+    }
+
+    public static long allocatedBuffers() throws Exception {
+        return info()[ALLOC_BUFFERS];
+    }
+
+    // Bytes in buffers currently used by arrays
+    public static long lockedBytes() throws Exception {
+        return info()[LOCK_BYTES];
+    }
+
+    public static long lockedBuffers() throws Exception {
+        return info()[LOCK_BUFFERS];
+    }
+
+    // Highest allocatedBytes() seen so far. Only updated when memory is
+    // queried, or on every allocation while a soft limit is set.
+    public static long peakBytes() {
+        return peak.get();
+    }
+
+    public static void resetPeak() {
+        peak.set(0);
+    }
+
+    // Number of times the soft limit caused a garbage collection
+    public static long collectionCount() {
+        return collections.get();
+    }
+
+    // Number of allocations rejected by the soft limit
+    public static long rejectionCount() {
+        return rejections.get();
+    }
+
+    // Returns cached buffers that no Array uses to the device
+    public static void garbageCollect() throws Exception {
+        if (!Array.deviceGC()) throw ArrayFireException.last("Failed to collect device memory");
+    }
+
+    // Allocation granularity of the memory pool in bytes. Larger steps
+    // let more requests share a cached buffer, smaller ones waste less
+    // memory per buffer.
+    public static void setStepSize(long bytes) throws Exception {
+        if (bytes <= 0) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Step size must be positive");
+        if (!Array.setMemStepSize(bytes)) throw ArrayFireException.last("Failed to set step size");
+    }
+
+    public static long getStepSize() {
+        return Array.getMemStepSize();
+    }
+
+    // Soft limit on allocated bytes, 0 disables it
+    public static void setSoftLimit(long bytes) {
+        if (bytes < 0) throw new IllegalArgumentException("Limit must not be negative");
+        softLimit = bytes;
+        collectedBytes = 0;
+    }
+
+    public static long getSoftLimit() {
+        return softLimit;
+    }
+
+    // Whether allocations still over the limit after a garbage
+    // collection fail instead of going ahead
+    public static void setRejectOverLimit(boolean enable) {
+        reject = enable;
+    }
+
+    public static boolean isRejectOverLimit() {
+        return reject;
+    }
+
+    static boolean isLimited() {
+        return softLimit > 0;
+    }
+
+    // Called after an Array took ownership of a new handle
+    static void allocated(Array a) throws Exception {
+        long limit = softLimit;
+        if (limit <= 0) return;
+
+        long bytes = info()[ALLOC_BYTES];
+        if (bytes <= limit) {
+            collectedBytes = 0;
+            return;
+        }
+
+        // A collection only helps if the pool grew since the last one
+        if (bytes > collectedBytes) {
+            collections.incrementAndGet();
+            garbageCollect();
+            bytes = info()[ALLOC_BYTES];
+            if (bytes <= limit) {
+                collectedBytes = 0;
+                return;
+            }
+            collectedBytes = bytes;
+        }
+        if (!reject) return;
+
+        rejections.incrementAndGet();
+        a.close();
+        throw new MemoryLimitException(bytes, limit);
+    }
+}
@@ -0,0 +1,266 @@
+package com.arrayfire;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Per operation call counts, bytes moved between host and device and
+// latency histograms for the native calls made by Array and Image.
+//
+// Disabled by default. Enable it with enable() or by starting the JVM
+// with -Darrayfire.metrics=true. While disabled every call site costs a
+// volatile read, so it can stay in production builds.
+//
+// Operations are named after the public method making the call, such as
+// add, fft2, convolve or getFloatArray, and after the native function
+// for constructors, such as createArrayFromFloat. Overloads share a name.
+// Latencies cover the JNI call, which for ArrayFire usually means
+// queueing the work on the device rather than finishing it, and include
+// evaluating lazy operands. Evaluations of lazy expressions are recorded
+// as eval.
+//
+// Results can be read with snapshot(), or through JMX after calling
+// registerMBeans(): com.arrayfire:type=Metrics controls recording and
+// com.arrayfire:type=Metrics,name=<operation> exposes each operation.
+public class Metrics {
+
+    // Returned by start() while disabled
+    private static final long OFF = Long.MIN_VALUE;
+
+    private static final String DOMAIN = "com.arrayfire";
+
+    private static volatile boolean enabled = false;
+    private static volatile boolean jmx = false;
+
+    private static final Map<String, Recorder> recorders =
+        new ConcurrentHashMap<String, Recorder>();
+
+    static {
+        if (Boolean.getBoolean("arrayfire.metrics")) {
+            enabled = true;
+            try {
+                registerMBeans();
+            } catch (IllegalStateException e) {
+                // Still available through snapshot()
+            }
+        }
+    }
+
+    private Metrics() {}
+
+    public static void enable() { enabled = true; }
+
+    public static void disable() { enabled = false; }
+
+    public static boolean isEnabled() { return enabled; }
+
+    // Forgets everything recorded so far
+    public static void reset() {
+        for (Recorder r : recorders.values()) r.reset();
+    }
+
+    // Copies the current numbers of every operation seen so far,
+    // sorted by name
+    public static Map<String, OperationStats> snapshot() {
+        Map<String, OperationStats> res = new TreeMap<String, OperationStats>();
+        for (Recorder r : recorders.values()) res.put(r.name, r.snapshot());
+        return res;
+    }
+
+    // Numbers of a single operation, null if it has not been called
+    public static OperationStats snapshot(String name) {
+        Recorder r = recorders.get(name);
+        return r == null ? null : r.snapshot();
+    }
+
+    // Start of a measured call
+    static long start() {
+        return enabled ? System.nanoTime() : OFF;
+    }
+
+    // End of a measured call that did not move data between host and device
+    static void stop(String name, long t0) {
+        if (t0 == OFF) return;
+        record(name, System.nanoTime() - t0, 0);
+    }
+
+    // End of a measured call that copied bytes between host and device
+    static void stop(String name, long t0, long bytes) {
+        if (t0 == OFF) return;
+        record(name, System.nanoTime() - t0, bytes);
+    }
+
+    private static void record(String name, long nanos, long bytes) {
+        Recorder r = recorders.get(name);
+        if (r == null) {
+            Recorder created = new Recorder(name);
+            r = recorders.putIfAbsent(name, created);
+            if (r == null) {
+                r = created;
+                if (jmx) register(r);
+            }
+        }
+        r.record(nanos, bytes);
+    }
+
+    // Histogram buckets
+    //
+    // Values below SUB are counted exactly. Above that, each power of two
+    // is split into SUB buckets of equal width, so a bucket is never wider
+    // than 1/SUB of its lower bound, as in HdrHistogram.
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB = 1 << SUB_BITS;
+    static final int BUCKETS = (64 - SUB_BITS) * SUB;
+
+    static int bucket(long v) {
+        if (v < SUB) return (int)Math.max(v, 0);
+        int e = 63 - Long.numberOfLeadingZeros(v);
+        return (e - SUB_BITS + 1) * SUB + (int)((v >>> (e - SUB_BITS)) & (SUB - 1));
+    }
+
+    // Smallest value counted in bucket i
+    static long bucketLow(int i) {
+        if (i < SUB) return i;
+        int e = i / SUB + SUB_BITS - 1;
+        return (long)(SUB + i % SUB) << (e - SUB_BITS);
+    }
+
+    // Largest value counted in bucket i
+    static long bucketHigh(int i) {
+        if (i + 1 >= BUCKETS) return Long.MAX_VALUE;
+        return bucketLow(i + 1) - 1;
+    }
+
+    // Live counters of one operation
+    private static final class Recorder {
+        final String name;
+        final LongAdder count = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final AtomicLong max = new AtomicLong();
+        final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        Recorder(String name) {
+            this.name = name;
+        }
+
+        void record(long t, long b) {
+            count.increment();
+            nanos.add(t);
+            if (b != 0) bytes.add(b);
+            histogram.incrementAndGet(bucket(t));
+
+            long m = max.get();
+            while (t > m && !max.compareAndSet(m, t)) m = max.get();
+        }
+
+        void reset() {
+            count.reset();
+            bytes.reset();
+            nanos.reset();
+            max.set(0);
+            for (int i = 0; i < BUCKETS; i++) histogram.set(i, 0);
+        }
+
+        OperationStats snapshot() {
+            long[] h = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                h[i] = histogram.get(i);
+                total += h[i];
+            }
+            // The histogram is the reference for the count, so
+            // percentiles stay consistent with it under concurrent updates
+            return new OperationStats(name, total, bytes.sum(), nanos.sum(), max.get(), h);
+        }
+    }
+
+    // JMX
+
+    public interface MetricsMXBean {
+        boolean isEnabled();
+        void setEnabled(boolean enable);
+        String[] getOperations();
+        void reset();
+    }
+
+    public interface OperationMXBean {
+        long getCount();
+        long getBytes();
+        long getTotalNanos();
+        double getMeanNanos();
+        long getMaxNanos();
+        long getP50Nanos();
+        long getP90Nanos();
+        long getP99Nanos();
+        long getP999Nanos();
+    }
+
+    private static final class MetricsBean implements MetricsMXBean {
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enable) { enabled = enable; }
+        public String[] getOperations() {
+            return snapshot().keySet().toArray(new String[0]);
+        }
+        public void reset() { Metrics.reset(); }
+    }
+
+    private static final class OperationBean implements OperationMXBean {
+        private final Recorder r;
+        OperationBean(Recorder r) { this.r = r; }
+        public long getCount() { return r.count.sum(); }
+        public long getBytes() { return r.bytes.sum(); }
+        public long getTotalNanos() { return r.nanos.sum(); }
+        public double getMeanNanos() { return r.snapshot().meanNanos(); }
+        public long getMaxNanos() { return r.max.get(); }
+        public long getP50Nanos() { return r.snapshot().percentileNanos(50); }
+        public long getP90Nanos() { return r.snapshot().percentileNanos(90); }
+        public long getP99Nanos() { return r.snapshot().percentileNanos(99); }
+        public long getP999Nanos() { return r.snapshot().percentileNanos(99.9); }
+    }
+
+    // Registers the MBeans with the platform MBean server. Operations
+    // first seen later are registered as they appear.
+    public static synchronized void registerMBeans() {
+        if (jmx) return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName control = new ObjectName(DOMAIN + ":type=Metrics");
+            if (!server.isRegistered(control)) server.registerMBean(new MetricsBean(), control);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to register metrics MBean", e);
+        }
+        jmx = true;
+        for (Recorder r : recorders.values()) register(r);
+    }
+
+    public static synchronized void unregisterMBeans() {
+        if (!jmx) return;
+        jmx = false;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            for (ObjectName n : server.queryNames(new ObjectName(DOMAIN + ":type=Metrics,*"), null)) {
+                server.unregisterMBean(n);
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to unregister metrics MBeans", e);
+        }
+    }
+
+    private static void register(Recorder r) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName n = new ObjectName(DOMAIN + ":type=Metrics,name=" + ObjectName.quote(r.name));
+            if (!server.isRegistered(n)) server.registerMBean(new OperationBean(r), n);
+        } catch (Exception e) {
+            // Metrics must never fail the call being measured
+        }
+    }
+}
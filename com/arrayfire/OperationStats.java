@@ -0,0 +1,62 @@
+package com.arrayfire;
+
+// Numbers recorded by Metrics for one operation at the time of a
+// snapshot. Latencies are in nanoseconds; percentiles are accurate to
+// the width of a histogram bucket, about 6% of the value.
+public final class OperationStats {
+
+    private final String name;
+    private final long count;
+    private final long bytes;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long[] histogram;
+
+    OperationStats(String name, long count, long bytes, long totalNanos, long maxNanos, long[] histogram) {
+        this.name = name;
+        this.count = count;
+        this.bytes = bytes;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.histogram = histogram;
+    }
+
+    public String name() { return name; }
+
+    public long count() { return count; }
+
+    // Bytes copied between host and device
+    public long bytes() { return bytes; }
+
+    public long totalNanos() { return totalNanos; }
+
+    public long maxNanos() { return maxNanos; }
+
+    public double meanNanos() {
+        return count == 0 ? 0 : (double)totalNanos / count;
+    }
+
+    // Smallest latency that p percent of the calls did not exceed
+    public long percentileNanos(double p) {
+        if (p < 0 || p > 100) throw new IllegalArgumentException("Percentile must be within 0 and 100");
+        if (count == 0) return 0;
+
+        long target = Math.max(1, (long)Math.ceil(p / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= target) return Math.min(Metrics.bucketHigh(i), maxNanos);
+        }
+        return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": count=" + count
+            + " bytes=" + bytes
+            + " mean=" + (long)meanNanos() + "ns"
+            + " p50=" + percentileNanos(50) + "ns"
+            + " p99=" + percentileNanos(99) + "ns"
+            + " max=" + maxNanos + "ns";
+    }
+}
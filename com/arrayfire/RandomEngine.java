@@ -0,0 +1,189 @@
+package com.arrayfire;
+
+import java.lang.ref.Cleaner;
+import java.lang.ref.Reference;
+
+// A seeded random number generator producing Arrays on the device.
+//
+// Unlike Array.randu and Array.randn, which draw from ArrayFire's global
+// generator, an engine gives the same sequence for the same type and
+// seed, and engines share no state. Each engine serializes its own
+// calls, so give every worker thread its own stream:
+//
+//     RandomEngine root = new RandomEngine(RandomEngine.Philox, 42);
+//     RandomEngine[] streams = root.split(threads);
+//
+// Streams derive their seeds from the parent seed and their index, so a
+// run is reproducible whichever thread picks up which stream. Streams of
+// different seeds or indices are independent in the statistical sense
+// of the underlying counter based generators; they are not disjoint
+// slices of a single sequence.
+//
+// Engines hold native state and should be closed. Unclosed engines are
+// released once they become unreachable.
+public class RandomEngine implements AutoCloseable {
+
+    // af::randomEngineType values
+    public static final int Philox = 100;
+    public static final int Threefry = 200;
+    public static final int Mersenne = 300;
+
+    static {
+        Backend.load();
+    }
+
+    private native static long    create    (int type, long seed);
+    private native static void    destroy   (long eng);
+    private native static boolean setSeed   (long eng, long seed);
+    private native static long    uniform   (long eng, int[] dims, int type, double lo, double hi);
+    private native static long    normal    (long eng, int[] dims, int type, double mean, double stdev);
+    private native static long    uniformInt(long eng, int[] dims, int lo, int hi);
+
+    private static final Cleaner cleaner = Cleaner.create();
+
+    // Owns the native engine, must not reference the RandomEngine
+    private static final class State implements Runnable {
+        private long eng;
+
+        State(long eng) {
+            this.eng = eng;
+        }
+
+        synchronized long get() throws Exception {
+            if (eng == 0) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "RandomEngine is closed");
+            return eng;
+        }
+
+        @Override
+        public synchronized void run() {
+            if (eng != 0) destroy(eng);
+            eng = 0;
+        }
+    }
+
+    private final int type;
+    private long seed;
+    private final State state;
+    private final Cleaner.Cleanable cleanable;
+
+    public RandomEngine(long seed) throws Exception {
+        this(Philox, seed);
+    }
+
+    public RandomEngine(int type, long seed) throws Exception {
+        if (type != Philox && type != Threefry && type != Mersenne) {
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Unknown random engine type");
+        }
+        long eng = create(type, seed);
+        if (eng == 0) throw ArrayFireException.last("Failed to create random engine");
+
+        this.type = type;
+        this.seed = seed;
+        this.state = new State(eng);
+        this.cleanable = cleaner.register(this, state);
+    }
+
+    public int type() { return type; }
+
+    public synchronized long seed() { return seed; }
+
+    // Restarts the sequence from a new seed
+    public synchronized void setSeed(long seed) throws Exception {
+        if (!setSeed(state.get(), seed)) throw ArrayFireException.last("Failed to set seed");
+        this.seed = seed;
+    }
+
+    // Engine of the same type for stream index of this engine's seed.
+    // The same seed and index always give the same stream.
+    public synchronized RandomEngine stream(long index) throws Exception {
+        return new RandomEngine(type, mix(seed + (index + 1) * GOLDEN));
+    }
+
+    // Streams 0 to n - 1, one per worker
+    public RandomEngine[] split(int n) throws Exception {
+        if (n < 1) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Need at least one stream");
+        RandomEngine[] res = new RandomEngine[n];
+        try {
+            for (int i = 0; i < n; i++) res[i] = stream(i);
+        } catch (Exception e) {
+            for (RandomEngine r : res) if (r != null) r.close();
+            throw e;
+        }
+        return res;
+    }
+
+    // SplitMix64, spreads nearby seeds over unrelated states
+    private static final long GOLDEN = 0x9e3779b97f4a7c15L;
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    // Uniform in [0, 1) for floating point types, over the whole range
+    // of the type otherwise
+    public Array randu(int[] dims, int type) throws Exception {
+        return fill(dims, type, 0, 1, false, "randu");
+    }
+
+    // Uniform in [lo, hi), see randInt for integers
+    public Array randu(int[] dims, int type, double lo, double hi) throws Exception {
+        checkReal(type);
+        if (!(lo < hi)) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Empty range");
+        return fill(dims, type, lo, hi, false, "randu");
+    }
+
+    public Array randn(int[] dims, int type) throws Exception {
+        return fill(dims, type, 0, 1, true, "randn");
+    }
+
+    public Array randn(int[] dims, int type, double mean, double stdev) throws Exception {
+        checkReal(type);
+        if (!(stdev >= 0)) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Standard deviation must not be negative");
+        return fill(dims, type, mean, stdev, true, "randn");
+    }
+
+    // Integers uniform in [lo, hi), as an IntType Array
+    public synchronized Array randInt(int[] dims, int lo, int hi) throws Exception {
+        if (lo >= hi) throw ArrayFireException.create(ArrayFireException.InvalidArgument, "Empty range");
+        int[] adims = Array.dim4(dims);
+        long t0 = Metrics.start();
+        long ref = uniformInt(state.get(), adims, lo, hi);
+        Metrics.stop("randInt", t0);
+        Reference.reachabilityFence(this);
+        if (ref == 0) throw ArrayFireException.last("Failed to create Array");
+
+        Array ret_val = new Array();
+        ret_val.set(ref);
+        return ret_val;
+    }
+
+    private static void checkReal(int type) throws Exception {
+        if (type != Array.FloatType && type != Array.DoubleType) {
+            throw ArrayFireException.create(ArrayFireException.InvalidType, "Ranges need a FloatType or DoubleType Array");
+        }
+    }
+
+    private synchronized Array fill(int[] dims, int type, double a, double b, boolean gaussian,
+                                    String name) throws Exception {
+        int[] adims = Array.dim4(dims);
+        long t0 = Metrics.start();
+        long ref = gaussian
+            ? normal(state.get(), adims, type, a, b)
+            : uniform(state.get(), adims, type, a, b);
+        Metrics.stop(name, t0);
+        Reference.reachabilityFence(this);
+        if (ref == 0) throw ArrayFireException.last("Failed to create Array");
+
+        Array ret_val = new Array();
+        ret_val.set(ref);
+        return ret_val;
+    }
+
+    // Waits for a call in progress on this engine
+    @Override
+    public synchronized void close() {
+        cleanable.clean();
+    }
+}
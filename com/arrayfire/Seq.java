@@ -0,0 +1,49 @@
+package com.arrayfire;
+
+// A range of indices along one dimension, used by Array.index and
+// Array.assign.
+//
+// Both ends are inclusive. Negative values count from the end of the
+// dimension, -1 being its last element, so new Seq(0, -1) covers all
+// of it. step may be negative to walk backwards.
+public final class Seq {
+
+    // Every element along the dimension
+    public static final Seq SPAN = new Seq();
+
+    final int begin;
+    final int end;
+    final int step;
+
+    private Seq() {
+        begin = 0;
+        end = -1;
+        step = 0;
+    }
+
+    public Seq(int begin, int end) {
+        this(begin, end, 1);
+    }
+
+    public Seq(int begin, int end, int step) {
+        if (step == 0) throw new IllegalArgumentException("Step must not be zero");
+        this.begin = begin;
+        this.end = end;
+        this.step = step;
+    }
+
+    // A single index
+    public static Seq at(int i) {
+        return new Seq(i, i, 1);
+    }
+
+    boolean isSpan() {
+        return step == 0;
+    }
+
+    @Override
+    public String toString() {
+        if (isSpan()) return "span";
+        return begin + ":" + end + (step == 1 ? "" : ":" + step);
+    }
+}
@@ -0,0 +1,12 @@
+package com.arrayfire;
+
+// Thrown for operations the device, backend or ArrayFire build does not
+// support, such as double precision on devices without it
+public class UnsupportedException extends ArrayFireException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UnsupportedException(int code, String message) {
+        super(code, message);
+    }
+}
@@ -0,0 +1,330 @@
+package com.arrayfire.ffm;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_BOOLEAN;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_DOUBLE;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+import com.arrayfire.ArrayFireException;
+
+// Downcall handles into ArrayFire's C API, the af_* functions declared
+// in af/array.h, af/arith.h, af/algorithm.h and friends. af_err, af_dtype
+// and the other enums are ints, dim_t is 64 bit and af_array is a
+// pointer.
+//
+// The library is looked up once, by default the unified libaf so the
+// backend can be chosen at runtime. -Darrayfire.ffm.library=afcpu, or
+// afcuda, afopencl, binds a single backend library instead, and
+// -Darrayfire.backend=cpu, cuda or opencl selects the unified backend.
+// ArrayFire keeps the backend per thread, so FfmArray binds each thread
+// to it on the thread's first call, see bindThread.
+//
+// Each wrapper returns the af_err code of the call. Downcalls do not
+// throw checked exceptions, so the Throwable of invokeExact is only
+// rethrown unchecked.
+final class AfLib {
+
+    private AfLib() {}
+
+    private static final MethodHandle af_create_array;
+    private static final MethodHandle af_release_array;
+    private static final MethodHandle af_randu;
+    private static final MethodHandle af_randn;
+    private static final MethodHandle af_constant;
+    private static final MethodHandle af_get_data_ptr;
+    private static final MethodHandle af_get_elements;
+    private static final MethodHandle af_get_type;
+    private static final MethodHandle af_get_dims;
+    private static final MethodHandle af_add;
+    private static final MethodHandle af_sub;
+    private static final MethodHandle af_mul;
+    private static final MethodHandle af_div;
+    private static final MethodHandle af_matmul;
+    private static final MethodHandle af_exp;
+    private static final MethodHandle af_sqrt;
+    private static final MethodHandle af_sum_all;
+    private static final MethodHandle af_max_all;
+    private static final MethodHandle af_min_all;
+    private static final MethodHandle af_mean_all;
+    private static final MethodHandle af_eval;
+    private static final MethodHandle af_sync;
+    private static final MethodHandle af_set_backend;
+    private static final MethodHandle af_get_last_error;
+    private static final MethodHandle af_free_host;
+
+    // Backend every thread binds on its first call, 0 for the library's
+    // own choice. Set by arrayfire.backend and FfmArray.setBackend.
+    static volatile int preferredBackend;
+
+    static {
+        String name = System.getProperty("arrayfire.ffm.library", "af");
+        SymbolLookup lib = SymbolLookup.libraryLookup(System.mapLibraryName(name), Arena.global());
+        Linker linker = Linker.nativeLinker();
+
+        FunctionDescriptor create = FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS, JAVA_INT);
+        FunctionDescriptor binary = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS, JAVA_BOOLEAN);
+        FunctionDescriptor unary = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS);
+        FunctionDescriptor reduceAll = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS);
+
+        af_create_array   = find(linker, lib, "af_create_array",
+                                 FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, JAVA_INT, ADDRESS, JAVA_INT));
+        af_release_array  = find(linker, lib, "af_release_array", FunctionDescriptor.of(JAVA_INT, ADDRESS));
+        af_randu          = find(linker, lib, "af_randu", create);
+        af_randn          = find(linker, lib, "af_randn", create);
+        af_constant       = find(linker, lib, "af_constant",
+                                 FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_DOUBLE, JAVA_INT, ADDRESS, JAVA_INT));
+        af_get_data_ptr   = find(linker, lib, "af_get_data_ptr", unary);
+        af_get_elements   = find(linker, lib, "af_get_elements", unary);
+        af_get_type       = find(linker, lib, "af_get_type", unary);
+        af_get_dims       = find(linker, lib, "af_get_dims",
+                                 FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS, ADDRESS, ADDRESS));
+        af_add            = find(linker, lib, "af_add", binary);
+        af_sub            = find(linker, lib, "af_sub", binary);
+        af_mul            = find(linker, lib, "af_mul", binary);
+        af_div            = find(linker, lib, "af_div", binary);
+        af_matmul         = find(linker, lib, "af_matmul",
+                                 FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS, JAVA_INT, JAVA_INT));
+        af_exp            = find(linker, lib, "af_exp", unary);
+        af_sqrt           = find(linker, lib, "af_sqrt", unary);
+        af_sum_all        = find(linker, lib, "af_sum_all", reduceAll);
+        af_max_all        = find(linker, lib, "af_max_all", reduceAll);
+        af_min_all        = find(linker, lib, "af_min_all", reduceAll);
+        af_mean_all       = find(linker, lib, "af_mean_all", reduceAll);
+        af_eval           = find(linker, lib, "af_eval", FunctionDescriptor.of(JAVA_INT, ADDRESS));
+        af_sync           = find(linker, lib, "af_sync", FunctionDescriptor.of(JAVA_INT, JAVA_INT));
+        af_set_backend    = find(linker, lib, "af_set_backend", FunctionDescriptor.of(JAVA_INT, JAVA_INT));
+        af_get_last_error = find(linker, lib, "af_get_last_error", FunctionDescriptor.ofVoid(ADDRESS, ADDRESS));
+        af_free_host      = find(linker, lib, "af_free_host", FunctionDescriptor.of(JAVA_INT, ADDRESS));
+
+        String backend = System.getProperty("arrayfire.backend");
+        if (backend != null) {
+            int id = backendId(backend);
+            if (id < 0 || setBackend(id) != 0) {
+                throw new IllegalStateException("ArrayFire backend " + backend + " is not available");
+            }
+            preferredBackend = id;
+        }
+    }
+
+    private static MethodHandle find(Linker linker, SymbolLookup lib, String name, FunctionDescriptor desc) {
+        MemorySegment sym = lib.find(name).orElseThrow(
+            () -> new UnsatisfiedLinkError("ArrayFire symbol " + name + " not found"));
+        return linker.downcallHandle(sym, desc);
+    }
+
+    // af_backend values, as in com.arrayfire.Backend
+    private static int backendId(String name) {
+        switch (name.trim().toLowerCase()) {
+        case "default": return 0;
+        case "cpu": return 1;
+        case "cuda": return 2;
+        case "opencl": return 4;
+        default: return -1;
+        }
+    }
+
+    private static RuntimeException unchecked(Throwable t) {
+        if (t instanceof RuntimeException) return (RuntimeException)t;
+        if (t instanceof Error) throw (Error)t;
+        return new IllegalStateException(t);
+    }
+
+    // Binds the calling thread to the preferred backend
+    static void bindThread() throws ArrayFireException {
+        int backend = preferredBackend;
+        if (backend != 0) check(setBackend(backend));
+    }
+
+    // Throws the error recorded by ArrayFire for a failed call
+    static void check(int err) throws ArrayFireException {
+        if (err != 0) throw ArrayFireException.create(err, lastError());
+    }
+
+    // Message of the last error on the calling thread
+    private static String lastError() {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment msg = arena.allocate(ADDRESS.byteSize(), ADDRESS.byteAlignment());
+            MemorySegment len = arena.allocate(JAVA_LONG.byteSize(), JAVA_LONG.byteAlignment());
+            af_get_last_error.invokeExact(msg, len);
+
+            MemorySegment str = msg.get(ADDRESS, 0);
+            long n = len.get(JAVA_LONG, 0);
+            if (str.equals(MemorySegment.NULL)) return "ArrayFire call failed";
+            String res = new String(str.reinterpret(n).toArray(JAVA_BYTE));
+            // Failing to free the message only leaks its bytes, and
+            // reporting that would hide the error being read
+            int ignored = (int)af_free_host.invokeExact(str);
+            return res;
+        } catch (Throwable t) {
+            throw unchecked(t);
+        }
+    }
+
+    static int createArray(MemorySegment out, MemorySegment data, int ndims, MemorySegment dims, int type) {
+        try {
+            return (int)af_create_array.invokeExact(out, data, ndims, dims, type);
+        } catch (Throwable t) {
+            throw unchecked(t);
+        }
+    }
+
+    static int releaseArray(MemorySegment arr) {
+        try {
+            return (int)af_release_array.invokeExact(arr);
+        } catch (Throwable t) {
+            throw unchecked(t);
+        }
+    }
+
+    static int randu(MemorySegment out, int ndims, MemorySegment dims, int type) {
+        try {
+            return (int)af_randu.invokeExact(out, ndims, dims, type);
+        } catch (Throwable t) {
+            throw unchecked(t);
+        }
+    }
+
+    static int randn(MemorySegment out, int ndims, MemorySegment dims, int type) {
+        try {
+            return (int)af_randn.invokeExact(out, ndims, dims, type);
+        } catch (Throwable t) {
+            throw unchecked(t);
+        }
+    }
+
+    static int constant(MemorySegment out, double val, int ndims, MemorySegment dims, int type) {
+        try {
+            return (int)af_constant.invokeExact(out, val, ndims, dims, type);
+        } catch (Throwable t) {
+            throw unchecked(t);
+        }
+    }
+
+    static int getDataPtr(MemorySegment data, MemorySegment arr) {
+        try {
+            return (int)af_get_data_ptr.invokeExact(data, arr);
+        } catch (Throwable t) {
+            throw unchecked(t);
+        }
+    }
+
+    static int getElements(MemorySegment elems, MemorySegment arr) {
+        try {
+            return (int)af_get_elements.invokeExact(elems, arr);
+        } catch (Throwable t) {
+            throw unchecked(t);
+        }
+    }
+
+    static int getType(MemorySegment type, MemorySegment arr) {
+        try {
+            return (int)af_get_type.invokeExact(type, arr);
+        } catch (Throwable t) {
+            throw unchecked(t);
+        }
+    }
+
+    static int getDims(MemorySegment d0, MemorySegment d1, MemorySegment d2, MemorySegment d3,
+                       MemorySegment arr) {
+        try {
+            return (int)af_get_dims.invokeExact(d0, d1, d2, d3, arr);
+        } catch (Throwable t) {
+            throw unchecked(t);
+        }
+    }
+
+    // Elementwise operators, op is one of the BINARY_ codes
+    static final int BINARY_ADD = 0;
+    static final int BINARY_SUB = 1;
+    static final int BINARY_MUL = 2;
+    static final int BINARY_DIV = 3;
+
+    static int binary(int op, MemorySegment out, MemorySegment lhs, MemorySegment rhs) {
+        try {
+            switch (op) {
+            case BINARY_ADD: return (int)af_add.invokeExact(out, lhs, rhs, false);
+            case BINARY_SUB: return (int)af_sub.invokeExact(out, lhs, rhs, false);
+            case BINARY_MUL: return (int)af_mul.invokeExact(out, lhs, rhs, false);
+            default:         return (int)af_div.invokeExact(out, lhs, rhs, false);
+            }
+        } catch (Throwable t) {
+            throw unchecked(t);
+        }
+    }
+
+    static int matmul(MemorySegment out, MemorySegment lhs, MemorySegment rhs, int optLhs, int optRhs) {
+        try {
+            return (int)af_matmul.invokeExact(out, lhs, rhs, optLhs, optRhs);
+        } catch (Throwable t) {
+            throw unchecked(t);
+        }
+    }
+
+    static int exp(MemorySegment out, MemorySegment in) {
+        try {
+            return (int)af_exp.invokeExact(out, in);
+        } catch (Throwable t) {
+            throw unchecked(t);
+        }
+    }
+
+    static int sqrt(MemorySegment out, MemorySegment in) {
+        try {
+            return (int)af_sqrt.invokeExact(out, in);
+        } catch (Throwable t) {
+            throw unchecked(t);
+        }
+    }
+
+    // Whole array reductions, op is one of the REDUCE_ codes
+    static final int REDUCE_SUM = 0;
+    static final int REDUCE_MAX = 1;
+    static final int REDUCE_MIN = 2;
+    static final int REDUCE_MEAN = 3;
+
+    static int reduceAll(int op, MemorySegment real, MemorySegment imag, MemorySegment in) {
+        try {
+            switch (op) {
+            case REDUCE_SUM: return (int)af_sum_all.invokeExact(real, imag, in);
+            case REDUCE_MAX: return (int)af_max_all.invokeExact(real, imag, in);
+            case REDUCE_MIN: return (int)af_min_all.invokeExact(real, imag, in);
+            default:         return (int)af_mean_all.invokeExact(real, imag, in);
+            }
+        } catch (Throwable t) {
+            throw unchecked(t);
+        }
+    }
+
+    static int eval(MemorySegment arr) {
+        try {
+            return (int)af_eval.invokeExact(arr);
+        } catch (Throwable t) {
+            throw unchecked(t);
+        }
+    }
+
+    static int sync(int device) {
+        try {
+            return (int)af_sync.invokeExact(device);
+        } catch (Throwable t) {
+            throw unchecked(t);
+        }
+    }
+
+    static int setBackend(int backend) {
+        try {
+            return (int)af_set_backend.invokeExact(backend);
+        } catch (Throwable t) {
+            throw unchecked(t);
+        }
+    }
+}
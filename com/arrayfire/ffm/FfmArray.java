@@ -0,0 +1,389 @@
+package com.arrayfire.ffm;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_DOUBLE;
+import static java.lang.foreign.ValueLayout.JAVA_FLOAT;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+import com.arrayfire.ArrayFireException;
+
+// An ArrayFire array reached through java.lang.foreign instead of JNI.
+//
+// This binding calls ArrayFire's C API directly, so it needs neither
+// libaf_java.so nor one build per backend, only the ArrayFire library
+// itself; see AfLib for how it is found. Its handles are C API af_array
+// values, which the JNI wrapper's Arrays cannot share, so a program uses
+// one binding or the other. It covers the calls whose per call overhead
+// matters most: creation, host transfers, elementwise arithmetic, a few
+// math functions, whole array reductions and matmul.
+//
+// Every array belongs to an Arena and is released when the arena closes,
+// or earlier by close(). Results of operations join the arena of their
+// first operand:
+//
+//     try (Arena arena = Arena.ofConfined()) {
+//         FfmArray a = FfmArray.randu(arena, new int[] { 1024 }, FfmArray.FloatType);
+//         FfmArray b = a.mul(a).add(a);
+//         double s = b.sumAll();
+//     }
+//
+// With a confined arena only its owner thread may create arrays in it,
+// use Arena.ofShared() for arrays shared between threads. An array closed
+// early keeps a small entry with its arena until the arena closes, so
+// loops making many temporaries should give them a shorter lived arena.
+//
+// Host data moves through MemorySegments without intermediate Java
+// arrays: ArrayFire copies straight from and to the segment's memory.
+public final class FfmArray implements AutoCloseable {
+
+    // af_dtype values, the same as the Array type constants
+    public static final int FloatType = 0;
+    public static final int FloatComplexType = 1;
+    public static final int DoubleType = 2;
+    public static final int DoubleComplexType = 3;
+    public static final int BooleanType = 4;
+    public static final int IntType = 5;
+    public static final int UIntType = 6;
+    public static final int ByteType = 7;
+    public static final int LongType = 8;
+    public static final int ULongType = 9;
+    public static final int ShortType = 10;
+    public static final int UShortType = 11;
+    public static final int HalfType = 12;
+
+    // Per thread memory for out parameters and dimensions, so calls do not
+    // allocate native memory of their own:
+    //   0  af_array out
+    //   8  dim_t[4] dims
+    //   40 double real, or dim_t elements
+    //   48 double imag
+    private static final long OUT = 0;
+    private static final long DIMS = 8;
+    private static final long REAL = 40;
+    private static final long IMAG = 48;
+
+    private static final ThreadLocal<MemorySegment> scratch = new ThreadLocal<MemorySegment>();
+
+    // Scratch memory of the calling thread. The thread's first call also
+    // binds it to the preferred backend, which ArrayFire keeps per thread,
+    // and tries again on the next call if that fails.
+    private static MemorySegment scratch() throws ArrayFireException {
+        MemorySegment s = scratch.get();
+        if (s == null) {
+            AfLib.bindThread();
+            s = Arena.ofAuto().allocate(64, 8);
+            scratch.set(s);
+        }
+        return s;
+    }
+
+    // Owns the af_array, must not reference the arena or the FfmArray so
+    // an automatic arena can still be collected
+    private static final class Handle {
+        private MemorySegment arr;
+
+        Handle(MemorySegment arr) {
+            this.arr = arr;
+        }
+
+        synchronized MemorySegment get() throws ArrayFireException {
+            if (arr == null) throw ArrayFireException.create(ArrayFireException.InvalidArray,
+                                                             "Array is closed");
+            return arr;
+        }
+
+        synchronized void release() {
+            if (arr != null) AfLib.releaseArray(arr);
+            arr = null;
+        }
+    }
+
+    private final Arena arena;
+    private final Handle handle;
+
+    private FfmArray(Arena arena, MemorySegment arr) {
+        Handle h = new Handle(arr);
+        try {
+            // A zero length segment of the arena whose only job is the cleanup
+            MemorySegment.NULL.reinterpret(arena, s -> h.release());
+        } catch (RuntimeException e) {
+            // Closed arena, or confined to another thread
+            h.release();
+            throw e;
+        }
+        this.arena = arena;
+        this.handle = h;
+    }
+
+    // Wraps the af_array left in the scratch by a successful call
+    private static FfmArray result(Arena arena, MemorySegment s, int err) throws ArrayFireException {
+        AfLib.check(err);
+        return new FfmArray(arena, s.get(ADDRESS, OUT));
+    }
+
+    private static int setDims(MemorySegment s, int[] dims) throws ArrayFireException {
+        if (dims == null || dims.length == 0 || dims.length > 4) {
+            throw ArrayFireException.create(ArrayFireException.InvalidSize,
+                                            "ArrayFire supports 1 to 4 dimensions");
+        }
+        for (int i = 0; i < dims.length; i++) s.set(JAVA_LONG, DIMS + 8 * i, dims[i]);
+        return dims.length;
+    }
+
+    private static long count(int[] dims) {
+        long n = 1;
+        for (int d : dims) n *= d;
+        return n;
+    }
+
+    // Bytes per element of an af_dtype
+    private static long typeSize(int type) throws ArrayFireException {
+        switch (type) {
+        case FloatType: return 4;
+        case FloatComplexType: return 8;
+        case DoubleType: return 8;
+        case DoubleComplexType: return 16;
+        case BooleanType: return 1;
+        case IntType: return 4;
+        case UIntType: return 4;
+        case ByteType: return 1;
+        case LongType: return 8;
+        case ULongType: return 8;
+        case ShortType: return 2;
+        case UShortType: return 2;
+        case HalfType: return 2;
+        default:
+            throw ArrayFireException.create(ArrayFireException.InvalidType, "Unsupported type " + type);
+        }
+    }
+
+    // Creation
+
+    // Copies the elements of data, laid out column major, to the device
+    public static FfmArray create(Arena arena, int[] dims, int type, MemorySegment data)
+        throws ArrayFireException {
+        MemorySegment s = scratch();
+        int ndims = setDims(s, dims);
+        if (data.byteSize() < count(dims) * typeSize(type)) {
+            throw ArrayFireException.create(ArrayFireException.InvalidSize,
+                                            "Segment is smaller than the Array");
+        }
+        if (!data.isNative()) {
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument,
+                                            "Data must be in native memory");
+        }
+        return result(arena, s, AfLib.createArray(s, data, ndims, s.asSlice(DIMS), type));
+    }
+
+    public static FfmArray create(Arena arena, int[] dims, float[] data) throws ArrayFireException {
+        if (data.length < count(dims)) {
+            throw ArrayFireException.create(ArrayFireException.InvalidSize,
+                                            "Data is smaller than the Array");
+        }
+        try (Arena tmp = Arena.ofConfined()) {
+            MemorySegment seg = tmp.allocate(4L * data.length, 4);
+            MemorySegment.copy(data, 0, seg, JAVA_FLOAT, 0, data.length);
+            return create(arena, dims, FloatType, seg);
+        }
+    }
+
+    public static FfmArray randu(Arena arena, int[] dims, int type) throws ArrayFireException {
+        MemorySegment s = scratch();
+        int ndims = setDims(s, dims);
+        return result(arena, s, AfLib.randu(s, ndims, s.asSlice(DIMS), type));
+    }
+
+    public static FfmArray randn(Arena arena, int[] dims, int type) throws ArrayFireException {
+        MemorySegment s = scratch();
+        int ndims = setDims(s, dims);
+        return result(arena, s, AfLib.randn(s, ndims, s.asSlice(DIMS), type));
+    }
+
+    public static FfmArray constant(Arena arena, double val, int[] dims, int type) throws ArrayFireException {
+        MemorySegment s = scratch();
+        int ndims = setDims(s, dims);
+        return result(arena, s, AfLib.constant(s, val, ndims, s.asSlice(DIMS), type));
+    }
+
+    // Properties
+
+    public Arena arena() { return arena; }
+
+    public int type() throws ArrayFireException {
+        MemorySegment s = scratch();
+        AfLib.check(AfLib.getType(s, handle.get()));
+        return s.get(JAVA_INT, OUT);
+    }
+
+    public long elements() throws ArrayFireException {
+        MemorySegment s = scratch();
+        AfLib.check(AfLib.getElements(s.asSlice(REAL), handle.get()));
+        return s.get(JAVA_LONG, REAL);
+    }
+
+    public int[] dims() throws ArrayFireException {
+        MemorySegment s = scratch();
+        AfLib.check(AfLib.getDims(s.asSlice(DIMS), s.asSlice(DIMS + 8), s.asSlice(DIMS + 16),
+                                  s.asSlice(DIMS + 24), handle.get()));
+        int[] res = new int[4];
+        for (int i = 0; i < 4; i++) res[i] = (int)s.get(JAVA_LONG, DIMS + 8 * i);
+        return res;
+    }
+
+    // Host transfers
+
+    // Copies the elements to dst, which must be in native memory and
+    // hold at least elements() of type()
+    public void copyTo(MemorySegment dst) throws ArrayFireException {
+        if (!dst.isNative()) {
+            throw ArrayFireException.create(ArrayFireException.InvalidArgument,
+                                            "Destination must be in native memory");
+        }
+        if (dst.byteSize() < elements() * typeSize(type())) {
+            throw ArrayFireException.create(ArrayFireException.InvalidSize,
+                                            "Segment is smaller than the Array");
+        }
+        AfLib.check(AfLib.getDataPtr(dst, handle.get()));
+    }
+
+    // Copies the elements to a new segment of arena
+    public MemorySegment toSegment(Arena arena) throws ArrayFireException {
+        long size = typeSize(type());
+        MemorySegment dst = arena.allocate(elements() * size, size > 8 ? 8 : size);
+        copyTo(dst);
+        return dst;
+    }
+
+    public float[] getFloatArray() throws ArrayFireException {
+        if (type() != FloatType) {
+            throw ArrayFireException.create(ArrayFireException.InvalidType, "Array is not of FloatType");
+        }
+        try (Arena tmp = Arena.ofConfined()) {
+            return toSegment(tmp).toArray(JAVA_FLOAT);
+        }
+    }
+
+    // Elementwise arithmetic, operands must have the same dims. The forms
+    // taking an arena put the result in it instead of the arena of this.
+
+    private FfmArray binary(int op, FfmArray b, Arena arena) throws ArrayFireException {
+        MemorySegment s = scratch();
+        return result(arena, s, AfLib.binary(op, s, handle.get(), b.handle.get()));
+    }
+
+    public FfmArray add(FfmArray b) throws ArrayFireException {
+        return binary(AfLib.BINARY_ADD, b, arena);
+    }
+
+    public FfmArray add(FfmArray b, Arena arena) throws ArrayFireException {
+        return binary(AfLib.BINARY_ADD, b, arena);
+    }
+
+    public FfmArray sub(FfmArray b) throws ArrayFireException {
+        return binary(AfLib.BINARY_SUB, b, arena);
+    }
+
+    public FfmArray sub(FfmArray b, Arena arena) throws ArrayFireException {
+        return binary(AfLib.BINARY_SUB, b, arena);
+    }
+
+    public FfmArray mul(FfmArray b) throws ArrayFireException {
+        return binary(AfLib.BINARY_MUL, b, arena);
+    }
+
+    public FfmArray mul(FfmArray b, Arena arena) throws ArrayFireException {
+        return binary(AfLib.BINARY_MUL, b, arena);
+    }
+
+    public FfmArray div(FfmArray b) throws ArrayFireException {
+        return binary(AfLib.BINARY_DIV, b, arena);
+    }
+
+    public FfmArray div(FfmArray b, Arena arena) throws ArrayFireException {
+        return binary(AfLib.BINARY_DIV, b, arena);
+    }
+
+    public FfmArray matmul(FfmArray b) throws ArrayFireException {
+        MemorySegment s = scratch();
+        // AF_MAT_NONE for both sides
+        return result(arena, s, AfLib.matmul(s, handle.get(), b.handle.get(), 0, 0));
+    }
+
+    public FfmArray exp() throws ArrayFireException {
+        MemorySegment s = scratch();
+        return result(arena, s, AfLib.exp(s, handle.get()));
+    }
+
+    public FfmArray sqrt() throws ArrayFireException {
+        MemorySegment s = scratch();
+        return result(arena, s, AfLib.sqrt(s, handle.get()));
+    }
+
+    // Reductions over all elements, the real part for complex Arrays
+
+    private double reduceAll(int op) throws ArrayFireException {
+        MemorySegment s = scratch();
+        AfLib.check(AfLib.reduceAll(op, s.asSlice(REAL), s.asSlice(IMAG), handle.get()));
+        return s.get(JAVA_DOUBLE, REAL);
+    }
+
+    public double sumAll() throws ArrayFireException {
+        return reduceAll(AfLib.REDUCE_SUM);
+    }
+
+    public double maxAll() throws ArrayFireException {
+        return reduceAll(AfLib.REDUCE_MAX);
+    }
+
+    public double minAll() throws ArrayFireException {
+        return reduceAll(AfLib.REDUCE_MIN);
+    }
+
+    public double meanAll() throws ArrayFireException {
+        return reduceAll(AfLib.REDUCE_MEAN);
+    }
+
+    // Device
+
+    // Evaluates a lazy result
+    public FfmArray eval() throws ArrayFireException {
+        scratch();
+        AfLib.check(AfLib.eval(handle.get()));
+        return this;
+    }
+
+    // Waits for the work queued on the active device
+    public static void sync() throws ArrayFireException {
+        scratch();
+        AfLib.check(AfLib.sync(-1));
+    }
+
+    // Whether the ArrayFire library can be bound, for choosing between
+    // this binding and the JNI one at startup
+    public static boolean isAvailable() {
+        try {
+            Class.forName(AfLib.class.getName(), true, FfmArray.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    // Switches the calling thread to another backend and makes it the one
+    // other threads bind on their first call, as Backend.set does for the
+    // JNI binding
+    public static void setBackend(int backend) throws ArrayFireException {
+        AfLib.check(AfLib.setBackend(backend));
+        AfLib.preferredBackend = backend;
+    }
+
+    // Releases the device memory now instead of with the arena
+    @Override
+    public void close() {
+        handle.release();
+    }
+}
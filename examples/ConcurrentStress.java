@@ -0,0 +1,124 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.arrayfire.Array;
+
+// Shares a pair of Arrays between many threads, each of which computes
+// from them, reads them back and checks the results. Also shares a lazy
+// Array so several threads race to evaluate it, and a lazy Array with
+// a lazy operand so one thread evaluates the operand while another
+// evaluates the Array built on it.
+//
+//     java ConcurrentStress [threads] [iterations]
+public class ConcurrentStress {
+    public static void main(String[] args) throws Exception {
+        final int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        final int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        System.out.println("Running " + threads + " threads x " + iterations + " iterations");
+
+        final int n = 1024;
+        final int[] dims = new int[] { n, 1 };
+        float[] left = new float[n];
+        float[] right = new float[n];
+        for (int i = 0; i < n; i++) {
+            left[i] = (float)i;
+            right[i] = (float)(n - i);
+        }
+
+        final Array A = new Array(dims, left);
+        final Array B = new Array(dims, right);
+
+        Array.setLazy(true);
+        final Array lazy = Array.mul(Array.add(A, B), 2.0f);
+        Array.setLazy(false);
+
+        final AtomicInteger failures = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<Thread>();
+
+        for (int t = 0; t < threads; t++) {
+            Thread w = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int it = 0; it < iterations; it++) {
+                        // Every element of A + B is n
+                        try (Array sum = Array.add(A, B)) {
+                            if (Array.sumAll(sum) != (double)n * n) failures.incrementAndGet();
+                        }
+
+                        float[] res = lazy.getFloatArray();
+                        for (int i = 0; i < n; i++) {
+                            if (res[i] != 2.0f * n) {
+                                failures.incrementAndGet();
+                                break;
+                            }
+                        }
+                    }
+                } catch (Exception e) {
+                    System.out.println(e.getMessage());
+                    failures.incrementAndGet();
+                }
+            });
+            w.start();
+            workers.add(w);
+        }
+
+        start.countDown();
+        for (Thread w : workers) w.join();
+
+        // Every element of (A + B) * 2 is 2n and of A + B is n
+        for (int it = 0; it < iterations; it++) {
+            Array.setLazy(true);
+            final Array mid = Array.add(A, B);
+            final Array parent = Array.mul(mid, 2.0f);
+            Array.setLazy(false);
+
+            final CountDownLatch race = new CountDownLatch(1);
+            Thread child = new Thread(() -> {
+                try {
+                    race.await();
+                    if (!allEqual(mid.getFloatArray(), (float)n)) failures.incrementAndGet();
+                } catch (Exception e) {
+                    System.out.println(e.getMessage());
+                    failures.incrementAndGet();
+                }
+            });
+            Thread root = new Thread(() -> {
+                try {
+                    race.await();
+                    if (!allEqual(parent.getFloatArray(), 2.0f * n)) failures.incrementAndGet();
+                } catch (Exception e) {
+                    System.out.println(e.getMessage());
+                    failures.incrementAndGet();
+                }
+            });
+            child.start();
+            root.start();
+            race.countDown();
+            child.join();
+            root.join();
+
+            parent.close();
+            mid.close();
+        }
+
+        A.close();
+        B.close();
+        lazy.close();
+
+        if (failures.get() != 0) {
+            System.out.println("FAILED: " + failures.get() + " mismatches");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    private static boolean allEqual(float[] res, float value) {
+        for (float r : res) {
+            if (r != value) return false;
+        }
+        return true;
+    }
+}
@@ -1,5 +1,9 @@
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import com.arrayfire.Array;
+import com.arrayfire.ArrayScope;
+import com.arrayfire.AsyncArrays;
+import com.arrayfire.RandomEngine;
 
 public class MonteCarloPi {
 
@@ -16,26 +20,50 @@ public class MonteCarloPi {
         return 4.0 * ((double)(count)) / size;
     }
 
-    public static double deviceCalcPi(int size) throws Exception {
-        Array x = null, y = null, res = null;
-        try {
+    public static double deviceCalcPi(int size, RandomEngine rng) throws Exception {
+        return 4.0 * deviceCount(size, rng) / size;
+    }
+
+    // Points of size samples that fall inside the unit circle. The scope
+    // only releases the intermediate Arrays, so the body never names it.
+    @SuppressWarnings("try")
+    private static double deviceCount(int size, RandomEngine rng) throws Exception {
+        try (ArrayScope scope = ArrayScope.open()) {
 
             int[] dims =  new int[] {size, 1};
-            x = Array.randu(dims, Array.FloatType);
-            y = Array.randu(dims, Array.FloatType);
+            Array x = rng.randu(dims, Array.FloatType);
+            Array y = rng.randu(dims, Array.FloatType);
 
             x = Array.mul(x, x);
             y = Array.mul(y, y);
 
-            res = Array.add(x , y);
+            Array res = Array.add(x , y);
             res = Array.lt(res, 1);
-            double count = Array.sumAll(res);
-            return 4.0 * ((double)(count)) / size;
+            return Array.sumAll(res);
+        }
+    }
 
-        } finally {
-            if (x != null) x.close();
-            if (y != null) y.close();
-            if (res != null) res.close();
+    // Splits size samples over one stream per worker thread. The same
+    // seed gives the same estimate however the tasks are scheduled.
+    public static double parallelCalcPi(int size, long seed, int workers) throws Exception {
+        int chunk = size / workers;
+        try (RandomEngine root = new RandomEngine(seed);
+             AsyncArrays async = new AsyncArrays(workers, workers)) {
+
+            RandomEngine[] streams = root.split(workers);
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            CompletableFuture<Double>[] counts = new CompletableFuture[workers];
+            for (int i = 0; i < workers; i++) {
+                final RandomEngine rng = streams[i];
+                counts[i] = async.submit(() -> deviceCount(chunk, rng));
+            }
+
+            double count = 0;
+            for (int i = 0; i < workers; i++) {
+                count += counts[i].get();
+                streams[i].close();
+            }
+            return 4.0 * count / ((long)chunk * workers);
         }
     }
 
@@ -44,8 +72,9 @@ public class MonteCarloPi {
         try {
             int size = 5000000;
             int iter = 100;
+            RandomEngine rng = new RandomEngine(1234);
             double hostPi = hostCalcPi(size);
-            double devicePi = deviceCalcPi(size);
+            double devicePi = deviceCalcPi(size, rng);
 
             System.out.println("Results from host: " + hostPi);
             System.out.println("Results from device: " + devicePi);
@@ -58,7 +87,7 @@ public class MonteCarloPi {
 
             long deviceStart = System.currentTimeMillis();
             for (int i = 0; i < iter; i++) {
-                devicePi = deviceCalcPi(size);
+                devicePi = deviceCalcPi(size, rng);
             }
             double deviceElapsed = (double)(System.currentTimeMillis() - deviceStart)/iter;
 
@@ -66,6 +95,12 @@ public class MonteCarloPi {
             System.out.println("Time taken for device (ms): " + deviceElapsed);
             System.out.println("Speedup: " + Math.round((hostElapsed) / (deviceElapsed)));
 
+            double first = parallelCalcPi(size, 42, 4);
+            double second = parallelCalcPi(size, 42, 4);
+            System.out.println("Results from 4 streams: " + first
+                               + (first == second ? " (reproducible)" : " (differs: " + second + ")"));
+            rng.close();
+
         } catch (Exception e) {
             System.out.println(e.getMessage());
         }
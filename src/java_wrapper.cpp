@@ -1,4 +1,9 @@
 #include <vector>
+#include <string>
+#include <stdexcept>
+#include <new>
+#include <atomic>
+#include <cmath>
 #include <arrayfire.h>
 #include <af/utils.h>
 #include "java_wrapper.h"
@@ -13,16 +18,267 @@
   } while (0)
 #endif
 
-const int MaxDimSupported = 3;
+const int MaxDimSupported = 4;
 
-JNIEXPORT void JNICALL Java_com_arrayfire_Array_info(JNIEnv *env, jclass clazz)
+// Error of the last native method that failed on the calling thread.
+// Native methods report failure through their return value, and the
+// Java side reads the cause back only then, see ArrayFireException.
+static thread_local int lastErrorCode = AF_SUCCESS;
+static thread_local std::string lastErrorMessage;
+
+static void setError(const af::exception &e)
+{
+    lastErrorCode = e.err();
+    lastErrorMessage = e.what();
+}
+
+static void setError(const std::exception &e)
+{
+    if (dynamic_cast<const std::bad_alloc*>(&e)) lastErrorCode = AF_ERR_NO_MEM;
+    else if (dynamic_cast<const std::invalid_argument*>(&e)) lastErrorCode = AF_ERR_ARG;
+    else lastErrorCode = AF_ERR_UNKNOWN;
+    lastErrorMessage = e.what();
+}
+
+// Clears the error state of the thread, so a failure returned without
+// setError does not report an older, unrelated cause
+static void clearError()
+{
+    lastErrorCode = AF_SUCCESS;
+    lastErrorMessage.clear();
+}
+
+// Backend every thread is bound to on its first call, set by Backend.
+// ArrayFire's unified library keeps the active backend per thread, so
+// binding only the thread that loaded the library would leave all other
+// threads on ArrayFire's own default.
+static std::atomic<int> preferredBackend(AF_BACKEND_DEFAULT);
+static thread_local bool threadBound = false;
+
+// Called first by every native method that can fail except the backend
+// selection ones. Clears the error state and binds a thread's first call
+// to the preferred backend, retrying on the next call if that fails.
+static void beginCall()
+{
+    clearError();
+    if (threadBound) return;
+    int backend = preferredBackend.load();
+    if (backend != AF_BACKEND_DEFAULT) af::setBackend((af::Backend)backend);
+    threadBound = true;
+}
+
+JNIEXPORT jint JNICALL Java_com_arrayfire_Array_takeErrorCode(JNIEnv *env, jclass clazz)
+{
+    int code = lastErrorCode;
+    lastErrorCode = AF_SUCCESS;
+    lastErrorMessage.clear();
+    return code;
+}
+
+JNIEXPORT jstring JNICALL Java_com_arrayfire_Array_lastErrorMessage(JNIEnv *env, jclass clazz)
+{
+    if (lastErrorMessage.empty()) return NULL;
+    return env->NewStringUTF(lastErrorMessage.c_str());
+}
+
+// Array behind a handle. Throws instead of dereferencing a 0 handle, so
+// an Array that was released or never created fails the call instead
+// of crashing the JVM.
+static af::array *toArray(jlong handle)
+{
+    if (handle == 0) throw std::invalid_argument("Null array handle");
+    return (af::array*)(handle);
+}
+
+static af::dim4 toDim4(JNIEnv *env, jintArray dims)
+{
+    jint d[MaxDimSupported];
+    env->GetIntArrayRegion(dims, 0, MaxDimSupported, d);
+    return af::dim4(d[0], d[1], d[2], d[3]);
+}
+
+// Address of a direct buffer, throwing for any other buffer
+static char *bufferAddress(JNIEnv *env, jobject buf)
+{
+    char *ptr = (char*)env->GetDirectBufferAddress(buf);
+    if (ptr == NULL) throw std::invalid_argument("Buffer is not a direct buffer");
+    return ptr;
+}
+
+// Declares the JNI version the wrapper needs. The wrapper looks up no
+// class, field or method IDs: everything crosses as primitives, arrays
+// of them and handles, so there is no JNI state to cache and no native
+// method initializes shared state lazily. Any ID added later belongs
+// here, as the JVM runs JNI_OnLoad once before any native method.
+JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *vm, void *reserved)
+{
+    JNIEnv *env;
+    if (vm->GetEnv((void**)&env, JNI_VERSION_1_6) != JNI_OK) return JNI_ERR;
+    return JNI_VERSION_1_6;
+}
+
+// Backends, backend takes af::Backend values, see Backend.java
+
+// Called once from the static initializer of Backend. ArrayFire sets up
+// its device manager on first use. Do that here, while the JVM holds the
+// class initialization lock, instead of in whichever request threads
+// happen to call in first. Selecting the backend beforehand keeps the
+// unified library from initializing its default backend as well.
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Backend_init(JNIEnv *env, jclass clazz, jint backend)
+{
+    try{
+        clearError();
+        if (backend != AF_BACKEND_DEFAULT) af::setBackend((af::Backend)backend);
+        af::getDevice();
+        preferredBackend.store(backend);
+        threadBound = true;
+        return JNI_TRUE;
+    } catch(af::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    } catch(std::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    }
+}
+
+// Binds the calling thread and makes backend the one other threads bind
+// on their first call
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Backend_setBackend(JNIEnv *env, jclass clazz, jint backend)
+{
+    try{
+        clearError();
+        af::setBackend((af::Backend)backend);
+        preferredBackend.store(backend);
+        threadBound = true;
+        return JNI_TRUE;
+    } catch(af::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    } catch(std::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    }
+}
+
+JNIEXPORT jint JNICALL Java_com_arrayfire_Backend_getActiveBackend(JNIEnv *env, jclass clazz)
+{
+    try{
+        beginCall();
+        return (jint)af::getActiveBackend();
+    } catch(af::exception& e) {
+        setError(e);
+        return AF_BACKEND_DEFAULT;
+    } catch(std::exception& e) {
+        setError(e);
+        return AF_BACKEND_DEFAULT;
+    }
+}
+
+JNIEXPORT jint JNICALL Java_com_arrayfire_Backend_getAvailableBackends(JNIEnv *env, jclass clazz)
+{
+    try{
+        beginCall();
+        return af::getAvailableBackends();
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+// Name, platform, toolkit and compute capability of the active device
+JNIEXPORT jstring JNICALL Java_com_arrayfire_Backend_deviceInfo(JNIEnv *env, jclass clazz)
+{
+    try{
+        beginCall();
+        char name[256], platform[256], toolkit[256], compute[256];
+        af::deviceInfo(name, platform, toolkit, compute);
+        std::string res = std::string(name) + ", " + platform + ", " + toolkit + ", " + compute;
+        return env->NewStringUTF(res.c_str());
+    } catch(af::exception& e) {
+        setError(e);
+        return NULL;
+    } catch(std::exception& e) {
+        setError(e);
+        return NULL;
+    }
+}
+
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_printInfo(JNIEnv *env, jclass clazz)
 {
     try{
+        beginCall();
 #ifndef ANDROID
         af::info();
 #endif
+        return JNI_TRUE;
+    } catch(af::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    } catch(std::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    }
+}
+
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_selectDevice(JNIEnv *env, jclass clazz, jint device)
+{
+    try{
+        beginCall();
+        af::setDevice(device);
+        return JNI_TRUE;
+    } catch(af::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    } catch(std::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    }
+}
+
+JNIEXPORT jint JNICALL Java_com_arrayfire_Array_getDevice(JNIEnv *env, jclass clazz)
+{
+    try{
+        beginCall();
+        return af::getDevice();
+    } catch(af::exception& e) {
+        setError(e);
+        return -1;
+    } catch(std::exception& e) {
+        setError(e);
+        return -1;
+    }
+}
+
+JNIEXPORT jint JNICALL Java_com_arrayfire_Array_getDeviceCount(JNIEnv *env, jclass clazz)
+{
+    try{
+        beginCall();
+        return af::getDeviceCount();
     } catch(af::exception& e) {
+        setError(e);
+        return 0;
     } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_syncDevice(JNIEnv *env, jclass clazz)
+{
+    try{
+        beginCall();
+        af::sync();
+        return JNI_TRUE;
+    } catch(af::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    } catch(std::exception& e) {
+        setError(e);
+        return JNI_FALSE;
     }
 }
 
@@ -30,15 +286,19 @@ JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createRanduArray(JNIEnv *env, j
 {
     jlong ret;
     try{
-        jint* dimptr = env->GetIntArrayElements(dims,0);
+        beginCall();
+        jint dimptr[MaxDimSupported];
+        env->GetIntArrayRegion(dims, 0, MaxDimSupported, dimptr);
+        af::dim4 mydims(dimptr[0],dimptr[1],dimptr[2],dimptr[3]);
         af::dtype ty = (af::dtype)(type);
-        af::array *A = new af::array(dimptr[0],dimptr[1],dimptr[2],dimptr[3], ty);
-        *A = af::randu(dimptr[0],dimptr[1],dimptr[2], ty);
+        af::array *A = new af::array();
+        *A = af::randu(mydims, ty);
         ret = (jlong)(A);
-        env->ReleaseIntArrayElements(dims,dimptr,0);
     } catch(af::exception& e) {
+        setError(e);
         ret = 0;
     } catch(std::exception& e) {
+        setError(e);
         ret = 0;
     }
     return ret;
@@ -48,15 +308,19 @@ JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createRandnArray(JNIEnv *env, j
 {
     jlong ret;
     try{
-        jint* dimptr = env->GetIntArrayElements(dims,0);
+        beginCall();
+        jint dimptr[MaxDimSupported];
+        env->GetIntArrayRegion(dims, 0, MaxDimSupported, dimptr);
+        af::dim4 mydims(dimptr[0],dimptr[1],dimptr[2],dimptr[3]);
         af::dtype ty = (af::dtype)(type);
-        af::array *A = new af::array(dimptr[0],dimptr[1],dimptr[2],dimptr[3], ty);
-        *A = af::randn(dimptr[0],dimptr[1],dimptr[2], ty);
+        af::array *A = new af::array();
+        *A = af::randn(mydims, ty);
         ret = (jlong)(A);
-        env->ReleaseIntArrayElements(dims,dimptr,0);
     } catch(af::exception& e) {
+        setError(e);
         ret = 0;
     } catch(std::exception& e) {
+        setError(e);
         ret = 0;
     }
     return ret;
@@ -67,15 +331,19 @@ JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createConstantsArray(JNIEnv *en
 {
     jlong ret;
     try{
-        jint* dimptr = env->GetIntArrayElements(dims,0);
+        beginCall();
+        jint dimptr[MaxDimSupported];
+        env->GetIntArrayRegion(dims, 0, MaxDimSupported, dimptr);
+        af::dim4 mydims(dimptr[0],dimptr[1],dimptr[2],dimptr[3]);
         af::dtype ty = (af::dtype)(type);
-        af::array *A = new af::array(dimptr[0],dimptr[1],dimptr[2],dimptr[3], ty);
-        *A = af::constant(val, dimptr[0],dimptr[1],dimptr[2], ty);
+        af::array *A = new af::array();
+        *A = af::constant(val, mydims, ty);
         ret = (jlong)(A);
-        env->ReleaseIntArrayElements(dims,dimptr,0);
     } catch(af::exception& e) {
+        setError(e);
         ret = 0;
     } catch(std::exception& e) {
+        setError(e);
         ret = 0;
     }
     return ret;
@@ -85,15 +353,19 @@ JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createEmptyArray(JNIEnv *env, j
 {
     jlong ret;
     try{
-        jint* dimptr = env->GetIntArrayElements(dims,0);
+        beginCall();
+        jint dimptr[MaxDimSupported];
+        env->GetIntArrayRegion(dims, 0, MaxDimSupported, dimptr);
+        af::dim4 mydims(dimptr[0],dimptr[1],dimptr[2],dimptr[3]);
         af::dtype ty = (af::dtype)(type);
-        af::array *A = new af::array(dimptr[0],dimptr[1],dimptr[2],dimptr[3], ty);
-        *A = af::constant(0.0f,dimptr[0],dimptr[1],dimptr[2], ty);
+        af::array *A = new af::array();
+        *A = af::constant(0.0f, mydims, ty);
         ret = (jlong)(A);
-        env->ReleaseIntArrayElements(dims,dimptr,0);
     } catch(af::exception& e) {
+        setError(e);
         ret = 0;
     } catch(std::exception& e) {
+        setError(e);
         ret = 0;
     }
     return ret;
@@ -105,6 +377,7 @@ JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createEmptyArray(JNIEnv *env, j
     {                                                                   \
         jlong ret;                                                      \
         try{                                                            \
+            beginCall();                                               \
             jint* dimptr = env->GetIntArrayElements(dims,0);            \
             wty* inptr= (wty*)env->Get##Ty##ArrayElements(elems,0);     \
                 af::array *A = new af::array(dimptr[0],dimptr[1],       \
@@ -114,8 +387,10 @@ JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createEmptyArray(JNIEnv *env, j
                 env->ReleaseIntArrayElements(dims,dimptr,0);            \
                 env->Release##Ty##ArrayElements(elems,(j##ty*)inptr,0); \
         } catch(af::exception& e) {                                     \
+            setError(e);                                                \
             ret = 0;                                                    \
         } catch(std::exception& e) {                                    \
+            setError(e);                                                \
             ret = 0;                                                    \
         }                                                               \
         return ret;                                                     \
@@ -132,112 +407,316 @@ CREATE_ARRAY_T_(Boolean, boolean, bool);
 
 #undef CREATE_ARRAY_T
 
-JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createArrayFromFloatComplex(JNIEnv *env, jclass clazz, jintArray dims, jobjectArray objs)
-{
-    jlong ret;
-    try{
-        jint* dimptr = env->GetIntArrayElements(dims,0);
-        jint len = env->GetArrayLength(objs);
-
-        static jclass cls;
-        static jfieldID re, im;
-        static bool isfirst = true;
-
-        if (isfirst) {
-            cls = env->FindClass("com/arrayfire/FloatComplex");
-            re = env->GetFieldID(cls, "real", "F");
-            im = env->GetFieldID(cls, "imag", "F");
-            isfirst = false;
-        }
+// Complex arrays are passed as interleaved (re, im) primitives, which
+// have the same layout as cfloat/cdouble, or as separate real and
+// imaginary planes that are combined on the device.
+#define CREATE_COMPLEX_ARRAY_T(Ty, ty, cty)                             \
+    JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createArrayFromInterleaved##Ty \
+    (JNIEnv *env, jclass clazz, jintArray dims, j##ty##Array reIm)      \
+    {                                                                   \
+        jlong ret;                                                      \
+        try{                                                            \
+            beginCall();                                               \
+            jint* dimptr = env->GetIntArrayElements(dims,0);            \
+            af::dim4 mydims(dimptr[0],dimptr[1],dimptr[2],dimptr[3]);   \
+            env->ReleaseIntArrayElements(dims,dimptr,0);                \
+                                                                        \
+            j##ty* inptr = env->Get##Ty##ArrayElements(reIm,0);         \
+            af::array *A = new af::array(mydims, (cty*)inptr);          \
+            env->Release##Ty##ArrayElements(reIm,inptr,JNI_ABORT);      \
+            ret = (jlong)(A);                                           \
+        } catch(af::exception& e) {                                     \
+            setError(e);                                                \
+            ret = 0;                                                    \
+        } catch(std::exception& e) {                                    \
+            setError(e);                                                \
+            ret = 0;                                                    \
+        }                                                               \
+        return ret;                                                     \
+    }                                                                   \
+                                                                        \
+    JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createArrayFromSplit##Ty \
+    (JNIEnv *env, jclass clazz, jintArray dims,                         \
+     j##ty##Array re, j##ty##Array im)                                  \
+    {                                                                   \
+        jlong ret;                                                      \
+        try{                                                            \
+            beginCall();                                               \
+            jint* dimptr = env->GetIntArrayElements(dims,0);            \
+            af::dim4 mydims(dimptr[0],dimptr[1],dimptr[2],dimptr[3]);   \
+            env->ReleaseIntArrayElements(dims,dimptr,0);                \
+                                                                        \
+            j##ty* reptr = env->Get##Ty##ArrayElements(re,0);           \
+            af::array real(mydims, (ty*)reptr);                         \
+            env->Release##Ty##ArrayElements(re,reptr,JNI_ABORT);        \
+                                                                        \
+            j##ty* imptr = env->Get##Ty##ArrayElements(im,0);           \
+            af::array imag(mydims, (ty*)imptr);                         \
+            env->Release##Ty##ArrayElements(im,imptr,JNI_ABORT);        \
+                                                                        \
+            af::array *A = new af::array();                             \
+            *A = af::complex(real, imag);                               \
+            ret = (jlong)(A);                                           \
+        } catch(af::exception& e) {                                     \
+            setError(e);                                                \
+            ret = 0;                                                    \
+        } catch(std::exception& e) {                                    \
+            setError(e);                                                \
+            ret = 0;                                                    \
+        }                                                               \
+        return ret;                                                     \
+    }                                                                   \
 
+CREATE_COMPLEX_ARRAY_T(Float, float, cfloat);
+CREATE_COMPLEX_ARRAY_T(Double, double, cdouble);
+
+// Builds an array of the given type straight from host memory.
+// Used for direct buffers and typed primitive arrays, where ptr points
+// into memory owned by Java.
+static af::array createFromHost(af::dim4 dims, af::dtype ty, void *ptr)
+{
+    switch (ty) {
+    case af::f32: return af::array(dims, (float              *)ptr);
+    case af::c32: return af::array(dims, (cfloat             *)ptr);
+    case af::f64: return af::array(dims, (double             *)ptr);
+    case af::c64: return af::array(dims, (cdouble            *)ptr);
+    case af::b8 : return af::array(dims, (bool               *)ptr);
+    case af::s32: return af::array(dims, (int                *)ptr);
+    case af::u32: return af::array(dims, (unsigned           *)ptr);
+    case af::u8 : return af::array(dims, (unsigned char      *)ptr);
+    case af::s64: return af::array(dims, (long long          *)ptr);
+    case af::u64: return af::array(dims, (unsigned long long *)ptr);
+    case af::s16: return af::array(dims, (short              *)ptr);
+    case af::u16: return af::array(dims, (unsigned short     *)ptr);
+    case af::f16: return af::array(dims, (af_half            *)ptr);
+    default: throw std::invalid_argument("Unsupported type");
+    }
+}
 
-        cfloat *tmp = new cfloat[len];
+// Page locked host memory from ArrayFire's pinned pool, which keeps
+// freed blocks for reuse. Transfers between Java arrays and the device
+// are staged through it instead of pinning the Java array with
+// GetPrimitiveArrayCritical, which would block the garbage collector of
+// every thread for the whole transfer. Copying in and out of the Java
+// array is a plain Get/Set<T>ArrayRegion, and the device copy from page
+// locked memory is the fast path anyway.
+struct PinnedBuffer {
+    void *ptr;
+
+    explicit PinnedBuffer(size_t bytes)
+        : ptr(bytes > 0 ? af::pinned(bytes, af::u8) : NULL) {}
+    ~PinnedBuffer() { if (ptr != NULL) af::freePinned(ptr); }
+
+private:
+    PinnedBuffer(const PinnedBuffer&);
+    PinnedBuffer& operator=(const PinnedBuffer&);
+};
+
+// Java has no unsigned or half precision primitives, so those types
+// arrive as the signed primitive of the same width. The Java side
+// checks the widths match and that elems holds exactly the elements.
+#define CREATE_TYPED_ARRAY_T(Ty, ty)                                    \
+    JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createTypedArrayFrom##Ty \
+    (JNIEnv *env, jclass clazz, jintArray dims, j##ty##Array elems, jint type) \
+    {                                                                   \
+        try{                                                            \
+            beginCall();                                               \
+            jint dimptr[MaxDimSupported];                               \
+            env->GetIntArrayRegion(dims, 0, MaxDimSupported, dimptr);   \
+            af::dim4 mydims(dimptr[0],dimptr[1],dimptr[2],dimptr[3]);   \
+                                                                        \
+            jsize n = env->GetArrayLength(elems);                       \
+            PinnedBuffer staging(n * sizeof(j##ty));                    \
+            env->Get##Ty##ArrayRegion(elems, 0, n, (j##ty*)staging.ptr); \
+            af::array A = createFromHost(mydims, (af::dtype)(type), staging.ptr); \
+            return (jlong)new af::array(A);                             \
+        } catch(af::exception& e) {                                     \
+            setError(e);                                                \
+            return 0;                                                   \
+        } catch(std::exception& e) {                                    \
+            setError(e);                                                \
+            return 0;                                                   \
+        }                                                               \
+    }                                                                   \
 
-        for (int i = 0; i < len; i++) {
-            jobject obj = env->GetObjectArrayElement(objs, i);
-            jfloat real = env->GetFloatField(obj, re);
-            jfloat imag = env->GetFloatField(obj, im);
+CREATE_TYPED_ARRAY_T(Byte, byte);
+CREATE_TYPED_ARRAY_T(Short, short);
+CREATE_TYPED_ARRAY_T(Int, int);
+CREATE_TYPED_ARRAY_T(Long, long);
 
-#ifdef AFCL
-            tmp[i].s[0] = real;
-            tmp[i].s[1] = imag;
-#else
-            tmp[i].x = real;
-            tmp[i].y = imag;
-#endif
-        }
+#undef CREATE_TYPED_ARRAY_T
 
-        af::array *A = new af::array(dimptr[0],dimptr[1],dimptr[2],dimptr[3],tmp);
-        delete[] tmp;
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createArrayFromBuffer(JNIEnv *env, jclass clazz, jintArray dims, jobject elems, jint offset, jint type)
+{
+    jlong ret;
+    try{
+        beginCall();
+        char *inptr = bufferAddress(env, elems);
 
+        af::array *A = new af::array();
+        *A = createFromHost(toDim4(env, dims), (af::dtype)(type), inptr + offset);
         ret = (jlong)(A);
-        env->ReleaseIntArrayElements(dims,dimptr,0);
-
     } catch(af::exception& e) {
+        setError(e);
         ret = 0;
     } catch(std::exception& e) {
+        setError(e);
         ret = 0;
     }
     return ret;
 }
 
-JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createArrayFromDoubleComplex(JNIEnv *env, jclass clazz, jintArray dims, jobjectArray objs)
+// Copies length elements starting at element srcOffset to host memory.
+// Whole arrays are copied directly, anything else is indexed linearly
+// on the device first so only the requested range is transferred.
+static void copyRangeToHost(const af::array &A, void *ptr, jint srcOffset, jint length)
+{
+    if (srcOffset == 0 && length == A.elements()) {
+        A.host(ptr);
+    } else {
+        af::array sub = A(af::seq(srcOffset, srcOffset + length - 1));
+        sub.host(ptr);
+    }
+}
+
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_copyToBuffer(JNIEnv *env, jclass clazz, jlong ref, jobject dst, jint offset, jint srcOffset, jint length)
 {
-    jlong ret;
     try{
-        jint* dimptr = env->GetIntArrayElements(dims,0);
-        jint len = env->GetArrayLength(objs);
+        beginCall();
+        char *outptr = bufferAddress(env, dst);
 
-        static jclass cls;
-        static jfieldID re, im;
-        static bool isfirst = true;
+        af::array *A = toArray(ref);
+        copyRangeToHost(*A, outptr + offset, srcOffset, length);
+    } catch(af::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    } catch(std::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    }
+    return JNI_TRUE;
+}
 
-        cdouble *tmp = new cdouble[len];
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_copyFromBuffer(JNIEnv *env, jclass clazz, jlong ref, jobject src, jint offset)
+{
+    try{
+        beginCall();
+        char *inptr = bufferAddress(env, src);
 
-        for (int i = 0; i < len; i++) {
-            jobject obj = env->GetObjectArrayElement(objs, i);
+        af::array *A = toArray(ref);
+        *A = createFromHost((*A).dims(), (*A).type(), inptr + offset);
+    } catch(af::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    } catch(std::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    }
+    return JNI_TRUE;
+}
 
-            if (isfirst) {
-                cls = env->GetObjectClass(obj);
-                re = env->GetFieldID(cls, "real", "F");
-                im = env->GetFieldID(cls, "imag", "F");
-                isfirst = false;
-            }
+// Converts on the device, so narrow data can be uploaded as is and
+// widened there
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_cast(JNIEnv *env, jclass clazz, jlong a, jint type)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        af::array *res = new af::array();
+        (*res) = (*A).as((af::dtype)type);
+        return (jlong)(res);
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
 
-            jdouble real = env->GetDoubleField(obj, re);
-            jdouble imag = env->GetDoubleField(obj, im);
+// Releasing never touches the error state of the thread. Nobody reads
+// an error from it, and it may run between a failed call and Java
+// reading that call's cause, as Array.set releases the old handle first.
+JNIEXPORT void JNICALL Java_com_arrayfire_Array_destroyArray(JNIEnv *env, jclass clazz, jlong ref)
+{
+    try{
+        delete (af::array*)(ref);
+    } catch(std::exception& e) {
+    }
+}
 
-#ifdef AFCL
-            tmp[i].s[0] = real;
-            tmp[i].s[1] = imag;
-#else
-            tmp[i].x = real;
-            tmp[i].y = imag;
-#endif
+JNIEXPORT void JNICALL Java_com_arrayfire_Array_destroyArrays(JNIEnv *env, jclass clazz, jlongArray refs, jint count)
+{
+    jlong *refptr = env->GetLongArrayElements(refs, 0);
+    for (int i = 0; i < count; i++) {
+        try{
+            delete (af::array*)(refptr[i]);
+        } catch(std::exception& e) {
         }
+    }
+    env->ReleaseLongArrayElements(refs, refptr, JNI_ABORT);
+}
 
-        af::array *A = new af::array(dimptr[0],dimptr[1],dimptr[2],dimptr[3],tmp);
-        delete[] tmp;
-
-        ret = (jlong)(A);
-        env->ReleaseIntArrayElements(dims,dimptr,0);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_deviceMemInfo(JNIEnv *env, jclass clazz, jlongArray info)
+{
+    try{
+        beginCall();
+        size_t alloc_bytes, alloc_buffers, lock_bytes, lock_buffers;
+        af::deviceMemInfo(&alloc_bytes, &alloc_buffers, &lock_bytes, &lock_buffers);
+        jlong values[4] = { (jlong)alloc_bytes, (jlong)alloc_buffers,
+                            (jlong)lock_bytes, (jlong)lock_buffers };
+        env->SetLongArrayRegion(info, 0, 4, values);
+        return JNI_TRUE;
+    } catch(af::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    } catch(std::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    }
+}
 
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_deviceGC(JNIEnv *env, jclass clazz)
+{
+    try{
+        beginCall();
+        af::deviceGC();
+        return JNI_TRUE;
     } catch(af::exception& e) {
-        ret = 0;
+        setError(e);
+        return JNI_FALSE;
     } catch(std::exception& e) {
-        ret = 0;
+        setError(e);
+        return JNI_FALSE;
     }
-    return ret;
 }
 
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_setMemStepSize(JNIEnv *env, jclass clazz, jlong bytes)
+{
+    try{
+        beginCall();
+        af::setMemStepSize((size_t)bytes);
+        return JNI_TRUE;
+    } catch(af::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    } catch(std::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    }
+}
 
-JNIEXPORT void JNICALL Java_com_arrayfire_Array_destroyArray(JNIEnv *env, jclass clazz, jlong ref)
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_getMemStepSize(JNIEnv *env, jclass clazz)
 {
     try{
-        af::array *A = (af::array*)(ref);
-        delete A;
+        beginCall();
+        return (jlong)af::getMemStepSize();
     } catch(af::exception& e) {
+        setError(e);
+        return 0;
     } catch(std::exception& e) {
+        setError(e);
+        return 0;
     }
 }
 
@@ -247,7 +726,8 @@ JNIEXPORT void JNICALL Java_com_arrayfire_Array_destroyArray(JNIEnv *env, jclass
     {                                                                   \
         j##ty##Array result;                                            \
         try {                                                           \
-            af::array *A = (af::array*)(ref);                           \
+            beginCall();                                               \
+            af::array *A = toArray(ref);                                \
             int size = (*A).elements();                                 \
             result = env->New##Ty##Array(size);                         \
                 if (result == NULL) {                                   \
@@ -259,8 +739,10 @@ JNIEXPORT void JNICALL Java_com_arrayfire_Array_destroyArray(JNIEnv *env, jclass
             (*A).host(resf);                                            \
             env->Release##Ty##ArrayElements(result, resf, 0);           \
         } catch(af::exception& e) {                                     \
+            setError(e);                                                \
             result = NULL;                                              \
         } catch(std::exception& e) {                                    \
+            setError(e);                                                \
             result = NULL;                                              \
         }                                                               \
         return result;                                                  \
@@ -270,110 +752,108 @@ GET_T_FROM_ARRAY(Float, float);
 GET_T_FROM_ARRAY(Double, double);
 GET_T_FROM_ARRAY(Int, int);
 GET_T_FROM_ARRAY(Boolean, boolean);
+GET_T_FROM_ARRAY(Byte, byte);
+GET_T_FROM_ARRAY(Short, short);
+GET_T_FROM_ARRAY(Long, long);
+
+// The device copy lands in a PinnedBuffer, then in the Java array
+#define GET_T_RANGE_FROM_ARRAY(Ty, ty)                                  \
+    JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_get##Ty##RangeFromArray \
+    (JNIEnv *env, jclass clazz, jlong ref, j##ty##Array dst,            \
+     jint dstOffset, jint srcOffset, jint length)                       \
+    {                                                                   \
+        try {                                                           \
+            beginCall();                                               \
+            af::array *A = toArray(ref);                                \
+            if (length == 0) return JNI_TRUE;                           \
+            PinnedBuffer staging(length * sizeof(j##ty));               \
+            copyRangeToHost(*A, staging.ptr, srcOffset, length);        \
+            env->Set##Ty##ArrayRegion(dst, dstOffset, length,           \
+                                      (j##ty*)staging.ptr);             \
+            return JNI_TRUE;                                            \
+        } catch(af::exception& e) {                                     \
+            setError(e);                                                \
+            return JNI_FALSE;                                           \
+        } catch(std::exception& e) {                                    \
+            setError(e);                                                \
+            return JNI_FALSE;                                           \
+        }                                                               \
+    }                                                                   \
 
-JNIEXPORT jobjectArray JNICALL Java_com_arrayfire_Array_getFloatComplexFromArray(JNIEnv *env, jclass clazz, jlong ref)
-{
-    jobjectArray result;
-    try {
-        af::array *A = (af::array *)(ref);
-        int size = (*A).elements();
-
-        jclass cls = env->FindClass("com/arrayfire/FloatComplex");
-        jmethodID id = env->GetMethodID(cls, "<init>", "(FF)V");
-        if (id == NULL) return NULL;
-
-        result = env->NewObjectArray(size, cls, NULL);
-
-        cfloat *tmp = (*A).host<cfloat>();
-
-        for (int i = 0; i < size; i++) {
-#ifdef AFCL
-            float re = tmp[i].s[0];
-            float im = tmp[i].s[1];
-#else
-            float re = tmp[i].x;
-            float im = tmp[i].y;
-#endif
-            jobject obj = env->NewObject(cls, id, re, im);
-
-            env->SetObjectArrayElement(result, i, obj);
-        }
-
-        af::array::free(tmp);
+GET_T_RANGE_FROM_ARRAY(Float, float);
+GET_T_RANGE_FROM_ARRAY(Double, double);
+GET_T_RANGE_FROM_ARRAY(Int, int);
+GET_T_RANGE_FROM_ARRAY(Boolean, boolean);
+GET_T_RANGE_FROM_ARRAY(Byte, byte);
+GET_T_RANGE_FROM_ARRAY(Short, short);
+GET_T_RANGE_FROM_ARRAY(Long, long);
+
+#define GET_COMPLEX_FROM_ARRAY(Ty, ty)                                  \
+    JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_getInterleaved##Ty##FromArray \
+    (JNIEnv *env, jclass clazz, jlong ref, j##ty##Array reIm)           \
+    {                                                                   \
+        try {                                                           \
+            beginCall();                                               \
+            af::array *A = toArray(ref);                                \
+            jsize n = 2 * (jsize)(*A).elements();                       \
+            if (n == 0) return JNI_TRUE;                                \
+            PinnedBuffer staging(n * sizeof(j##ty));                    \
+            (*A).host(staging.ptr);                                     \
+            env->Set##Ty##ArrayRegion(reIm, 0, n, (j##ty*)staging.ptr); \
+            return JNI_TRUE;                                            \
+        } catch(af::exception& e) {                                     \
+            setError(e);                                                \
+            return JNI_FALSE;                                           \
+        } catch(std::exception& e) {                                    \
+            setError(e);                                                \
+            return JNI_FALSE;                                           \
+        }                                                               \
+    }                                                                   \
+                                                                        \
+    JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_getSplit##Ty##FromArray \
+    (JNIEnv *env, jclass clazz, jlong ref, j##ty##Array re, j##ty##Array im) \
+    {                                                                   \
+        try {                                                           \
+            beginCall();                                               \
+            af::array *A = toArray(ref);                                \
+            jsize n = (jsize)(*A).elements();                           \
+            if (n == 0) return JNI_TRUE;                                \
+            PinnedBuffer staging(n * sizeof(j##ty));                    \
+            af::real(*A).host(staging.ptr);                             \
+            env->Set##Ty##ArrayRegion(re, 0, n, (j##ty*)staging.ptr);   \
+            af::imag(*A).host(staging.ptr);                             \
+            env->Set##Ty##ArrayRegion(im, 0, n, (j##ty*)staging.ptr);   \
+            return JNI_TRUE;                                            \
+        } catch(af::exception& e) {                                     \
+            setError(e);                                                \
+            return JNI_FALSE;                                           \
+        } catch(std::exception& e) {                                    \
+            setError(e);                                                \
+            return JNI_FALSE;                                           \
+        }                                                               \
+    }                                                                   \
 
-    } catch (af::exception& e) {
-        result = NULL;
-    } catch (std::exception& e) {
-        result = NULL;
-    }
-    return result;
-}
+GET_COMPLEX_FROM_ARRAY(Float, float);
+GET_COMPLEX_FROM_ARRAY(Double, double);
 
-JNIEXPORT jobjectArray JNICALL Java_com_arrayfire_Array_getDoubleComplexFromArray(JNIEnv *env, jclass clazz, jlong ref)
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_getInfo(JNIEnv *env, jclass clazz, jlong ref, jintArray info)
 {
-    jobjectArray result;
     try {
-        af::array *A = (af::array *)(ref);
-        int size = (*A).elements();
-
-        jclass cls = env->FindClass("com/arrayfire/DoubleComplex");
-        jmethodID id = env->GetMethodID(cls, "<init>", "(FF)V");
-        if (id == NULL) return NULL;
-
-        result = env->NewObjectArray(size, cls, NULL);
-
-        cdouble *tmp = (*A).host<cdouble>();
-
-        for (int i = 0; i < size; i++) {
-#ifdef AFCL
-            double re = tmp[i].s[0];
-            double im = tmp[i].s[1];
-#else
-            double re = tmp[i].x;
-            double im = tmp[i].y;
-#endif
-            jobject obj = env->NewObject(cls, id, re, im);
-
-            env->SetObjectArrayElement(result, i, obj);
-        }
-
-        af::array::free(tmp);
-
-    } catch (af::exception& e) {
-        result = NULL;
-    } catch (std::exception& e) {
-        result = NULL;
+        beginCall();
+        af::array *A = toArray(ref);
+        af::dim4 mydims = (*A).dims();
+        jint values[MaxDimSupported + 1];
+        for (int k = 0; k < MaxDimSupported; ++k) values[k] = mydims[k];
+        values[MaxDimSupported] = (jint)((*A).type());
+        env->SetIntArrayRegion(info, 0, MaxDimSupported + 1, values);
+        return JNI_TRUE;
+    } catch(af::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    } catch(std::exception& e) {
+        setError(e);
+        return JNI_FALSE;
     }
-    return result;
-}
-
-JNIEXPORT jintArray JNICALL Java_com_arrayfire_Array_getDims(JNIEnv *env, jclass clazz, jlong ref)
-{
-  jintArray result;
-  try {
-      af::array *A = (af::array*)(ref);
-      af::dim4 mydims = (*A).dims();
-      result = env->NewIntArray(MaxDimSupported);
-      if (result == NULL) {
-          return NULL;
-      }
-      jint* dimsf  = env->GetIntArrayElements(result, 0);
-      for(int k=0; k<MaxDimSupported; ++k)
-          dimsf[k] = mydims[k];
-      env->ReleaseIntArrayElements(result, dimsf, 0);
-  } catch(af::exception& e) {
-      result = NULL;
-  } catch(std::exception& e) {
-      result = NULL;
-  }
-  return result;
-}
-
-JNIEXPORT jint JNICALL Java_com_arrayfire_Array_getType(JNIEnv *env, jclass clazz, jlong ref)
-{
-    af::array *A = (af::array *)(ref);
-    jint ty = (jint)((*A).type());
-    return ty;
 }
 
 #define BINARY_OP_DEF(func, operation) \
@@ -381,14 +861,17 @@ JNIEXPORT jint JNICALL Java_com_arrayfire_Array_getType(JNIEnv *env, jclass claz
     {                                           \
         jlong ret;                              \
         try {                                   \
-            af::array *A = (af::array*)(a);     \
-            af::array *B = (af::array*)(b);     \
+            beginCall();                       \
+            af::array *A = toArray(a);          \
+            af::array *B = toArray(b);          \
             af::array *res = new af::array();   \
             (*res) = (*A) operation (*B);       \
             ret = (jlong)(res);                 \
         } catch(af::exception& e) {             \
+            setError(e);                        \
             ret = 0;                            \
         } catch(std::exception& e) {            \
+            setError(e);                        \
             ret = 0;                            \
         }                                       \
         return ret;                             \
@@ -410,13 +893,16 @@ BINARY_OP_DEF(ne,!=)
     {                                           \
         jlong ret;                              \
         try {                                   \
-            af::array *A = (af::array*)(a);     \
+            beginCall();                       \
+            af::array *A = toArray(a);          \
             af::array *res = new af::array();   \
             (*res) = af::func( (*A) );          \
             ret = (jlong)(res);                 \
         } catch(af::exception& e) {             \
+            setError(e);                        \
             ret = 0;                            \
         } catch(std::exception& e) {            \
+            setError(e);                        \
             ret = 0;                            \
         }                                       \
         return ret;                             \
@@ -439,45 +925,22 @@ UNARY_OP_DEF(log)
 UNARY_OP_DEF(abs)
 UNARY_OP_DEF(sqrt)
 
-#define SCALAR_RET_OP_DEF(func)                                     \
-    JNIEXPORT jdouble JNICALL Java_com_arrayfire_Array_##func##All  \
-    (JNIEnv *env, jclass clazz, jlong a)                            \
-    {                                                               \
-        try {                                                       \
-            af::array *A = (af::array*)(a);                         \
-            if (A->type() == af::f32)                               \
-                return af::func<float>( (*A) );                     \
-            if (A->type() == af::s32)                               \
-                return af::func<int>( (*A) );                       \
-            if (A->type() == af::f64)                               \
-                return af::func<double>( (*A) );                    \
-            if (A->type() == af::b8)                                \
-                return af::func<float>( (*A) );                     \
-            return af::NaN;                                         \
-        } catch(af::exception& e) {                                 \
-            return af::NaN;                                         \
-        } catch(std::exception& e) {                                \
-            return af::NaN;                                         \
-        }                                                           \
-    }
-
-SCALAR_RET_OP_DEF(sum)
-SCALAR_RET_OP_DEF(max)
-SCALAR_RET_OP_DEF(min)
-
 #define ARRAY_RET_OP_DEF(func)                              \
     JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_##func \
     (JNIEnv *env, jclass clazz, jlong a, jint dim)          \
     {                                                       \
         jlong ret = 0;                                      \
         try {                                               \
-            af::array *A = (af::array*)(a);                 \
+            beginCall();                                   \
+            af::array *A = toArray(a);                      \
             af::array *res = new af::array();               \
             *res = af::func((*A), dim);                     \
             ret = (jlong)res;                               \
         } catch(af::exception& e) {                         \
+            setError(e);                                    \
             return 0;                                       \
         } catch(std::exception& e) {                        \
+            setError(e);                                    \
             return 0;                                       \
         }                                                   \
         return ret;                                         \
@@ -494,13 +957,16 @@ ARRAY_RET_OP_DEF(min)
     {                                                       \
         jlong ret = 0;                                      \
         try {                                               \
-            af::array *A = (af::array*)(a);                 \
+            beginCall();                                   \
+            af::array *A = toArray(a);                      \
             af::array *res = new af::array();               \
             *res = af::func((*A));                          \
             ret = (jlong)res;                               \
         } catch(af::exception& e) {                         \
+            setError(e);                                    \
             return 0;                                       \
         } catch(std::exception& e) {                        \
+            setError(e);                                    \
             return 0;                                       \
         }                                                   \
         return ret;                                         \
@@ -513,19 +979,895 @@ FFT_DEF(ifft)
 FFT_DEF(ifft2)
 FFT_DEF(ifft3)
 
+// Throws the error of a failed C API call the way the C++ API does, for
+// the few calls that only exist in the C API
+static void check(af_err err)
+{
+    if (err == AF_SUCCESS) return;
+    char *msg = NULL;
+    dim_t len = 0;
+    af_get_last_error(&msg, &len);
+    std::string text = msg != NULL && len > 0 ? msg : "ArrayFire call failed";
+    if (msg != NULL) af_free_host(msg);
+    throw af::exception(text.c_str(), __FILE__, __LINE__, err);
+}
+
+static void checkRank(jint rank)
+{
+    if (rank < 1 || rank > 3) throw std::invalid_argument("Transform rank must be 1, 2 or 3");
+}
+
+// Complex transforms over the first rank dimensions, batched over the
+// rest. norm scales the result as is, and odims holds one output size
+// per transformed dimension, 0 keeping the input size.
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_fftNorm(JNIEnv *env, jclass clazz, jlong a, jint rank, jboolean inverse, jdouble norm, jintArray odims)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        checkRank(rank);
+        jint od[3] = { 0, 0, 0 };
+        env->GetIntArrayRegion(odims, 0, rank, od);
+        bool inv = inverse == JNI_TRUE;
+        af::array res;
+        switch (rank) {
+        case 1:
+            res = inv ? af::ifftNorm(*A, norm, od[0]) : af::fftNorm(*A, norm, od[0]);
+            break;
+        case 2:
+            res = inv ? af::ifft2Norm(*A, norm, od[0], od[1]) : af::fft2Norm(*A, norm, od[0], od[1]);
+            break;
+        default:
+            res = inv ? af::ifft3Norm(*A, norm, od[0], od[1], od[2])
+                      : af::fft3Norm(*A, norm, od[0], od[1], od[2]);
+            break;
+        }
+        return (jlong)new af::array(res);
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+// Real to complex transform keeping the dims(0) / 2 + 1 non redundant
+// outputs of the first dimension. The input is padded or truncated to
+// odims first, where nonzero.
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_fftR2C(JNIEnv *env, jclass clazz, jlong a, jint rank, jdouble norm, jintArray odims)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        checkRank(rank);
+        jint od[3] = { 0, 0, 0 };
+        env->GetIntArrayRegion(odims, 0, rank, od);
+        af::dim4 pad = A->dims();
+        for (int i = 0; i < rank; i++) {
+            if (od[i] > 0) pad[i] = od[i];
+        }
+        af::array res;
+        switch (rank) {
+        case 1: res = af::fftR2C<1>(*A, pad, norm); break;
+        case 2: res = af::fftR2C<2>(*A, pad, norm); break;
+        default: res = af::fftR2C<3>(*A, pad, norm); break;
+        }
+        return (jlong)new af::array(res);
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+// Complex to real inverse of fftR2C. isOdd picks the real length of the
+// first dimension, 2 * (dims(0) - 1) + isOdd, and norm 0 scales by 1/N.
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_fftC2R(JNIEnv *env, jclass clazz, jlong a, jint rank, jboolean isOdd, jdouble norm)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        checkRank(rank);
+        bool odd = isOdd == JNI_TRUE;
+        af::array res;
+        switch (rank) {
+        case 1: res = af::fftC2R<1>(*A, odd, norm); break;
+        case 2: res = af::fftC2R<2>(*A, odd, norm); break;
+        default: res = af::fftC2R<3>(*A, odd, norm); break;
+        }
+        return (jlong)new af::array(res);
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+// Complex transform writing over the input. Goes through the C API,
+// whose inverse forms take norm as is where the C++ ones fold in 1/N.
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_fftInPlace(JNIEnv *env, jclass clazz, jlong a, jint rank, jboolean inverse, jdouble norm)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        checkRank(rank);
+        af_array h = A->get();
+        bool inv = inverse == JNI_TRUE;
+        switch (rank) {
+        case 1: check(inv ? af_ifft_inplace(h, norm) : af_fft_inplace(h, norm)); break;
+        case 2: check(inv ? af_ifft2_inplace(h, norm) : af_fft2_inplace(h, norm)); break;
+        default: check(inv ? af_ifft3_inplace(h, norm) : af_fft3_inplace(h, norm)); break;
+        }
+        return JNI_TRUE;
+    } catch(af::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    } catch(std::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    }
+}
+
+// Number of FFT plans ArrayFire keeps per device, see FftPlanCache
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_setFftPlanCacheSize(JNIEnv *env, jclass clazz, jint size)
+{
+    try {
+        beginCall();
+        check(af_set_fft_plan_cache_size((size_t)size));
+        return JNI_TRUE;
+    } catch(af::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    } catch(std::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    }
+}
+
+// Moves several results to the heap and returns their handles,
+// or NULL with nothing allocated if the Java array cannot be created
+static jlongArray toHandles(JNIEnv *env, const af::array *arrs, int n)
+{
+    jlongArray result = env->NewLongArray(n);
+    if (result == NULL) return NULL;
+
+    std::vector<jlong> handles(n);
+    for (int i = 0; i < n; i++) {
+        handles[i] = (jlong)(new af::array(arrs[i]));
+    }
+    env->SetLongArrayRegion(result, 0, n, &handles[0]);
+    return result;
+}
+
+// Indexing
+//
+// A subscript is given per dimension, either as an index array handle
+// in arrays or, where that is 0, as a begin, end, step triple in seqs.
+// A step of 0 selects the whole dimension. A single subscript indexes
+// the array as if it were flat.
+
+static std::vector<af::index> toIndices(JNIEnv *env, jintArray seqs, jlongArray arrays)
+{
+    jint n = env->GetArrayLength(arrays);
+    if (n < 1 || n > 4) throw std::invalid_argument("Expected one to four subscripts");
+
+    std::vector<jint> s(3 * n);
+    std::vector<jlong> a(n);
+    env->GetIntArrayRegion(seqs, 0, 3 * n, &s[0]);
+    env->GetLongArrayRegion(arrays, 0, n, &a[0]);
+
+    std::vector<af::index> idx;
+    for (int i = 0; i < n; i++) {
+        if (a[i] != 0) {
+            idx.push_back(af::index(*(af::array*)(a[i])));
+        } else if (s[3 * i + 2] == 0) {
+            idx.push_back(af::index(af::span));
+        } else {
+            idx.push_back(af::index(af::seq(s[3 * i], s[3 * i + 1], s[3 * i + 2])));
+        }
+    }
+    return idx;
+}
+
+static af::array indexed(const af::array &A, const std::vector<af::index> &idx)
+{
+    switch (idx.size()) {
+    case 1: return A(idx[0]);
+    case 2: return A(idx[0], idx[1]);
+    case 3: return A(idx[0], idx[1], idx[2]);
+    default: return A(idx[0], idx[1], idx[2], idx[3]);
+    }
+}
+
+template<typename T>
+static void assignIndexed(af::array &A, const std::vector<af::index> &idx, const T &val)
+{
+    switch (idx.size()) {
+    case 1: A(idx[0]) = val; break;
+    case 2: A(idx[0], idx[1]) = val; break;
+    case 3: A(idx[0], idx[1], idx[2]) = val; break;
+    default: A(idx[0], idx[1], idx[2], idx[3]) = val; break;
+    }
+}
+
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_index(JNIEnv *env, jclass clazz, jlong a, jintArray seqs, jlongArray arrays)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        std::vector<af::index> idx = toIndices(env, seqs, arrays);
+        af::array *res = new af::array();
+        (*res) = indexed((*A), idx);
+        return (jlong)(res);
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_assignArray(JNIEnv *env, jclass clazz, jlong dst, jintArray seqs, jlongArray arrays, jlong src)
+{
+    try {
+        beginCall();
+        af::array *D = toArray(dst);
+        af::array *S = toArray(src);
+        assignIndexed((*D), toIndices(env, seqs, arrays), (*S));
+        return JNI_TRUE;
+    } catch(af::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    } catch(std::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    }
+}
+
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_assignScalar(JNIEnv *env, jclass clazz, jlong dst, jintArray seqs, jlongArray arrays, jdouble val)
+{
+    try {
+        beginCall();
+        af::array *D = toArray(dst);
+        assignIndexed((*D), toIndices(env, seqs, arrays), (double)val);
+        return JNI_TRUE;
+    } catch(af::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    } catch(std::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    }
+}
+
+// Random engines
+//
+// An engine handle is a heap allocated af::randomEngine owned by a Java
+// RandomEngine. ArrayFire engines are not thread safe, the Java side
+// serializes calls on each engine.
+
+JNIEXPORT jlong JNICALL Java_com_arrayfire_RandomEngine_create(JNIEnv *env, jclass clazz, jint type, jlong seed)
+{
+    try {
+        beginCall();
+        af::randomEngine *E = new af::randomEngine((af::randomEngineType)type, (unsigned long long)seed);
+        return (jlong)(E);
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+// Leaves the error state alone, like destroyArray
+JNIEXPORT void JNICALL Java_com_arrayfire_RandomEngine_destroy(JNIEnv *env, jclass clazz, jlong eng)
+{
+    try {
+        delete (af::randomEngine*)(eng);
+    } catch(std::exception& e) {
+    }
+}
+
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_RandomEngine_setSeed(JNIEnv *env, jclass clazz, jlong eng, jlong seed)
+{
+    try {
+        beginCall();
+        af::randomEngine *E = (af::randomEngine*)(eng);
+        E->setSeed((unsigned long long)seed);
+        return JNI_TRUE;
+    } catch(af::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    } catch(std::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    }
+}
+
+// lo + (hi - lo) * u, u uniform in [0, 1)
+JNIEXPORT jlong JNICALL Java_com_arrayfire_RandomEngine_uniform(JNIEnv *env, jclass clazz, jlong eng, jintArray dims, jint type, jdouble lo, jdouble hi)
+{
+    try {
+        beginCall();
+        af::randomEngine *E = (af::randomEngine*)(eng);
+        af::array *res = new af::array();
+        (*res) = af::randu(toDim4(env, dims), (af::dtype)type, (*E));
+        if (lo != 0 || hi != 1) {
+            (*res) *= (hi - lo);
+            (*res) += lo;
+        }
+        return (jlong)(res);
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+// mean + stdev * n, n standard normal
+JNIEXPORT jlong JNICALL Java_com_arrayfire_RandomEngine_normal(JNIEnv *env, jclass clazz, jlong eng, jintArray dims, jint type, jdouble mean, jdouble stdev)
+{
+    try {
+        beginCall();
+        af::randomEngine *E = (af::randomEngine*)(eng);
+        af::array *res = new af::array();
+        (*res) = af::randn(toDim4(env, dims), (af::dtype)type, (*E));
+        if (mean != 0 || stdev != 1) {
+            (*res) *= stdev;
+            (*res) += mean;
+        }
+        return (jlong)(res);
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+// Integers in [lo, hi). Single precision represents every integer up
+// to 2^24 exactly, wider ranges are drawn in double precision.
+JNIEXPORT jlong JNICALL Java_com_arrayfire_RandomEngine_uniformInt(JNIEnv *env, jclass clazz, jlong eng, jintArray dims, jint lo, jint hi)
+{
+    try {
+        beginCall();
+        af::randomEngine *E = (af::randomEngine*)(eng);
+        af::dim4 d = toDim4(env, dims);
+        double range = (double)hi - (double)lo;
+        af::dtype ty = range <= (1 << 24) ? af::f32 : af::f64;
+        // lo is added in integer arithmetic, adding it in floating point
+        // rounds results with a large offset out of [lo, hi)
+        af::dtype ity = range <= 0x7FFFFFFF ? af::s32 : af::s64;
+        af::array off = af::floor(af::randu(d, ty, (*E)) * range).as(ity);
+        af::array r = off + af::constant((long long)lo, d, ity);
+        return (jlong)new af::array(r.as(af::s32));
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+// Statistics
+//
+// Whole array statistics are reduced in the element type of the input
+// and come back as doubles, and complex inputs fail rather than being
+// reduced to their real part. Statistic codes must match the Stat
+// constants in Array.java.
+
+enum {
+    STAT_SUM, STAT_MAX, STAT_MIN, STAT_MEAN, STAT_VAR, STAT_STDEV,
+    STAT_MEDIAN, STAT_COUNT, STAT_ANY_TRUE, STAT_ALL_TRUE
+};
+
+static void checkReal(const af::array &A)
+{
+    if (A.iscomplex()) throw std::invalid_argument("Complex input is not supported");
+}
+
+// Statistic of the flattened input x as a one element device array of
+// type ty. mean and the sum of squared deviations sqDev are shared by
+// the statistics derived from them, var being the population variance
+// like af::var.
+static af::array statArray(const af::array &x, int stat, const af::array &mean,
+                           const af::array &sqDev, double n, af::dtype ty)
+{
+    switch (stat) {
+    case STAT_SUM:      return af::sum(x).as(ty);
+    case STAT_MAX:      return af::max(x).as(ty);
+    case STAT_MIN:      return af::min(x).as(ty);
+    case STAT_MEAN:     return mean.as(ty);
+    case STAT_VAR:      return (sqDev / n).as(ty);
+    case STAT_STDEV:    return af::sqrt(sqDev / n).as(ty);
+    case STAT_MEDIAN:   return af::median(x).as(ty);
+    case STAT_COUNT:    return af::count(x).as(ty);
+    case STAT_ANY_TRUE: return af::anyTrue(x).as(ty);
+    case STAT_ALL_TRUE: return af::allTrue(x).as(ty);
+    }
+    throw std::invalid_argument("Unknown statistic");
+}
+
+// The requested statistics are reduced on the device and joined, so
+// they come back to the host in a single copy. The joined results are
+// f64 where the device supports it and f32 otherwise.
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_statsAll(JNIEnv *env, jclass clazz, jlong a, jintArray stats, jdoubleArray out)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        checkReal(*A);
+
+        jsize n = env->GetArrayLength(stats);
+        if (n == 0) return JNI_TRUE;
+        std::vector<jint> s(n);
+        std::vector<jdouble> r(n);
+        env->GetIntArrayRegion(stats, 0, n, &s[0]);
+
+        bool needMean = false, needSqDev = false;
+        for (jsize i = 0; i < n; i++) {
+            if (s[i] < STAT_SUM || s[i] > STAT_ALL_TRUE) throw std::invalid_argument("Unknown statistic");
+            if (s[i] == STAT_MEAN) needMean = true;
+            if (s[i] == STAT_VAR || s[i] == STAT_STDEV) needMean = needSqDev = true;
+        }
+
+        af::array x = af::flat(*A);
+        af::array mean, sqDev;
+        if (needMean) mean = af::mean(x);
+        if (needSqDev) {
+            af::array dev = x - af::tile(mean, (unsigned)x.elements());
+            sqDev = af::sum(dev * dev);
+        }
+
+        bool dbl = af::isDoubleAvailable(af::getDevice());
+        af::dtype ty = dbl ? af::f64 : af::f32;
+        double count = (double)A->elements();
+        af::array all = statArray(x, s[0], mean, sqDev, count, ty);
+        for (jsize i = 1; i < n; i++) {
+            all = af::join(0, all, statArray(x, s[i], mean, sqDev, count, ty));
+        }
+        if (dbl) {
+            all.host(&r[0]);
+        } else {
+            std::vector<float> f(n);
+            all.host(&f[0]);
+            for (jsize i = 0; i < n; i++) r[i] = f[i];
+        }
+        env->SetDoubleArrayRegion(out, 0, n, &r[0]);
+        return JNI_TRUE;
+    } catch(af::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    } catch(std::exception& e) {
+        setError(e);
+        return JNI_FALSE;
+    }
+}
+
+#define STAT_DIM_DEF(func)                                  \
+    JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_##func \
+    (JNIEnv *env, jclass clazz, jlong a, jint dim)          \
+    {                                                       \
+        try {                                               \
+            beginCall();                                   \
+            af::array *A = toArray(a);                      \
+            af::array *res = new af::array();               \
+            (*res) = af::func((*A), dim);                   \
+            return (jlong)(res);                            \
+        } catch(af::exception& e) {                         \
+            setError(e);                                    \
+            return 0;                                       \
+        } catch(std::exception& e) {                        \
+            setError(e);                                    \
+            return 0;                                       \
+        }                                                   \
+    }
+
+STAT_DIM_DEF(mean)
+STAT_DIM_DEF(stdev)
+STAT_DIM_DEF(median)
+STAT_DIM_DEF(count)
+STAT_DIM_DEF(anyTrue)
+STAT_DIM_DEF(allTrue)
+
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_var(JNIEnv *env, jclass clazz, jlong a, jint dim, jboolean biased)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        af::array *res = new af::array();
+        (*res) = af::var((*A), biased == JNI_TRUE, dim);
+        return (jlong)(res);
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+// Extremum and its position, { values, indices } along dim
+#define INDEXED_DIM_DEF(func, op)                                   \
+    JNIEXPORT jlongArray JNICALL Java_com_arrayfire_Array_##func    \
+    (JNIEnv *env, jclass clazz, jlong a, jint dim)                  \
+    {                                                               \
+        try {                                                       \
+            beginCall();                                           \
+            af::array *A = toArray(a);                              \
+            af::array res[2];                                       \
+            af::op(res[0], res[1], (*A), dim);                      \
+            return toHandles(env, res, 2);                          \
+        } catch(af::exception& e) {                                 \
+            setError(e);                                            \
+            return NULL;                                            \
+        } catch(std::exception& e) {                                \
+            setError(e);                                            \
+            return NULL;                                            \
+        }                                                           \
+    }
+
+// Extremum of the whole array and its linear index, { value, index }
+#define INDEXED_ALL_DEF(func, op)                                   \
+    JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_##func##All \
+    (JNIEnv *env, jclass clazz, jlong a, jdoubleArray out)          \
+    {                                                               \
+        try {                                                       \
+            beginCall();                                           \
+            af::array *A = toArray(a);                              \
+            checkReal(*A);                                          \
+            double val = 0;                                         \
+            unsigned idx = 0;                                       \
+            af::op<double>(&val, &idx, (*A));                       \
+            jdouble r[2] = { val, (jdouble)idx };                   \
+            env->SetDoubleArrayRegion(out, 0, 2, r);                \
+            return JNI_TRUE;                                        \
+        } catch(af::exception& e) {                                 \
+            setError(e);                                            \
+            return JNI_FALSE;                                       \
+        } catch(std::exception& e) {                                \
+            setError(e);                                            \
+            return JNI_FALSE;                                       \
+        }                                                           \
+    }
+
+INDEXED_DIM_DEF(imax, max)
+INDEXED_DIM_DEF(imin, min)
+INDEXED_ALL_DEF(imax, max)
+INDEXED_ALL_DEF(imin, min)
+
+// Scans, sorting and sets
+
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_accum(JNIEnv *env, jclass clazz, jlong a, jint dim)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        af::array *res = new af::array();
+        (*res) = af::accum((*A), dim);
+        return (jlong)(res);
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_scan(JNIEnv *env, jclass clazz, jlong a, jint dim, jint op, jboolean inclusive)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        af::array *res = new af::array();
+        (*res) = af::scan((*A), dim, (af::binaryOp)op, inclusive == JNI_TRUE);
+        return (jlong)(res);
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_sort(JNIEnv *env, jclass clazz, jlong a, jint dim, jboolean ascending)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        af::array *res = new af::array();
+        (*res) = af::sort((*A), dim, ascending == JNI_TRUE);
+        return (jlong)(res);
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+JNIEXPORT jlongArray JNICALL Java_com_arrayfire_Array_sortIndex(JNIEnv *env, jclass clazz, jlong a, jint dim, jboolean ascending)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        af::array res[2];
+        af::sort(res[0], res[1], (*A), dim, ascending == JNI_TRUE);
+        return toHandles(env, res, 2);
+    } catch(af::exception& e) {
+        setError(e);
+        return NULL;
+    } catch(std::exception& e) {
+        setError(e);
+        return NULL;
+    }
+}
+
+JNIEXPORT jlongArray JNICALL Java_com_arrayfire_Array_topk(JNIEnv *env, jclass clazz, jlong a, jint k, jint dim, jint order)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        af::array res[2];
+        af::topk(res[0], res[1], (*A), k, dim, (af::topkFunction)order);
+        return toHandles(env, res, 2);
+    } catch(af::exception& e) {
+        setError(e);
+        return NULL;
+    } catch(std::exception& e) {
+        setError(e);
+        return NULL;
+    }
+}
+
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_where(JNIEnv *env, jclass clazz, jlong a)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        af::array *res = new af::array();
+        (*res) = af::where((*A));
+        return (jlong)(res);
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_setUnique(JNIEnv *env, jclass clazz, jlong a, jboolean isSorted)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        af::array *res = new af::array();
+        (*res) = af::setUnique((*A), isSorted == JNI_TRUE);
+        return (jlong)(res);
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+#define SET_OP_DEF(func)                                                \
+    JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_##func             \
+    (JNIEnv *env, jclass clazz, jlong a, jlong b, jboolean isUnique)    \
+    {                                                                   \
+        try {                                                           \
+            beginCall();                                               \
+            af::array *A = toArray(a);                                  \
+            af::array *B = toArray(b);                                  \
+            af::array *res = new af::array();                           \
+            (*res) = af::func((*A), (*B), isUnique == JNI_TRUE);        \
+            return (jlong)(res);                                        \
+        } catch(af::exception& e) {                                     \
+            setError(e);                                                \
+            return 0;                                                   \
+        } catch(std::exception& e) {                                    \
+            setError(e);                                                \
+            return 0;                                                   \
+        }                                                               \
+    }
+
+SET_OP_DEF(setUnion)
+SET_OP_DEF(setIntersect)
+
+// Linear algebra
+
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_matmul(JNIEnv *env, jclass clazz, jlong a, jlong b, jint optLhs, jint optRhs)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        af::array *B = toArray(b);
+        af::array *res = new af::array();
+        (*res) = af::matmul((*A), (*B), (af::matProp)optLhs, (af::matProp)optRhs);
+        return (jlong)(res);
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_dot(JNIEnv *env, jclass clazz, jlong a, jlong b)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        af::array *B = toArray(b);
+        af::array *res = new af::array();
+        (*res) = af::dot((*A), (*B));
+        return (jlong)(res);
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_transpose(JNIEnv *env, jclass clazz, jlong a, jboolean conjugate)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        af::array *res = new af::array();
+        (*res) = af::transpose((*A), conjugate == JNI_TRUE);
+        return (jlong)(res);
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_solve(JNIEnv *env, jclass clazz, jlong a, jlong b)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        af::array *B = toArray(b);
+        af::array *res = new af::array();
+        (*res) = af::solve((*A), (*B));
+        return (jlong)(res);
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_inverse(JNIEnv *env, jclass clazz, jlong a)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        af::array *res = new af::array();
+        (*res) = af::inverse((*A));
+        return (jlong)(res);
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+// Fails as well when the matrix is not positive definite
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_cholesky(JNIEnv *env, jclass clazz, jlong a, jboolean upper)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        af::array out;
+        int info = af::cholesky(out, (*A), upper == JNI_TRUE);
+        if (info != 0) throw std::invalid_argument("Matrix is not positive definite");
+        return (jlong)(new af::array(out));
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+JNIEXPORT jlongArray JNICALL Java_com_arrayfire_Array_lu(JNIEnv *env, jclass clazz, jlong a)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        af::array res[3];
+        af::lu(res[0], res[1], res[2], (*A));
+        return toHandles(env, res, 3);
+    } catch(af::exception& e) {
+        setError(e);
+        return NULL;
+    } catch(std::exception& e) {
+        setError(e);
+        return NULL;
+    }
+}
+
+JNIEXPORT jlongArray JNICALL Java_com_arrayfire_Array_qr(JNIEnv *env, jclass clazz, jlong a)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        af::array res[3];
+        af::qr(res[0], res[1], res[2], (*A));
+        return toHandles(env, res, 3);
+    } catch(af::exception& e) {
+        setError(e);
+        return NULL;
+    } catch(std::exception& e) {
+        setError(e);
+        return NULL;
+    }
+}
+
+JNIEXPORT jlongArray JNICALL Java_com_arrayfire_Array_svd(JNIEnv *env, jclass clazz, jlong a)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        af::array res[3];
+        af::svd(res[0], res[1], res[2], (*A));
+        return toHandles(env, res, 3);
+    } catch(af::exception& e) {
+        setError(e);
+        return NULL;
+    } catch(std::exception& e) {
+        setError(e);
+        return NULL;
+    }
+}
+
 #define SCALAR_OP1_DEF(func,operation)                          \
     JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_##func(    \
         JNIEnv *env, jclass clazz, jlong a, jfloat b)           \
     {                                                           \
         jlong ret;                                              \
         try {                                                   \
-            af::array *A = (af::array*)(a);                     \
+            beginCall();                                       \
+            af::array *A = toArray(a);                          \
             af::array *res = new af::array();                   \
             (*res) = (*A) operation (b);                        \
             ret = (jlong)(res);                                 \
         } catch(af::exception& e) {                             \
+            setError(e);                                        \
             ret = 0;                                            \
         } catch(std::exception& e) {                            \
+            setError(e);                                        \
             ret = 0;                                            \
         }                                                       \
         return ret;                                             \
@@ -546,13 +1888,16 @@ JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_pow(JNIEnv *env, jclass clazz,
 {
     jlong ret;
     try {
-        af::array *A = (af::array*)(a);
+        beginCall();
+        af::array *A = toArray(a);
         af::array *res = new af::array();
         (*res) = af::pow((*A),b);
         ret = (jlong)(res);
     } catch(af::exception& e) {
+        setError(e);
         ret = 0;
     } catch(std::exception& e) {
+        setError(e);
         ret = 0;
     }
     return ret;
@@ -563,13 +1908,16 @@ JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_pow(JNIEnv *env, jclass clazz,
     {                                           \
         jlong ret;                              \
         try {                                   \
-            af::array *B = (af::array*)(b);     \
+            beginCall();                       \
+            af::array *B = toArray(b);          \
             af::array *res = new af::array();   \
             (*res) = (a) operation (*B);        \
             ret = (jlong)(res);                 \
         } catch(af::exception& e) {             \
+            setError(e);                        \
             ret = 0;                            \
         } catch(std::exception& e) {            \
+            setError(e);                        \
             ret = 0;                            \
         }                                       \
         return ret;                             \
@@ -582,6 +1930,439 @@ SCALAR_OP2_DEF(flt,<)
 SCALAR_OP2_DEF(fge,>=)
 SCALAR_OP2_DEF(fgt,>)
 
+// Output parameter forms. The result is assigned to the array behind
+// dst, which keeps its handle, or to a new array if dst is 0.
+#define ASSIGN_OUT(dst, value)                                  \
+    if ((dst) == 0) return (jlong)(new af::array(value));       \
+    *(af::array*)(dst) = (value);                               \
+    return (dst);
+
+#define BINARY_OP_OUT_DEF(func, operation)                      \
+    JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_##func##Out( \
+        JNIEnv *env, jclass clazz, jlong dst, jlong a, jlong b) \
+    {                                                           \
+        try {                                                   \
+            beginCall();                                       \
+            af::array *A = toArray(a);                          \
+            af::array *B = toArray(b);                          \
+            ASSIGN_OUT(dst, (*A) operation (*B))                \
+        } catch(af::exception& e) {                             \
+            setError(e);                                        \
+            return 0;                                           \
+        } catch(std::exception& e) {                            \
+            setError(e);                                        \
+            return 0;                                           \
+        }                                                       \
+    }
+
+BINARY_OP_OUT_DEF(add,+)
+BINARY_OP_OUT_DEF(sub,-)
+BINARY_OP_OUT_DEF(mul,*)
+BINARY_OP_OUT_DEF(div,/)
+BINARY_OP_OUT_DEF(le,<=)
+BINARY_OP_OUT_DEF(lt,<)
+BINARY_OP_OUT_DEF(ge,>=)
+BINARY_OP_OUT_DEF(gt,>)
+BINARY_OP_OUT_DEF(eq,==)
+BINARY_OP_OUT_DEF(ne,!=)
+
+#define UNARY_OP_OUT_DEF(func)                                  \
+    JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_##func##Out( \
+        JNIEnv *env, jclass clazz, jlong dst, jlong a)          \
+    {                                                           \
+        try {                                                   \
+            beginCall();                                       \
+            af::array *A = toArray(a);                          \
+            ASSIGN_OUT(dst, af::func( (*A) ))                   \
+        } catch(af::exception& e) {                             \
+            setError(e);                                        \
+            return 0;                                           \
+        } catch(std::exception& e) {                            \
+            setError(e);                                        \
+            return 0;                                           \
+        }                                                       \
+    }
+
+UNARY_OP_OUT_DEF(sin)
+UNARY_OP_OUT_DEF(cos)
+UNARY_OP_OUT_DEF(tan)
+UNARY_OP_OUT_DEF(asin)
+UNARY_OP_OUT_DEF(acos)
+UNARY_OP_OUT_DEF(atan)
+UNARY_OP_OUT_DEF(sinh)
+UNARY_OP_OUT_DEF(cosh)
+UNARY_OP_OUT_DEF(tanh)
+UNARY_OP_OUT_DEF(asinh)
+UNARY_OP_OUT_DEF(acosh)
+UNARY_OP_OUT_DEF(atanh)
+UNARY_OP_OUT_DEF(exp)
+UNARY_OP_OUT_DEF(log)
+UNARY_OP_OUT_DEF(abs)
+UNARY_OP_OUT_DEF(sqrt)
+
+#define SCALAR_OP1_OUT_DEF(func,operation)                      \
+    JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_##func##Out( \
+        JNIEnv *env, jclass clazz, jlong dst, jlong a, jfloat b) \
+    {                                                           \
+        try {                                                   \
+            beginCall();                                       \
+            af::array *A = toArray(a);                          \
+            ASSIGN_OUT(dst, (*A) operation (b))                 \
+        } catch(af::exception& e) {                             \
+            setError(e);                                        \
+            return 0;                                           \
+        } catch(std::exception& e) {                            \
+            setError(e);                                        \
+            return 0;                                           \
+        }                                                       \
+    }
+
+SCALAR_OP1_OUT_DEF(addf,+)
+SCALAR_OP1_OUT_DEF(subf,-)
+SCALAR_OP1_OUT_DEF(mulf,*)
+SCALAR_OP1_OUT_DEF(divf,/)
+SCALAR_OP1_OUT_DEF(lef,<=)
+SCALAR_OP1_OUT_DEF(ltf,<)
+SCALAR_OP1_OUT_DEF(gef,>=)
+SCALAR_OP1_OUT_DEF(gtf,>)
+SCALAR_OP1_OUT_DEF(eqf,==)
+SCALAR_OP1_OUT_DEF(nef,!=)
+
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_powOut(JNIEnv *env, jclass clazz, jlong dst, jlong a, jfloat b)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        ASSIGN_OUT(dst, af::pow((*A),b))
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+// Opcodes of recorded programs, must match Expr.java
+enum Opcode {
+    OP_ADD = 0, OP_SUB, OP_MUL, OP_DIV,
+    OP_LE, OP_LT, OP_GE, OP_GT, OP_EQ, OP_NE,
+
+    OP_SIN = 10, OP_COS, OP_TAN, OP_ASIN, OP_ACOS, OP_ATAN,
+    OP_SINH, OP_COSH, OP_TANH, OP_ASINH, OP_ACOSH, OP_ATANH,
+    OP_EXP, OP_LOG, OP_ABS, OP_SQRT,
+
+    OP_ADDF = 26, OP_SUBF, OP_MULF, OP_DIVF,
+    OP_LEF, OP_LTF, OP_GEF, OP_GTF, OP_EQF, OP_NEF, OP_POW,
+
+    OP_FSUB = 37, OP_FDIV, OP_FLE, OP_FLT, OP_FGE, OP_FGT,
+
+    OP_SUM = 43, OP_MAX, OP_MIN, OP_SUM_ALL, OP_MAX_ALL, OP_MIN_ALL,
+
+    OP_FFT = 49, OP_FFT2, OP_FFT3, OP_IFFT, OP_IFFT2, OP_IFFT3,
+
+    // Typed scalar operations, OP_TYPED + 4 * operator + kind + side with
+    // operator OP_ADD to OP_NE or TYPED_POW, see typedScalarOp
+    OP_TYPED = 55, OP_TYPED_END = OP_TYPED + 44
+};
+
+const int TYPED_POW     = 10;
+const int TYPED_INT     = 2;
+const int TYPED_REVERSE = 1;
+
+static bool isFloating(af::dtype ty)
+{
+    return ty == af::f32 || ty == af::f64 || ty == af::c32 ||
+           ty == af::c64 || ty == af::f16;
+}
+
+// Whether integer l is exactly representable in integer type ty
+static bool fitsType(long long l, af::dtype ty)
+{
+    switch (ty) {
+    case af::b8:  return false;
+    case af::u8:  return l >= 0 && l <= 0xFF;
+    case af::s16: return l >= -0x8000 && l <= 0x7FFF;
+    case af::u16: return l >= 0 && l <= 0xFFFF;
+    case af::s32: return l == (int)l;
+    case af::u32: return l >= 0 && l <= 0xFFFFFFFFLL;
+    case af::u64: return l >= 0;
+    default:      return true;
+    }
+}
+
+// Smallest type holding both every value of integer type ty and l.
+// ArrayFire promotes mixed integer operands to the first of s64, u64,
+// s32, u32 present, so u32 arrays need s64 rather than s32. No integer
+// type holds u64 and a negative value, f64 at least keeps the order.
+static af::dtype widenedType(af::dtype ty, long long l)
+{
+    if (ty == af::u64) return af::f64;
+    if (ty == af::u32 || ty == af::s32) return af::s64;
+    return l == (int)l ? af::s32 : af::s64;
+}
+
+// Scalar operand of a typed scalar operation: a constant of the array's
+// own type, so the result keeps that type and a double scalar keeps its
+// precision on f64 arrays. Double scalars on integer arrays become f64
+// rather than being truncated. Integers the array's type cannot hold,
+// such as -1 on u32 or 300 on u8, widen the operation instead of
+// wrapping around, so comparisons against them stay correct. Booleans
+// always widen. The constant is a JIT node that fuses with the
+// operation, so no cast kernel runs.
+static af::array scalarOperand(const af::array &A, bool integer, double d, long long l)
+{
+    af::dtype ty = A.type();
+    if (!integer) {
+        if (!isFloating(ty)) ty = af::f64;
+        return af::constant(d, A.dims(), ty);
+    }
+    if (!isFloating(ty) && !fitsType(l, ty)) ty = widenedType(ty, l);
+    if (ty == af::f64) return af::constant((double)l, A.dims(), ty);
+    return af::constant(l, A.dims(), ty);
+}
+
+// Integer scalar recorded as a double, which holds int scalars exactly.
+// Converting NaN, infinities or values outside the long long range to
+// an integer is undefined, so those and fractions are rejected.
+static long long integerScalar(double d)
+{
+    if (!(d >= -9223372036854775808.0 && d < 9223372036854775808.0) || d != std::floor(d)) {
+        throw std::invalid_argument("Scalar is not an integer in the long range");
+    }
+    return (long long)d;
+}
+
+static af::array typedScalarOp(int op, const af::array &a, const af::array &s)
+{
+    if (op < OP_TYPED || op >= OP_TYPED_END) throw std::invalid_argument("Unknown opcode");
+    int code = (op - OP_TYPED) / 4;
+    bool reverse = ((op - OP_TYPED) & TYPED_REVERSE) != 0;
+    const af::array &l = reverse ? s : a;
+    const af::array &r = reverse ? a : s;
+
+    switch (code) {
+    case OP_ADD: return l + r;
+    case OP_SUB: return l - r;
+    case OP_MUL: return l * r;
+    case OP_DIV: return l / r;
+    case OP_LE:  return l <= r;
+    case OP_LT:  return l < r;
+    case OP_GE:  return l >= r;
+    case OP_GT:  return l > r;
+    case OP_EQ:  return l == r;
+    case OP_NE:  return l != r;
+    case TYPED_POW: return af::pow(l, r);
+    default: throw std::invalid_argument("Unknown opcode");
+    }
+}
+
+static bool typedInt(int op)
+{
+    return ((op - OP_TYPED) & TYPED_INT) != 0;
+}
+
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_scalarOp(JNIEnv *env, jclass clazz, jlong dst, jint op, jlong a, jdouble b)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        bool integer = typedInt(op);
+        af::array s = scalarOperand(*A, integer, b, integer ? integerScalar(b) : 0);
+        ASSIGN_OUT(dst, typedScalarOp(op, *A, s))
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_scalarOpLong(JNIEnv *env, jclass clazz, jlong dst, jint op, jlong a, jlong b)
+{
+    try {
+        beginCall();
+        af::array *A = toArray(a);
+        af::array s = scalarOperand(*A, true, (double)b, (long long)b);
+        ASSIGN_OUT(dst, typedScalarOp(op, *A, s))
+    } catch(af::exception& e) {
+        setError(e);
+        return 0;
+    } catch(std::exception& e) {
+        setError(e);
+        return 0;
+    }
+}
+
+const int InstrSize = 4;
+
+// Runs a single instruction. a and b are operand registers, imm is the
+// immediate. Elementwise results stay unevaluated JIT nodes, so chains
+// of them are fused when the output is evaluated.
+static af::array evalInstr(int op, const af::array &a, const af::array &b,
+                           int imm, const jdouble *scalars)
+{
+#define BINARY_CASE(code, operation) case code: return a operation b;
+#define UNARY_CASE(code, func)       case code: return af::func(a);
+#define SCALAR1_CASE(code, operation) \
+    case code: return a operation (float)scalars[imm];
+#define SCALAR2_CASE(code, operation) \
+    case code: return (float)scalars[imm] operation a;
+#define REDUCE_CASE(code, func)                              \
+    case code: return af::func(a, imm);                      \
+    case code##_ALL: return af::func(af::flat(a));
+
+    switch (op) {
+    BINARY_CASE(OP_ADD, +)
+    BINARY_CASE(OP_SUB, -)
+    BINARY_CASE(OP_MUL, *)
+    BINARY_CASE(OP_DIV, /)
+    BINARY_CASE(OP_LE, <=)
+    BINARY_CASE(OP_LT, <)
+    BINARY_CASE(OP_GE, >=)
+    BINARY_CASE(OP_GT, >)
+    BINARY_CASE(OP_EQ, ==)
+    BINARY_CASE(OP_NE, !=)
+
+    UNARY_CASE(OP_SIN, sin)
+    UNARY_CASE(OP_COS, cos)
+    UNARY_CASE(OP_TAN, tan)
+    UNARY_CASE(OP_ASIN, asin)
+    UNARY_CASE(OP_ACOS, acos)
+    UNARY_CASE(OP_ATAN, atan)
+    UNARY_CASE(OP_SINH, sinh)
+    UNARY_CASE(OP_COSH, cosh)
+    UNARY_CASE(OP_TANH, tanh)
+    UNARY_CASE(OP_ASINH, asinh)
+    UNARY_CASE(OP_ACOSH, acosh)
+    UNARY_CASE(OP_ATANH, atanh)
+    UNARY_CASE(OP_EXP, exp)
+    UNARY_CASE(OP_LOG, log)
+    UNARY_CASE(OP_ABS, abs)
+    UNARY_CASE(OP_SQRT, sqrt)
+
+    SCALAR1_CASE(OP_ADDF, +)
+    SCALAR1_CASE(OP_SUBF, -)
+    SCALAR1_CASE(OP_MULF, *)
+    SCALAR1_CASE(OP_DIVF, /)
+    SCALAR1_CASE(OP_LEF, <=)
+    SCALAR1_CASE(OP_LTF, <)
+    SCALAR1_CASE(OP_GEF, >=)
+    SCALAR1_CASE(OP_GTF, >)
+    SCALAR1_CASE(OP_EQF, ==)
+    SCALAR1_CASE(OP_NEF, !=)
+    case OP_POW: return af::pow(a, (float)scalars[imm]);
+
+    SCALAR2_CASE(OP_FSUB, -)
+    SCALAR2_CASE(OP_FDIV, /)
+    SCALAR2_CASE(OP_FLE, <=)
+    SCALAR2_CASE(OP_FLT, <)
+    SCALAR2_CASE(OP_FGE, >=)
+    SCALAR2_CASE(OP_FGT, >)
+
+    REDUCE_CASE(OP_SUM, sum)
+    REDUCE_CASE(OP_MAX, max)
+    REDUCE_CASE(OP_MIN, min)
+
+    UNARY_CASE(OP_FFT, fft)
+    UNARY_CASE(OP_FFT2, fft2)
+    UNARY_CASE(OP_FFT3, fft3)
+    UNARY_CASE(OP_IFFT, ifft)
+    UNARY_CASE(OP_IFFT2, ifft2)
+    UNARY_CASE(OP_IFFT3, ifft3)
+
+    default:
+        if (op >= OP_TYPED && op < OP_TYPED_END) {
+            jdouble val = scalars[imm];
+            bool integer = typedInt(op);
+            long long l = integer ? integerScalar(val) : 0;
+            return typedScalarOp(op, a, scalarOperand(a, integer, val, l));
+        }
+        throw std::invalid_argument("Unknown opcode");
+    }
+
+#undef BINARY_CASE
+#undef UNARY_CASE
+#undef SCALAR1_CASE
+#undef SCALAR2_CASE
+#undef REDUCE_CASE
+}
+
+JNIEXPORT jlongArray JNICALL Java_com_arrayfire_Array_evalProgram(JNIEnv *env, jclass clazz, jintArray code, jlongArray inputs, jdoubleArray scalars, jintArray outputs)
+{
+    jlongArray result = NULL;
+    try {
+        beginCall();
+        std::vector<af::array> regs;
+
+        jint ninputs = env->GetArrayLength(inputs);
+        jlong *inptr = env->GetLongArrayElements(inputs, 0);
+        for (int i = 0; i < ninputs && inptr[i] != 0; i++) {
+            regs.push_back(*(af::array*)(inptr[i]));
+        }
+        env->ReleaseLongArrayElements(inputs, inptr, JNI_ABORT);
+        if ((jint)regs.size() != ninputs) throw std::invalid_argument("Null array handle");
+
+        jint ncode = env->GetArrayLength(code);
+        jint *codeptr = env->GetIntArrayElements(code, 0);
+        jdouble *scalarptr = env->GetDoubleArrayElements(scalars, 0);
+        try {
+            beginCall();
+            af::array none;
+            for (int i = 0; i + InstrSize <= ncode; i += InstrSize) {
+                jint op = codeptr[i];
+                jint a = codeptr[i + 1];
+                jint b = codeptr[i + 2];
+                jint imm = codeptr[i + 3];
+                regs.push_back(evalInstr(op, regs.at(a),
+                                         b < 0 ? none : regs.at(b),
+                                         imm, scalarptr));
+            }
+        } catch(...) {
+            env->ReleaseDoubleArrayElements(scalars, scalarptr, JNI_ABORT);
+            env->ReleaseIntArrayElements(code, codeptr, JNI_ABORT);
+            throw;
+        }
+        env->ReleaseDoubleArrayElements(scalars, scalarptr, JNI_ABORT);
+        env->ReleaseIntArrayElements(code, codeptr, JNI_ABORT);
+
+        jint noutputs = env->GetArrayLength(outputs);
+        jint *outptr = env->GetIntArrayElements(outputs, 0);
+        std::vector<af::array> outs;
+        try {
+            beginCall();
+            for (int i = 0; i < noutputs; i++) {
+                outs.push_back(regs.at(outptr[i]));
+                outs.back().eval();
+            }
+        } catch(...) {
+            env->ReleaseIntArrayElements(outputs, outptr, JNI_ABORT);
+            throw;
+        }
+        env->ReleaseIntArrayElements(outputs, outptr, JNI_ABORT);
+
+        std::vector<jlong> handles(noutputs);
+        for (int i = 0; i < noutputs; i++) {
+            handles[i] = (jlong)(new af::array(outs[i]));
+        }
+
+        result = env->NewLongArray(noutputs);
+        if (result == NULL) {
+            for (int i = 0; i < noutputs; i++) delete (af::array*)(handles[i]);
+            return NULL;
+        }
+        if (noutputs > 0) env->SetLongArrayRegion(result, 0, noutputs, &handles[0]);
+    } catch(af::exception& e) {
+        setError(e);
+        result = NULL;
+    } catch(std::exception& e) {
+        setError(e);
+        result = NULL;
+    }
+    return result;
+}
+
 void convert_uchar2float(float** out,unsigned char* in, int size, int chnls)
 {
     float *temp = *out;
@@ -629,14 +2410,17 @@ void blur_logic(unsigned char* bufIn, unsigned char* bufOut, int* info)
     {                                           \
         jlong ret;                              \
         try {                                   \
-            af::array *A = (af::array*)(a);     \
-            af::array *B = (af::array*)(b);     \
+            beginCall();                       \
+            af::array *A = toArray(a);          \
+            af::array *B = toArray(b);          \
             af::array *res = new af::array();   \
             (*res) = af::func( (*A) , (*B) );   \
             ret = (jlong)(res);                 \
         } catch(af::exception& e) {             \
+            setError(e);                        \
             ret = 0;                            \
         } catch(std::exception& e) {            \
+            setError(e);                        \
             ret = 0;                            \
         }                                       \
         return ret;                             \
@@ -650,14 +2434,17 @@ JNIEXPORT jlong JNICALL Java_com_arrayfire_Image_convolve(JNIEnv *env, jclass cl
 {
     jlong ret;
     try {
-        af::array *A = (af::array*)(a);
-        af::array *B = (af::array*)(b);
+        beginCall();
+        af::array *A = toArray(a);
+        af::array *B = toArray(b);
         af::array *res = new af::array();
         (*res) = af::convolve( (*A) , (*B) );
         ret = (jlong)(res);
     } catch(af::exception& e) {
+        setError(e);
         ret = 0;
     } catch(std::exception& e) {
+        setError(e);
         ret = 0;
     }
     return ret;
@@ -667,13 +2454,16 @@ JNIEXPORT jlong JNICALL Java_com_arrayfire_Image_medfilt(JNIEnv *env, jclass cla
 {
     jlong ret;
     try {
-        af::array *A = (af::array*)(a);
+        beginCall();
+        af::array *A = toArray(a);
         af::array *res = new af::array();
         (*res) = af::medfilt( (*A) , w, h );
         ret = (jlong)(res);
     } catch(af::exception& e) {
+        setError(e);
         ret = 0;
     } catch(std::exception& e) {
+        setError(e);
         ret = 0;
     }
     return ret;
@@ -683,13 +2473,16 @@ JNIEXPORT jlong JNICALL Java_com_arrayfire_Image_bilateral(JNIEnv *env, jclass c
 {
     jlong ret;
     try {
-        af::array *A = (af::array*)(a);
+        beginCall();
+        af::array *A = toArray(a);
         af::array *res = new af::array();
         (*res) = af::bilateral( (*A) , space, color );
         ret = (jlong)(res);
     } catch(af::exception& e) {
+        setError(e);
         ret = 0;
     } catch(std::exception& e) {
+        setError(e);
         ret = 0;
     }
     return ret;
@@ -699,13 +2492,16 @@ JNIEXPORT jlong JNICALL Java_com_arrayfire_Image_meanshift(JNIEnv *env, jclass c
 {
     jlong ret;
     try {
-        af::array *A = (af::array*)(a);
+        beginCall();
+        af::array *A = toArray(a);
         af::array *res = new af::array();
         (*res) = af::meanshift( (*A) , space, color, iter );
         ret = (jlong)(res);
     } catch(af::exception& e) {
+        setError(e);
         ret = 0;
     } catch(std::exception& e) {
+        setError(e);
         ret = 0;
     }
     return ret;
@@ -715,13 +2511,16 @@ JNIEXPORT jlong JNICALL Java_com_arrayfire_Image_histogram(JNIEnv *env, jclass c
 {
     jlong ret;
     try {
-        af::array *A = (af::array*)(a);
+        beginCall();
+        af::array *A = toArray(a);
         af::array *res = new af::array();
         (*res) = af::histogram( (*A) , nbins );
         ret = (jlong)(res);
     } catch(af::exception& e) {
+        setError(e);
         ret = 0;
     } catch(std::exception& e) {
+        setError(e);
         ret = 0;
     }
     return ret;
@@ -731,13 +2530,16 @@ JNIEXPORT jlong JNICALL Java_com_arrayfire_Image_hist_mnmx(JNIEnv *env, jclass c
 {
     jlong ret;
     try {
-        af::array *A = (af::array*)(a);
+        beginCall();
+        af::array *A = toArray(a);
         af::array *res = new af::array();
         (*res) = af::histogram( (*A) , nbins, min, max );
         ret = (jlong)(res);
     } catch(af::exception& e) {
+        setError(e);
         ret = 0;
     } catch(std::exception& e) {
+        setError(e);
         ret = 0;
     }
     return ret;
@@ -747,13 +2549,16 @@ JNIEXPORT jlong JNICALL Java_com_arrayfire_Image_rotate(JNIEnv *env, jclass claz
 {
     jlong ret;
     try {
-        af::array *A = (af::array*)(a);
+        beginCall();
+        af::array *A = toArray(a);
         af::array *res = new af::array();
         (*res) = af::rotate( (*A) , theta, crop );
         ret = (jlong)(res);
     } catch(af::exception& e) {
+        setError(e);
         ret = 0;
     } catch(std::exception& e) {
+        setError(e);
         ret = 0;
     }
     return ret;
@@ -763,13 +2568,16 @@ JNIEXPORT jlong JNICALL Java_com_arrayfire_Image_resize1(JNIEnv *env, jclass cla
 {
     jlong ret;
     try {
-        af::array *A = (af::array*)(a);
+        beginCall();
+        af::array *A = toArray(a);
         af::array *res = new af::array();
         (*res) = af::resize( scale, (*A) , method );
         ret = (jlong)(res);
     } catch(af::exception& e) {
+        setError(e);
         ret = 0;
     } catch(std::exception& e) {
+        setError(e);
         ret = 0;
     }
     return ret;
@@ -779,13 +2587,16 @@ JNIEXPORT jlong JNICALL Java_com_arrayfire_Image_resize2(JNIEnv *env, jclass cla
 {
     jlong ret;
     try {
-        af::array *A = (af::array*)(a);
+        beginCall();
+        af::array *A = toArray(a);
         af::array *res = new af::array();
         (*res) = af::resize( scalex, scaley, (*A) , method );
         ret = (jlong)(res);
     } catch(af::exception& e) {
+        setError(e);
         ret = 0;
     } catch(std::exception& e) {
+        setError(e);
         ret = 0;
     }
     return ret;
@@ -795,13 +2606,16 @@ JNIEXPORT jlong JNICALL Java_com_arrayfire_Image_resize3(JNIEnv *env, jclass cla
 {
     jlong ret;
     try {
-        af::array *A = (af::array*)(a);
+        beginCall();
+        af::array *A = toArray(a);
         af::array *res = new af::array();
         (*res) = af::resize( (unsigned int)height, (unsigned int)width, (*A) , method );
         ret = (jlong)(res);
     } catch(af::exception& e) {
+        setError(e);
         ret = 0;
     } catch(std::exception& e) {
+        setError(e);
         ret = 0;
     }
     return ret;
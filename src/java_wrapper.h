@@ -7,8 +7,30 @@
 extern "C" {
 #endif
 
+// Library load time initialization
+JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *vm, void *reserved);
+
+// Backend selection, backend takes af::Backend values. ArrayFire keeps
+// the active backend per thread.
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Backend_init(JNIEnv *env, jclass clazz, jint backend);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Backend_setBackend(JNIEnv *env, jclass clazz, jint backend);
+JNIEXPORT jint JNICALL Java_com_arrayfire_Backend_getActiveBackend(JNIEnv *env, jclass clazz);
+JNIEXPORT jint JNICALL Java_com_arrayfire_Backend_getAvailableBackends(JNIEnv *env, jclass clazz);
+JNIEXPORT jstring JNICALL Java_com_arrayfire_Backend_deviceInfo(JNIEnv *env, jclass clazz);
+
+// Error of the last failed native call on this thread. Taking the code
+// clears both.
+JNIEXPORT jint JNICALL Java_com_arrayfire_Array_takeErrorCode(JNIEnv *env, jclass clazz);
+JNIEXPORT jstring JNICALL Java_com_arrayfire_Array_lastErrorMessage(JNIEnv *env, jclass clazz);
+
 // Simply display info
-JNIEXPORT void JNICALL Java_com_arrayfire_Array_info(JNIEnv *env, jclass clazz);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_printInfo(JNIEnv *env, jclass clazz);
+
+// Device management, ArrayFire keeps the active device per thread
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_selectDevice(JNIEnv *env, jclass clazz, jint device);
+JNIEXPORT jint JNICALL Java_com_arrayfire_Array_getDevice(JNIEnv *env, jclass clazz);
+JNIEXPORT jint JNICALL Java_com_arrayfire_Array_getDeviceCount(JNIEnv *env, jclass clazz);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_syncDevice(JNIEnv *env, jclass clazz);
 
 // Loader methods
 JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createEmptyArray(JNIEnv *env, jclass clazz, jintArray dims, jint type);
@@ -16,10 +38,27 @@ JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createArrayFromFloat(JNIEnv *en
 JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createArrayFromDouble(JNIEnv *env, jclass clazz, jintArray dims, jdoubleArray elems);
 JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createArrayFromInt(JNIEnv *env, jclass clazz, jintArray dims, jintArray elems);
 JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createArrayFromBoolean(JNIEnv *env, jclass clazz, jintArray dims, jbooleanArray elems);
-JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createArrayFromFloatComplex(JNIEnv *env, jclass clazz, jintArray dims, jobjectArray objs);
-JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createArrayFromDoubleComplex(JNIEnv *env, jclass clazz, jintArray dims, jobjectArray objs);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createArrayFromInterleavedFloat(JNIEnv *env, jclass clazz, jintArray dims, jfloatArray reIm);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createArrayFromInterleavedDouble(JNIEnv *env, jclass clazz, jintArray dims, jdoubleArray reIm);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createArrayFromSplitFloat(JNIEnv *env, jclass clazz, jintArray dims, jfloatArray re, jfloatArray im);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createArrayFromSplitDouble(JNIEnv *env, jclass clazz, jintArray dims, jdoubleArray re, jdoubleArray im);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createArrayFromBuffer(JNIEnv *env, jclass clazz, jintArray dims, jobject elems, jint offset, jint type);
+// Primitive arrays holding elements of the given type, which must have
+// the width of the primitive
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createTypedArrayFromByte(JNIEnv *env, jclass clazz, jintArray dims, jbyteArray elems, jint type);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createTypedArrayFromShort(JNIEnv *env, jclass clazz, jintArray dims, jshortArray elems, jint type);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createTypedArrayFromInt(JNIEnv *env, jclass clazz, jintArray dims, jintArray elems, jint type);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createTypedArrayFromLong(JNIEnv *env, jclass clazz, jintArray dims, jlongArray elems, jint type);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_cast(JNIEnv *env, jclass clazz, jlong a, jint type);
 // Unloader methods
 JNIEXPORT void JNICALL Java_com_arrayfire_Array_destroyArray(JNIEnv *env, jclass clazz, jlong ref);
+JNIEXPORT void JNICALL Java_com_arrayfire_Array_destroyArrays(JNIEnv *env, jclass clazz, jlongArray refs, jint count);
+
+// Memory pool, see MemoryManager.java
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_deviceMemInfo(JNIEnv *env, jclass clazz, jlongArray info);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_deviceGC(JNIEnv *env, jclass clazz);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_setMemStepSize(JNIEnv *env, jclass clazz, jlong bytes);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_getMemStepSize(JNIEnv *env, jclass clazz);
 
 JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createRanduArray(JNIEnv *env, jclass clazz, jintArray dims, jint type);
 JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_createRandnArray(JNIEnv *env, jclass clazz, jintArray dims, jint type);
@@ -32,11 +71,32 @@ JNIEXPORT jfloatArray JNICALL Java_com_arrayfire_Array_getFloatFromArray(JNIEnv
 JNIEXPORT jdoubleArray JNICALL Java_com_arrayfire_Array_getDoubleFromArray(JNIEnv *env, jclass clazz, jlong ref);
 JNIEXPORT jintArray JNICALL Java_com_arrayfire_Array_getIntFromArray(JNIEnv *env, jclass clazz, jlong ref);
 JNIEXPORT jbooleanArray JNICALL Java_com_arrayfire_Array_getBooleanFromArray(JNIEnv *env, jclass clazz, jlong ref);
-JNIEXPORT jobjectArray JNICALL Java_com_arrayfire_Array_getFloatComplexFromArray(JNIEnv *env, jclass clazz, jlong ref);
-JNIEXPORT jobjectArray JNICALL Java_com_arrayfire_Array_getDoubleComplexFromArray(JNIEnv *env, jclass clazz, jlong ref);
+JNIEXPORT jbyteArray JNICALL Java_com_arrayfire_Array_getByteFromArray(JNIEnv *env, jclass clazz, jlong ref);
+JNIEXPORT jshortArray JNICALL Java_com_arrayfire_Array_getShortFromArray(JNIEnv *env, jclass clazz, jlong ref);
+JNIEXPORT jlongArray JNICALL Java_com_arrayfire_Array_getLongFromArray(JNIEnv *env, jclass clazz, jlong ref);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_getInterleavedFloatFromArray(JNIEnv *env, jclass clazz, jlong ref, jfloatArray reIm);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_getInterleavedDoubleFromArray(JNIEnv *env, jclass clazz, jlong ref, jdoubleArray reIm);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_getSplitFloatFromArray(JNIEnv *env, jclass clazz, jlong ref, jfloatArray re, jfloatArray im);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_getSplitDoubleFromArray(JNIEnv *env, jclass clazz, jlong ref, jdoubleArray re, jdoubleArray im);
+
+// Data pull back into caller owned storage
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_getFloatRangeFromArray(JNIEnv *env, jclass clazz, jlong ref, jfloatArray dst, jint dstOffset, jint srcOffset, jint length);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_getDoubleRangeFromArray(JNIEnv *env, jclass clazz, jlong ref, jdoubleArray dst, jint dstOffset, jint srcOffset, jint length);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_getIntRangeFromArray(JNIEnv *env, jclass clazz, jlong ref, jintArray dst, jint dstOffset, jint srcOffset, jint length);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_getBooleanRangeFromArray(JNIEnv *env, jclass clazz, jlong ref, jbooleanArray dst, jint dstOffset, jint srcOffset, jint length);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_getByteRangeFromArray(JNIEnv *env, jclass clazz, jlong ref, jbyteArray dst, jint dstOffset, jint srcOffset, jint length);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_getShortRangeFromArray(JNIEnv *env, jclass clazz, jlong ref, jshortArray dst, jint dstOffset, jint srcOffset, jint length);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_getLongRangeFromArray(JNIEnv *env, jclass clazz, jlong ref, jlongArray dst, jint dstOffset, jint srcOffset, jint length);
 
-JNIEXPORT jintArray JNICALL Java_com_arrayfire_Array_getDims(JNIEnv *env, jclass clazz, jlong ref);
-JNIEXPORT jint JNICALL Java_com_arrayfire_Array_getType(JNIEnv *env, jclass clazz, jlong ref);
+// Direct buffer transfer methods
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_copyToBuffer(JNIEnv *env, jclass clazz, jlong ref, jobject dst, jint offset, jint srcOffset, jint length);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_copyFromBuffer(JNIEnv *env, jclass clazz, jlong ref, jobject src, jint offset);
+
+// Fills info with the four dimensions followed by the type
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_getInfo(JNIEnv *env, jclass clazz, jlong ref, jintArray info);
+
+// Evaluates a program of recorded operations, see Expr.java
+JNIEXPORT jlongArray JNICALL Java_com_arrayfire_Array_evalProgram(JNIEnv *env, jclass clazz, jintArray code, jlongArray inputs, jdoubleArray scalars, jintArray outputs);
 
 // Library Methods
 
@@ -74,13 +134,6 @@ UNARY_OP(log)
 UNARY_OP(abs)
 UNARY_OP(sqrt)
 
-#define SCALAR_RET_OP(func) \
-    JNIEXPORT jdouble JNICALL Java_com_arrayfire_Array_##func(JNIEnv *env, jclass clazz, jlong a);
-
-SCALAR_RET_OP(sumAll)
-SCALAR_RET_OP(maxAll)
-SCALAR_RET_OP(minAll)
-
 #define ARRAY_RET_OP(func) \
     JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_##func(JNIEnv *env, jclass clazz, jlong a, jint dim);
 
@@ -98,6 +151,65 @@ FFT(ifft)
 FFT(ifft2)
 FFT(ifft3)
 
+// Scaled, real to complex, complex to real and in place transforms over
+// the first rank dimensions, see Array.java
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_fftNorm(JNIEnv *env, jclass clazz, jlong a, jint rank, jboolean inverse, jdouble norm, jintArray odims);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_fftR2C(JNIEnv *env, jclass clazz, jlong a, jint rank, jdouble norm, jintArray odims);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_fftC2R(JNIEnv *env, jclass clazz, jlong a, jint rank, jboolean isOdd, jdouble norm);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_fftInPlace(JNIEnv *env, jclass clazz, jlong a, jint rank, jboolean inverse, jdouble norm);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_setFftPlanCacheSize(JNIEnv *env, jclass clazz, jint size);
+
+// Indexing, see Array.java for how subscripts are passed
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_index(JNIEnv *env, jclass clazz, jlong a, jintArray seqs, jlongArray arrays);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_assignArray(JNIEnv *env, jclass clazz, jlong dst, jintArray seqs, jlongArray arrays, jlong src);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_assignScalar(JNIEnv *env, jclass clazz, jlong dst, jintArray seqs, jlongArray arrays, jdouble val);
+
+// Random engines, type takes af::randomEngineType values
+JNIEXPORT jlong JNICALL Java_com_arrayfire_RandomEngine_create(JNIEnv *env, jclass clazz, jint type, jlong seed);
+JNIEXPORT void JNICALL Java_com_arrayfire_RandomEngine_destroy(JNIEnv *env, jclass clazz, jlong eng);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_RandomEngine_setSeed(JNIEnv *env, jclass clazz, jlong eng, jlong seed);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_RandomEngine_uniform(JNIEnv *env, jclass clazz, jlong eng, jintArray dims, jint type, jdouble lo, jdouble hi);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_RandomEngine_normal(JNIEnv *env, jclass clazz, jlong eng, jintArray dims, jint type, jdouble mean, jdouble stdev);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_RandomEngine_uniformInt(JNIEnv *env, jclass clazz, jlong eng, jintArray dims, jint lo, jint hi);
+
+// Statistics. stats takes the Stat codes of Array.java, and out
+// receives one double per code, or the value and index of the extremum.
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_statsAll(JNIEnv *env, jclass clazz, jlong a, jintArray stats, jdoubleArray out);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_imaxAll(JNIEnv *env, jclass clazz, jlong a, jdoubleArray out);
+JNIEXPORT jboolean JNICALL Java_com_arrayfire_Array_iminAll(JNIEnv *env, jclass clazz, jlong a, jdoubleArray out);
+JNIEXPORT jlongArray JNICALL Java_com_arrayfire_Array_imax(JNIEnv *env, jclass clazz, jlong a, jint dim);
+JNIEXPORT jlongArray JNICALL Java_com_arrayfire_Array_imin(JNIEnv *env, jclass clazz, jlong a, jint dim);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_mean(JNIEnv *env, jclass clazz, jlong a, jint dim);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_var(JNIEnv *env, jclass clazz, jlong a, jint dim, jboolean biased);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_stdev(JNIEnv *env, jclass clazz, jlong a, jint dim);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_median(JNIEnv *env, jclass clazz, jlong a, jint dim);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_count(JNIEnv *env, jclass clazz, jlong a, jint dim);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_anyTrue(JNIEnv *env, jclass clazz, jlong a, jint dim);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_allTrue(JNIEnv *env, jclass clazz, jlong a, jint dim);
+
+// Scans, sorting and sets. op takes af::binaryOp and order
+// af::topkFunction values.
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_accum(JNIEnv *env, jclass clazz, jlong a, jint dim);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_scan(JNIEnv *env, jclass clazz, jlong a, jint dim, jint op, jboolean inclusive);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_sort(JNIEnv *env, jclass clazz, jlong a, jint dim, jboolean ascending);
+JNIEXPORT jlongArray JNICALL Java_com_arrayfire_Array_sortIndex(JNIEnv *env, jclass clazz, jlong a, jint dim, jboolean ascending);
+JNIEXPORT jlongArray JNICALL Java_com_arrayfire_Array_topk(JNIEnv *env, jclass clazz, jlong a, jint k, jint dim, jint order);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_where(JNIEnv *env, jclass clazz, jlong a);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_setUnique(JNIEnv *env, jclass clazz, jlong a, jboolean isSorted);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_setUnion(JNIEnv *env, jclass clazz, jlong a, jlong b, jboolean isUnique);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_setIntersect(JNIEnv *env, jclass clazz, jlong a, jlong b, jboolean isUnique);
+
+// Linear algebra, optLhs and optRhs take af::matProp values
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_matmul(JNIEnv *env, jclass clazz, jlong a, jlong b, jint optLhs, jint optRhs);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_dot(JNIEnv *env, jclass clazz, jlong a, jlong b);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_transpose(JNIEnv *env, jclass clazz, jlong a, jboolean conjugate);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_solve(JNIEnv *env, jclass clazz, jlong a, jlong b);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_inverse(JNIEnv *env, jclass clazz, jlong a);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_cholesky(JNIEnv *env, jclass clazz, jlong a, jboolean upper);
+JNIEXPORT jlongArray JNICALL Java_com_arrayfire_Array_lu(JNIEnv *env, jclass clazz, jlong a);
+JNIEXPORT jlongArray JNICALL Java_com_arrayfire_Array_qr(JNIEnv *env, jclass clazz, jlong a);
+JNIEXPORT jlongArray JNICALL Java_com_arrayfire_Array_svd(JNIEnv *env, jclass clazz, jlong a);
+
 #define SCALAR_OP1(func) \
     JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_##func(JNIEnv *env, jclass clazz, jlong a, jfloat b);
 
@@ -123,6 +235,61 @@ SCALAR_OP2(flt)
 SCALAR_OP2(fge)
 SCALAR_OP2(fgt)
 
+// Typed scalar operations, op is an Expr typed opcode. The result is
+// assigned to dst as in the output parameter forms.
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_scalarOp(JNIEnv *env, jclass clazz, jlong dst, jint op, jlong a, jdouble b);
+JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_scalarOpLong(JNIEnv *env, jclass clazz, jlong dst, jint op, jlong a, jlong b);
+
+// Output parameter forms, see Array.java
+#define BINARY_OP_OUT(func) \
+    JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_##func##Out(JNIEnv *env, jclass clazz, jlong dst, jlong a, jlong b);
+
+BINARY_OP_OUT(add)
+BINARY_OP_OUT(sub)
+BINARY_OP_OUT(mul)
+BINARY_OP_OUT(div)
+BINARY_OP_OUT(le)
+BINARY_OP_OUT(lt)
+BINARY_OP_OUT(ge)
+BINARY_OP_OUT(gt)
+BINARY_OP_OUT(eq)
+BINARY_OP_OUT(ne)
+
+#define UNARY_OP_OUT(func) \
+    JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_##func##Out(JNIEnv *env, jclass clazz, jlong dst, jlong a);
+
+UNARY_OP_OUT(sin)
+UNARY_OP_OUT(cos)
+UNARY_OP_OUT(tan)
+UNARY_OP_OUT(asin)
+UNARY_OP_OUT(acos)
+UNARY_OP_OUT(atan)
+UNARY_OP_OUT(sinh)
+UNARY_OP_OUT(cosh)
+UNARY_OP_OUT(tanh)
+UNARY_OP_OUT(asinh)
+UNARY_OP_OUT(acosh)
+UNARY_OP_OUT(atanh)
+UNARY_OP_OUT(exp)
+UNARY_OP_OUT(log)
+UNARY_OP_OUT(abs)
+UNARY_OP_OUT(sqrt)
+
+#define SCALAR_OP1_OUT(func) \
+    JNIEXPORT jlong JNICALL Java_com_arrayfire_Array_##func##Out(JNIEnv *env, jclass clazz, jlong dst, jlong a, jfloat b);
+
+SCALAR_OP1_OUT(addf)
+SCALAR_OP1_OUT(subf)
+SCALAR_OP1_OUT(mulf)
+SCALAR_OP1_OUT(divf)
+SCALAR_OP1_OUT(lef)
+SCALAR_OP1_OUT(ltf)
+SCALAR_OP1_OUT(gef)
+SCALAR_OP1_OUT(gtf)
+SCALAR_OP1_OUT(eqf)
+SCALAR_OP1_OUT(nef)
+SCALAR_OP1_OUT(pow)
+
 #define MORPH_OP(func) \
     JNIEXPORT jlong JNICALL Java_com_arrayfire_Image_##func(JNIEnv *env, jclass clazz, jlong a, jlong b);
 